@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  *  
- *  Version 1.7.1 (2023-06-26)
+ *  Version 1.7.2 (2026-10-18)
  *  
  */
 package org.openoffice.da.comp.w2xcommon.filter;
@@ -47,6 +47,7 @@ import com.sun.star.uno.XComponentContext;
 import writer2xhtml.api.Converter;
 import writer2xhtml.api.ConverterFactory;
 import writer2xhtml.api.ConverterResult;
+import writer2xhtml.api.ImageCache;
 import writer2xhtml.api.OutputFile;
 import writer2xhtml.util.Misc;
 
@@ -56,6 +57,9 @@ import writer2xhtml.util.Misc;
  *  The document source document can be provided as an <code>XInputStream</code> or as a DOM tree
  */
 public class UNOConverter {
+	// Converted images are shared by all exports in this office session
+	private static final ImageCache imageCache = ConverterFactory.createImageCache(16*1024*1024);
+
 	private XComponentContext xComponentContext;
 	private Converter converter;
 	private String sTargetFormat = null;
@@ -133,6 +137,7 @@ public class UNOConverter {
 			fdp.applyFilterOptions(filterOptions,converter);			
 		}
 		converter.setGraphicConverter(new GraphicConverterImpl(xComponentContext));
+		converter.setImageCache(imageCache);
 		
 	}
 	
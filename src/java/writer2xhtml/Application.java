@@ -16,32 +16,49 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2022 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2022-06-14) 
+ *  Version 1.7.2 (2026-10-18) 
  *
  */
  
 package writer2xhtml;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 //import java.io.FileOutputStream;
 import java.io.FileInputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import writer2xhtml.api.ConversionProfile;
 import writer2xhtml.api.Converter;
 import writer2xhtml.api.ConverterFactory;
 import writer2xhtml.api.ConverterResult;
 import writer2xhtml.api.MIMETypes;
+import writer2xhtml.base.ConversionMonitor;
 import writer2xhtml.util.Misc;
 
 /**
@@ -56,8 +73,18 @@ import writer2xhtml.util.Misc;
  * <li><code>-template[=]filename</code>
  * <li><code>-stylesheet[=]filename</code>
  * <li><code>-resource[=]filename[::media type]</code>
+ * <li><code>-threads[=]number</code>
+ * <li><code>-convertmetafiles</code> (convert SVM, WMF and EMF images to SVG or PNG)
+ * <li><code>-stats</code> (print the time spent in each phase of the conversion and some counts)
+ * <li><code>-reuseindex</code> (store the index of references and links next to each document, and reuse it
+ * when the same version of the document is converted again)
  * <li><code>-option[=]value</code>
  * </ul>
+ * <p>If the source is a directory, a file name pattern using the wildcards <code>*</code>, <code>?</code> and <code>[...]</code>
+ * or <code>@filename</code> (naming a file containing a list of source files, one per line), the application
+ * works in batch mode: Configuration, template, style sheet and resources are read once, and the documents are
+ * converted in parallel (using the number of threads given by <code>-threads</code>, by default the number of
+ * available processors). In batch mode the target, if given, must be a directory.</p>
  * <p>where <code>option</code> can be any simple option known to Writer2xhtml
  * (see documentation for the configuration file).</p>
  */
@@ -72,6 +99,20 @@ public final class Application {
     private Hashtable<String,String> options = new Hashtable<String,String>();
     private String sSource = null;
     private String sTarget = null;
+    private int nThreads = Runtime.getRuntime().availableProcessors();
+    private boolean bConvertMetafiles = false;
+    private boolean bStatistics = false;
+    private boolean bReuseIndex = false;
+    
+    /* Settings read from files (read once, also in batch mode) */
+    private byte[] templateBytes = null;
+    private byte[] styleSheetBytes = null;
+    private List<Object[]> resourceData = new ArrayList<Object[]>(); // byte[] data, file name and media type
+    private List<Object> configData = new ArrayList<Object>(); // byte[] data or name of a default configuration
+    
+    /* File extensions for documents to convert in batch mode */
+    private static final List<String> SOURCE_EXTENSIONS = Arrays.asList(
+    		".odt", ".ott", ".ods", ".ots", ".fodt", ".fods", ".sxw", ".stw", ".sxc", ".stc");
 
     /**
      *  Main method
@@ -91,7 +132,7 @@ public final class Application {
         }
     }
 	
-    // Convert file
+    // Convert file(s)
     private void doConversion() {
         // Step 1: Say hello...
         System.out.println();
@@ -99,6 +140,11 @@ public final class Application {
                            " (" + ConverterFactory.getDate() + ")");
         System.out.println();
         System.out.println("Starting conversion...");
+        
+        if (isBatch()) {
+        	doBatchConversion();
+        	return;
+        }
 		
         // Step 2: Examine source
         File source = new File(sSource);
@@ -134,12 +180,58 @@ public final class Application {
             System.exit(1);
         }
 		
+        // Step 5-7: Read template, style sheet, resources and configuration and apply these and the
+        // options from the command line
+        readSettings();
+        configure(converter);
+	 	
+        // Step 8: Perform conversion
+        System.out.println("Converting "+source.getPath());
+        ConverterResult dataOut = null;
+
+        try {
+            dataOut = converter.convert(source,target.getName());
+        }
+        catch (FileNotFoundException e) {
+            System.out.println("--> The file "+source.getPath()+" does not exist!");
+            System.out.println("    "+e.getMessage());
+            System.exit(1);
+        }
+        catch (IOException e) {
+            System.out.println("--> Failed to convert the file "+source.getPath()+"!");
+            System.out.println("    "+e.getMessage());
+            System.out.println("    Please make sure the file is in OpenDocument format");
+            System.exit(1);
+        }
+
+        // TODO: Should do some further checking on the feasability of writing
+        // the directory and the files.
+        File targetDir = target.getParentFile();
+        if (targetDir!=null && !targetDir.exists()) { targetDir.mkdirs(); }
+        try {
+            dataOut.write(targetDir);
+        }
+        catch (IOException e) {
+            System.out.println("--> Error writing out file!");
+            System.out.println("    "+e.getMessage());
+            System.exit(1);
+        }
+        if (dataOut.getStatistics()!=null) {
+            System.out.println(dataOut.getStatistics());
+        }
+		
+        // Step 9: Say goodbye!
+        System.out.println("Done!");
+    }
+
+
+    // Read template, style sheet, resources and configuration files
+    private void readSettings() {
         // Step 5a: Read template
         if (sTemplateFileName!=null) {
             try {
                 System.out.println("Reading template "+sTemplateFileName);
-                byte [] templateBytes = Misc.inputStreamToByteArray(new FileInputStream(sTemplateFileName));
-                converter.readTemplate(new ByteArrayInputStream(templateBytes));
+                templateBytes = Misc.inputStreamToByteArray(new FileInputStream(sTemplateFileName));
             }
             catch (FileNotFoundException e) {
                 System.out.println("--> This file does not exist!");
@@ -155,8 +247,7 @@ public final class Application {
         if (sStyleSheetFileName!=null) {
             try {
                 System.out.println("Reading style sheet "+sStyleSheetFileName);
-                byte [] styleSheetBytes = Misc.inputStreamToByteArray(new FileInputStream(sStyleSheetFileName));
-                converter.readStyleSheet(new ByteArrayInputStream(styleSheetBytes));
+                styleSheetBytes = Misc.inputStreamToByteArray(new FileInputStream(sStyleSheetFileName));
             }
             catch (FileNotFoundException e) {
                 System.out.println("--> This file does not exist!");
@@ -184,7 +275,7 @@ public final class Application {
         	System.out.println("Reading resource file "+sFileName);
         	try {
         		byte [] resourceBytes = Misc.inputStreamToByteArray(new FileInputStream(sFileName));
-        		converter.readResource(new ByteArrayInputStream(resourceBytes),sFileName,sMediaType);
+        		resourceData.add(new Object[] { resourceBytes, sFileName, sMediaType });
         	} catch (IOException e) {
                 System.out.println("--> Failed to read the resource file!");
                 System.out.println("    "+e.getMessage());
@@ -198,25 +289,71 @@ public final class Application {
             if (sConfigFileName.startsWith("*")) {
                 sConfigFileName = sConfigFileName.substring(1);
                 System.out.println("Reading default configuration "+sConfigFileName);
+                configData.add(sConfigFileName);
+            }
+            else {
+                System.out.println("Reading configuration file "+sConfigFileName);
+                try {
+                    configData.add(Misc.inputStreamToByteArray(new FileInputStream(sConfigFileName)));
+                }
+                catch (IOException e) {
+                    System.err.println("--> Failed to read the configuration!");
+                    System.out.println("    "+e.getMessage());
+                }
+            }
+        }
+    }
+    
+    // Apply template, style sheet, resources, configuration and options to a converter
+    private void configure(Converter converter) {
+        if (templateBytes!=null) {
+        	try {
+        		converter.readTemplate(new ByteArrayInputStream(templateBytes));
+        	}
+            catch (IOException e) {
+                System.out.println("--> Failed to read the template file!");
+                System.out.println("    "+e.getMessage());
+            }
+        }
+        
+        if (styleSheetBytes!=null) {
+        	try {
+        		converter.readStyleSheet(new ByteArrayInputStream(styleSheetBytes));
+        	}
+            catch (IOException e) {
+                System.out.println("--> Failed to read the style sheet file!");
+                System.out.println("    "+e.getMessage());
+            }
+        }
+        
+        for (Object[] resource : resourceData) {
+        	try {
+        		converter.readResource(new ByteArrayInputStream((byte[]) resource[0]),(String) resource[1],(String) resource[2]);
+        	} catch (IOException e) {
+                System.out.println("--> Failed to read the resource file!");
+                System.out.println("    "+e.getMessage());
+        	}        		
+        }
+        
+        for (Object config : configData) {
+        	if (config instanceof String) {
                 try {
-                    converter.getConfig().readDefaultConfig(sConfigFileName);
+                    converter.getConfig().readDefaultConfig((String) config);
                 }
                 catch (IllegalArgumentException e) {
                     System.err.println("--> This configuration is unknown!");
                     System.out.println("    "+e.getMessage());
                 }
-            }
-            else {
-                System.out.println("Reading configuration file "+sConfigFileName);
+        	}
+        	else {
                 try {
-                    byte[] configBytes = Misc.inputStreamToByteArray(new FileInputStream(sConfigFileName));
-                    converter.getConfig().read(new ByteArrayInputStream(configBytes));
+                    converter.getConfig().read(new ByteArrayInputStream((byte[]) config));
                 }
                 catch (IOException e) {
                     System.err.println("--> Failed to read the configuration!");
                     System.out.println("    "+e.getMessage());
                 }
-            }
+        	}
         }
 		
         // Step 7: Set options from command line
@@ -226,43 +363,178 @@ public final class Application {
             String sValue = (String) options.get(sKey);
             converter.getConfig().setOption(sKey,sValue);
         }
-	 	
-        // Step 8: Perform conversion
-        System.out.println("Converting "+source.getPath());
-        ConverterResult dataOut = null;
-
-        try {
-            dataOut = converter.convert(source,target.getName());
+        
+        if (bConvertMetafiles) {
+        	converter.setGraphicConverter(ConverterFactory.createGraphicConverter());
         }
-        catch (FileNotFoundException e) {
-            System.out.println("--> The file "+source.getPath()+" does not exist!");
+        converter.setCollectStatistics(bStatistics);
+        converter.setReuseDocumentIndex(bReuseIndex);
+    }
+    
+    // Are we converting more than one file? (An existing file is never a pattern, even if the name contains wildcards)
+    private boolean isBatch() {
+    	if (new File(sSource).isFile()) { return false; }
+    	return sSource.startsWith("@") || sSource.indexOf('*')>-1 || sSource.indexOf('?')>-1 || sSource.indexOf('[')>-1
+    			|| new File(sSource).isDirectory();
+    }
+    
+    // Collect the source files for batch mode
+    private List<File> getBatchSources() throws IOException {
+    	List<File> sources = new ArrayList<File>();
+    	if (sSource.startsWith("@")) {
+    		// A file containing a list of files
+    		BufferedReader reader = new BufferedReader(new FileReader(sSource.substring(1)));
+    		try {
+    			String sLine;
+    			while ((sLine = reader.readLine())!=null) {
+    				if (sLine.trim().length()>0) {
+    					sources.add(new File(sLine.trim()));
+    				}
+    			}
+    		}
+    		finally {
+    			reader.close();
+    		}
+    	}
+    	else if (new File(sSource).isDirectory()) {
+    		// All documents in a directory
+    		File[] files = new File(sSource).listFiles();
+    		if (files!=null) {
+    			Arrays.sort(files);
+    			for (File file : files) {
+    				String sExt = Misc.getFileExtension(file.getName()).toLowerCase();
+    				if (file.isFile() && SOURCE_EXTENSIONS.contains(sExt)) {
+    					sources.add(file);
+    				}
+    			}
+    		}
+    	}
+    	else {
+    		// A file name pattern, the directory part cannot contain wildcards
+    		File pattern = new File(sSource);
+    		File dir = pattern.getParentFile()!=null ? pattern.getParentFile() : new File(".");
+    		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:"+pattern.getName());
+    		File[] files = dir.listFiles();
+    		if (files!=null) {
+    			Arrays.sort(files);
+    			for (File file : files) {
+    				if (file.isFile() && matcher.matches(Paths.get(file.getName()))) {
+    					sources.add(file);
+    				}
+    			}
+    		}
+    	}
+    	return sources;
+    }
+    
+    // Convert several files in parallel
+    private void doBatchConversion() {
+    	List<File> sources;
+    	try {
+    		sources = getBatchSources();
+    	}
+    	catch (IOException e) {
+            System.out.println("I'm sorry, I can't read the list of files "+sSource.substring(1));
             System.out.println("    "+e.getMessage());
             System.exit(1);
-        }
-        catch (IOException e) {
-            System.out.println("--> Failed to convert the file "+source.getPath()+"!");
-            System.out.println("    "+e.getMessage());
-            System.out.println("    Please make sure the file is in OpenDocument format");
+            return;
+    	}
+    	if (sources.isEmpty()) {
+    		System.out.println("I'm sorry, I can't find any documents to convert in "+sSource);
+    		System.exit(1);
+    	}
+    	Converter converter = ConverterFactory.createConverter(sTargetMIME);
+    	if (converter==null) {
+            System.out.println("Failed to create converter for "+sTargetMIME);
             System.exit(1);
-        }
+    	}
+    	final File targetDir = sTarget!=null ? new File(sTarget) : null;
+    	if (targetDir!=null && !targetDir.exists()) { targetDir.mkdirs(); }
 
-        // TODO: Should do some further checking on the feasability of writing
-        // the directory and the files.
-        File targetDir = target.getParentFile();
-        if (targetDir!=null && !targetDir.exists()) { targetDir.mkdirs(); }
-        try {
-            dataOut.write(targetDir);
-        }
-        catch (IOException e) {
-            System.out.println("--> Error writing out file!");
-            System.out.println("    "+e.getMessage());
-            System.exit(1);
-        }
-		
-        // Step 9: Say goodbye!
-        System.out.println("Done!");
+    	// The settings are applied once, and shared by all conversions through a conversion profile
+    	readSettings();
+    	configure(converter);
+    	final ConversionProfile profile = converter.createProfile();
+    	
+    	// Documents with the same base name would write the same files, hence only the first of these is converted
+    	List<String> failures = new ArrayList<String>();
+    	List<File> uniqueSources = new ArrayList<File>();
+    	Map<File,File> targets = new HashMap<File,File>();
+    	for (File source : sources) {
+    		File dir = targetDir!=null ? targetDir : source.getAbsoluteFile().getParentFile();
+    		File target = new File(dir,Misc.removeExtension(source.getName()));
+    		if (targets.containsKey(target)) {
+    			failures.add(source.getPath()+": The target name is already used by "+targets.get(target).getPath());
+    		}
+    		else {
+    			targets.put(target, source);
+    			uniqueSources.add(source);
+    		}
+    	}
+    	
+    	System.out.println("Converting "+sources.size()+" documents using "+nThreads+" threads");
+    	long nStartTime = System.currentTimeMillis();
+    	ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    	List<Future<String>> results = new ArrayList<Future<String>>();
+    	for (final File source : uniqueSources) {
+    		results.add(executor.submit(new Callable<String>() {
+    			public String call() {
+    				return convertBatchFile(profile, source, targetDir);
+    			}
+    		}));
+    	}
+    	executor.shutdown();
+    	
+    	// Collect the results
+    	for (int i=0; i<uniqueSources.size(); i++) {
+    		String sError;
+    		try {
+    			sError = results.get(i).get();
+    		}
+    		catch (InterruptedException e) {
+    			sError = e.toString();
+    		}
+    		catch (ExecutionException e) {
+    			sError = e.getCause().toString();
+    		}
+    		if (sError!=null) {
+    			failures.add(uniqueSources.get(i).getPath()+": "+sError);
+    		}
+    	}
+    	
+    	// Report
+    	long nTime = Math.max(System.currentTimeMillis()-nStartTime,1);
+    	int nConverted = sources.size()-failures.size();
+    	System.out.println();
+    	System.out.println("Converted "+nConverted+" of "+sources.size()+" documents in "+(nTime/1000.0)+" seconds ("
+    			+Math.round(nConverted*10000.0/nTime)/10.0+" documents per second)");
+    	if (bStatistics) {
+    		System.out.println(ConversionMonitor.getInstance());
+    	}
+    	if (!failures.isEmpty()) {
+    		System.out.println("Failed to convert "+failures.size()+" documents:");
+    		for (String sFailure : failures) {
+    			System.out.println("    "+sFailure);
+    		}
+    		System.exit(1);
+    	}
+    	System.out.println("Done!");
+    }
+    
+    // Convert a single file in batch mode, returning an error message or null on success
+    private String convertBatchFile(ConversionProfile profile, File source, File targetDir) {
+    	try {
+    		File dir = targetDir!=null ? targetDir : source.getAbsoluteFile().getParentFile();
+    		ConverterResult dataOut = profile.convert(source,Misc.removeExtension(source.getName()));
+    		dataOut.write(dir);
+    		System.out.println("Converted "+source.getPath());
+    		return null;
+    	}
+    	catch (Exception e) {
+    		System.out.println("--> Failed to convert the file "+source.getPath()+"!");
+    		return e.getMessage()!=null ? e.getMessage() : e.toString();
+    	}
     }
-
 
     /**
      *  Display usage.
@@ -286,10 +558,16 @@ public final class Application {
         System.out.println("   -template[=]<template file>");
         System.out.println("   -stylesheet[=]<style sheet file>");
         System.out.println("   -resource[=]<resource file>[::<media type>]");
+        System.out.println("   -threads[=]<number of threads> (batch mode only)");
         System.out.println("   -cleanxhtml");
+        System.out.println("   -convertmetafiles");
+        System.out.println("   -stats");
+        System.out.println("   -reuseindex");
         System.out.println("   -config[=]<configuration file>");
         System.out.println("   -<configuration option>[=]<value>");
         System.out.println("See the documentation for the available configuration options");
+        System.out.println("The source may also be a directory, a file name pattern using *, ? and [...]");
+        System.out.println("or @<file> where <file> contains a list of source files (batch mode)");
     }
 
     /**
@@ -314,6 +592,9 @@ public final class Application {
                 else if ("-epub".equals(sArg)) { sTargetMIME = MIMETypes.EPUB; }
                 else if ("-epub3".equals(sArg)) { sTargetMIME = MIMETypes.EPUB3; }
                 else if ("-cleanxhtml".equals(sArg)) { configFileNames.add("*cleanxhtml.xml"); }
+                else if ("-convertmetafiles".equals(sArg)) { bConvertMetafiles = true; }
+                else if ("-stats".equals(sArg)) { bStatistics = true; }
+                else if ("-reuseindex".equals(sArg)) { bReuseIndex = true; }
                 else { // option with argument
                     int j=sArg.indexOf("=");
                     String sArg2;
@@ -328,6 +609,7 @@ public final class Application {
                     else if ("-template".equals(sArg)) { sTemplateFileName = sArg2; }
                     else if ("-stylesheet".equals(sArg)) { sStyleSheetFileName = sArg2; }
                     else if ("-resource".equals(sArg)) { resources.add(sArg2); }
+                    else if ("-threads".equals(sArg)) { nThreads = Misc.getPosInteger(sArg2,nThreads); }
                     else { // configuration option
                         options.put(sArg.substring(1),sArg2);
                     }
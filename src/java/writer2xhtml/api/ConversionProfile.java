@@ -0,0 +1,80 @@
+/************************************************************************
+ *
+ *  ConversionProfile.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+ 
+package writer2xhtml.api;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.IOException;
+
+/** A conversion profile is an immutable combination of a configuration, a template, a style sheet
+ *  and resources for a specific target format. It offers the same conversion methods as a
+ *  <code>Converter</code>, but each conversion uses a fresh converter, sharing the data of the profile.
+ *  Hence a conversion profile is thread safe, and can be used for any number of concurrent conversions.
+ *  Instances of this interface are created using <code>Converter.createProfile()</code>
+ */
+public interface ConversionProfile {
+
+    /** Convert a document
+     *
+     *  @param is an <code>InputStream</code> from which to read the source document.
+     *  @param sTargetFileName the file name to use for the converted document
+     *  (if the converted document is a compound document consisting consisting
+     *  of several files, this name will be used for the master document)
+     *  @return a <code>ConverterResult</code> containing the converted document
+     *  @throws IOException if some exception occurs while reading the document
+     */
+    public ConverterResult convert(InputStream is, String sTargetFileName)
+        throws IOException;
+
+    /** Convert a document
+     *
+     *  @param source a <code>File</code> from which to read the source document.
+     *  @param sTargetFileName the file name to use for the converted document
+     *  (if the converted document is a compound document consisting consisting
+     *  of several files, this name will be used for the master document)
+     *  @return a <code>ConverterResult</code> containing the converted document
+     *  @throws FileNotFoundException if the file does not exist
+     *  @throws IOException if some exception occurs while reading the document
+     */
+    public ConverterResult convert(File source, String sTargetFileName)
+        throws FileNotFoundException, IOException;
+    
+    /** Convert a document
+     * 
+     * @param dom a DOM tree representing the document as flat XML
+     * @param sTargetFileName the file name to use for the converted document
+     *  (if the converted document is a compound document consisting consisting
+     *  of several files, this name will be used for the master document)
+     *  @param bDestructive set to true if the converter is allowed to remove contents from the DOM tree (to save memory)
+     * @return a <code>ConverterResult</code> containing the converted document
+     * @throws IOException if some exception occurs while reading the document
+     */
+    public ConverterResult convert(org.w3c.dom.Document dom, String sTargetFileName, boolean bDestructive)
+    	throws IOException;
+
+}
@@ -0,0 +1,95 @@
+/************************************************************************
+ *
+ *  ConversionStatistics.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.api;
+
+/** Conversion statistics contain the time spent in each phase of a conversion and some counts describing
+ *  the source document and the result. Statistics are only collected if requested with
+ *  <code>Converter.setCollectStatistics</code>. The time spent writing the result and converting images
+ *  in the background is added when it happens, hence the statistics are only complete once the result
+ *  has been written with <code>ConverterResult.write</code>.
+ */
+public interface ConversionStatistics {
+	
+    /** The phases of a conversion */
+    public enum Phase {
+        /** Reading the package (opening the zip file or copying the input stream) */
+        READ,
+        /** Parsing the XML parts of the package */
+        PARSE,
+        /** Collecting styles and references from the document (the <code>OfficeReader</code> pre-pass) */
+        PRESCAN,
+        /** Converting the content */
+        CONVERT,
+        /** Post processing: Resolving links, generating headers, footers and panels and exporting styles */
+        POSTPROCESS,
+        /** Writing the result to files */
+        WRITE
+    }
+	
+    /** The counters */
+    public enum Counter {
+        /** The number of elements in the document body */
+        ELEMENTS,
+        /** The number of paragraphs and headings */
+        PARAGRAPHS,
+        /** The number of tables */
+        TABLES,
+        /** The number of images */
+        IMAGES,
+        /** The size of the source document in bytes (unknown if the source is a DOM tree) */
+        BYTES_IN,
+        /** The total size in bytes of the files written */
+        BYTES_OUT,
+        /** The number of files written */
+        FILES_OUT,
+        /** The number of images converted with the <code>GraphicConverter</code> */
+        IMAGE_CONVERSIONS,
+        /** The number of converted images found in the <code>ImageCache</code> */
+        IMAGE_CACHE_HITS,
+        /** The number of images which were not found in the <code>ImageCache</code> */
+        IMAGE_CACHE_MISSES,
+        /** The number of inherited style properties found in the style property cache */
+        STYLE_CACHE_HITS,
+        /** The number of inherited style properties which were not found in the style property cache */
+        STYLE_CACHE_MISSES
+    }
+	
+    /** Get the time spent in a phase of the conversion
+     * 
+     *  @param phase the phase
+     *  @return the time in nanoseconds
+     */
+    public long getTime(Phase phase);
+	
+    /** Get the value of a counter
+     * 
+     *  @param counter the counter
+     *  @return the value
+     */
+    public long getCount(Counter counter);
+
+}
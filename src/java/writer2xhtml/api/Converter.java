@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2014 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.4 (2014-08-28)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
  
@@ -30,11 +30,14 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 /** This is an interface for a converter, which offers conversion of
  *  OpenDocument (or OpenOffice.org 1.x) documents into a specific format.
  *  Instances of this interface are created using the
  *  <code>ConverterFactory</code>
+ *  A converter is not thread safe, but it can be used to create a thread safe
+ *  <code>ConversionProfile</code>
  */
 public interface Converter {
 
@@ -52,6 +55,45 @@ public interface Converter {
      */
     public void setGraphicConverter(GraphicConverter gc);
 
+    /** Define an <code>ImageCache</code> to use for graphic conversions. Images
+     *  are looked up in the cache before they are converted with the <code>GraphicConverter</code>,
+     *  and the converted images are stored in the cache. The same cache may be used by several
+     *  converters. If no cache is specified, images are converted each time they are used.
+     *
+     *  @param cache the <code>ImageCache</code> to use, or null to use no cache
+     */
+    public void setImageCache(ImageCache cache);
+
+    /** Define an <code>Executor</code> to use for graphic conversions. The images
+     *  are then converted in the background while the conversion of the document continues,
+     *  and the converter result will wait for the images when the files are written.
+     *  The same executor may be used by several converters, but the <code>GraphicConverter</code>
+     *  must be thread safe. If no executor is specified, images are converted immediately. The file name of an
+     *  image is decided before the conversion is done, hence an image which cannot be converted is included in
+     *  the original format using the file name and MIME type of the target format.
+     *
+     *  @param executor the <code>Executor</code> to use, or null to convert images immediately
+     */
+    public void setImageExecutor(Executor executor);
+
+    /** Define whether to collect statistics for the conversions. The statistics (time spent in each phase
+     *  of the conversion and counts of elements, images etc.) are then available from the
+     *  <code>ConverterResult</code>, and the totals for all conversions are available from the
+     *  JMX bean <code>writer2xhtml:type=ConversionMonitor</code>. The default is not to collect statistics.
+     *
+     *  @param bCollect true if statistics should be collected
+     */
+    public void setCollectStatistics(boolean bCollect);
+
+    /** Define whether to reuse the index of references, bookmarks, sequences and links in the source document.
+     *  If so, the index is stored in a file next to the source document (the name of the source file with the
+     *  extension .w2xindex added), and is read from this file when the same version of the document is
+     *  converted again. This only applies to conversions of files. The default is not to reuse the index.
+     *
+     *  @param bReuse true if the index should be reused
+     */
+    public void setReuseDocumentIndex(boolean bReuse);
+
     /** Read a template to use as a base for the converted document.
      *  The format of the template depends on the <code>Converter</code>
      *  implementation.
@@ -150,5 +192,14 @@ public interface Converter {
      */
     public ConverterResult convert(org.w3c.dom.Document dom, String sTargetFileName, boolean bDestructive)
     	throws IOException;
+    
+    /** Create a conversion profile from the current configuration, template, style sheet,
+     *  resources, graphic converter, image cache, image executor and statistics setting of this converter. Later changes to this converter
+     *  do not affect the profile. Note that the graphic converter (if any) will be shared
+     *  by all conversions using the profile, and hence must be thread safe.
+     *
+     *  @return the conversion profile
+     */
+    public ConversionProfile createProfile();
 
 }
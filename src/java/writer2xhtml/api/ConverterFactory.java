@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-08-08)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
  
@@ -90,5 +90,36 @@ public class ConverterFactory {
         }
         return null;
     }
+    
+    /** Create a <code>GraphicConverter</code> implementation which converts metafiles (SVM, WMF and EMF)
+     *  to SVG or PNG. The converter is thread safe, and hence it may be shared by several converters.
+     * 
+     *  @return the graphic converter
+     */
+    public static GraphicConverter createGraphicConverter() {
+    	return new writer2xhtml.base.MetafileConverter();
+    }
+    
+    /** Create an <code>ImageCache</code> implementation which keeps the converted images in memory.
+     *  When the total size of the images exceeds the limit, the least recently used images are removed.
+     * 
+     *  @param nMaxSize the maximum total size in bytes of the images kept in memory
+     *  @return the image cache
+     */
+    public static ImageCache createImageCache(long nMaxSize) {
+    	return new writer2xhtml.base.ImageCacheImpl(nMaxSize);
+    }
+	
+    /** Create an <code>ImageCache</code> implementation which keeps the converted images in memory and
+     *  stores them as files in a directory. The files are used if an image is not in memory, and hence the
+     *  directory may be used to share converted images between processes and program runs.
+     * 
+     *  @param nMaxSize the maximum total size in bytes of the images kept in memory
+     *  @param cacheDir the directory to use
+     *  @return the image cache
+     */
+    public static ImageCache createImageCache(long nMaxSize, java.io.File cacheDir) {
+    	return new writer2xhtml.base.ImageCacheImpl(nMaxSize,cacheDir);
+    }
 	
 }
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2022 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2022-06-23)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
  
@@ -123,6 +123,13 @@ public interface ConverterResult {
      */
     public List<ContentEntry> getOriginalPageNumbers();    
     
+    /** Get the statistics for the conversion which produced this <code>ConverterResult</code>.
+     *  The time spent writing the files is added when they are written with {@link #write(File)}.
+     * 
+     *  @return the statistics, or null if the converter did not collect statistics
+     */
+    public ConversionStatistics getStatistics();
+    
     /** Write all files of the <code>ConverterResult</code> to a directory.
      *  Subdirectories are created as required by the individual
      *  <code>OutputFile</code>s.
@@ -0,0 +1,71 @@
+/************************************************************************
+ *
+ *  ImageCache.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.api;
+
+/** An image cache stores the result of graphic conversions, such that an image which is used in
+ *  several documents is only converted once. The cache is consulted before the <code>GraphicConverter</code>
+ *  is invoked. The same cache may be shared by several converters, hence the implementation must be thread safe.
+ */
+public interface ImageCache {
+	
+    /** Get a converted image from the cache
+     * 
+     *  @param sKey the key identifying the source image and the target format. The key
+     *  consists of lower case letters, digits and periods only.
+     *  @return a byte array containing the converted image, or null if the image is not in the cache.
+     *  The caller must not modify the byte array.
+     */
+    public byte[] get(String sKey);
+	
+    /** Store a converted image in the cache
+     * 
+     *  @param sKey the key identifying the source image and the target format
+     *  @param data a byte array containing the converted image. The cache may keep a reference to the
+     *  byte array, hence it must not be modified afterwards.
+     */
+    public void put(String sKey, byte[] data);
+    
+    /** Get the number of requests which were answered from the cache
+     * 
+     *  @return the number of cache hits
+     */
+    public long getHits();
+
+    /** Get the number of requests for images not in the cache
+     * 
+     *  @return the number of cache misses
+     */
+    public long getMisses();
+
+    /** Get the total size of the images returned from the cache, ie. the amount of data that did
+     *  not need to be converted again
+     * 
+     *  @return the number of bytes
+     */
+    public long getBytesSaved();
+
+}
@@ -16,20 +16,19 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2018 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.6 (2018-03-06)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.base;
 
+import java.text.CollationKey;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -126,31 +125,33 @@ public abstract class BibliographyGenerator {
 			}
 			
 			// Sort the list
-			Comparator<Element> comparator = new StringComparator<Element>(
+			final int nCount = sortKeys.size();
+			final String[] sAttributes = new String[nCount];
+			final boolean[] bAscending = new boolean[nCount];
+			for (int i=0; i<nCount; i++) {
+				sAttributes[i] = "text:"+sortKeys.get(i);
+				bAscending[i] = sortAscending.get(i);
+			}
+			new StringComparator<Element>(
 					Misc.getAttribute(bibConfig,XMLString.FO_LANGUAGE),
 	        		Misc.getAttribute(bibConfig, XMLString.FO_COUNTRY)) {
-				private List<String> sortKeys = null;
-				private List<Boolean> sortAscending = null;
 				
-				Comparator<Element> setSortKeys(List<String> sortKeys, List<Boolean> sortAscending) {
-					this.sortKeys = sortKeys;
-					this.sortAscending = sortAscending;
-					return this;
+				protected String[] getStrings(Element bibMark) {
+					String[] sWords = new String[nCount];
+					for (int i=0; i<nCount; i++) {
+						sWords[i] = bibMark.getAttribute(sAttributes[i]);
+					}
+					return sWords;
 				}
 				
-				public int compare(Element a, Element b) {
-					int nCount = sortKeys.size();
+				protected int compareKeys(CollationKey[] a, CollationKey[] b) {
 					for (int i=0; i<nCount; i++) {
-						String sWorda = a.getAttribute("text:"+sortKeys.get(i));
-						String sWordb = b.getAttribute("text:"+sortKeys.get(i));
-						int nCompare = getCollator().compare(sWorda, sWordb)*(sortAscending.get(i) ? 1 : -1);
+						int nCompare = a[i].compareTo(b[i])*(bAscending[i] ? 1 : -1);
 						if (nCompare!=0) { return nCompare; }
 					}
 					return 0;
 				}
-			}.setSortKeys(sortKeys, sortAscending);
-			
-			Collections.sort(bibMarkList, comparator);
+			}.sort(bibMarkList);
 		}
 	}
 	
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2022 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2022-06-07)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -28,6 +28,8 @@ package writer2xhtml.base;
 
 import java.io.OutputStream;
 import java.util.Base64;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import writer2xhtml.api.OutputFile;
 
@@ -56,6 +58,9 @@ public class BinaryGraphicsDocument implements OutputFile {
     // Alternative data for base64 encoded data
     private String sBase64 = null;
     
+    // The data for an image which is being converted in the background
+    private Future<byte[]> pendingData = null;
+    
     /**Constructs a new graphics document.
      * Until data is added using the <code>read</code> methods, the document is considered a link to
      * the image given by the file name.
@@ -115,11 +120,50 @@ public class BinaryGraphicsDocument implements OutputFile {
         this.bAcceptedFormat = bIsAcceptedFormat;
     }
     
+    /** Set image contents to the result of a conversion in the background. The data is
+     *  not available until the conversion is done, and any request for the data will wait for this.
+     *  If the conversion fails, the original data is used (the file name and MIME type are not changed).
+     * 
+     * @param pendingData the future result of the conversion
+     * @param originalData the original image data
+     * @param bIsAcceptedFormat flag to indicate that the format of the converted image is acceptable for the converter
+     */
+    public void setData(Future<byte[]> pendingData, byte[] originalData, boolean bIsAcceptedFormat) {
+    	setData(originalData,bIsAcceptedFormat);
+    	this.pendingData = pendingData;
+    }
+    
+    // Wait for the conversion in the background, if any. This happens once, when the data is first requested
+    private void resolve() {
+    	if (pendingData!=null) {
+    		byte[] data = null;
+    		try {
+    			data = pendingData.get();
+    		}
+    		catch (ExecutionException e) {
+    			// The conversion failed
+    		}
+    		catch (InterruptedException e) {
+    			// Use the original data, but keep the interrupt status
+    			Thread.currentThread().interrupt();
+    		}
+    		if (data!=null) {
+    			setData(data,bAcceptedFormat);
+    		}
+    		else {
+    			// Keep the original data
+    			bAcceptedFormat = false;
+    		}
+    		pendingData = null;
+    	}
+    }
+    
     /** Convert image contents to a base64 encoded string
      * 
      * @param sBase64 the data
      */
     public void convertToBase64() {
+    	resolve();
     	sBase64 = Base64.getEncoder().encodeToString(this.blob);
     	this.blob = null;
     }
@@ -145,6 +189,7 @@ public class BinaryGraphicsDocument implements OutputFile {
      * @return the image data as a byte array - or null if this is a linked image
      */
     public byte[] getData() {
+    	resolve();
     	return blob;
     }
     
@@ -166,6 +211,7 @@ public class BinaryGraphicsDocument implements OutputFile {
      * @throws  IOException  If any I/O error occurs.
      */
     public void write(OutputStream os) throws IOException {
+    	resolve();
     	if (blob!=null) {
     		os.write(blob, nOff, nLen);
     	}
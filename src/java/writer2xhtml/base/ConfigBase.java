@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-08-01)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -90,6 +90,22 @@ public abstract class ConfigBase implements writer2xhtml.api.Config {
    		return optionGroups.get(sGroup);
     }
     
+    /** Copy all options and option groups from another configuration of the same type.
+     *  The subclass may use this to create a copy constructor
+     * 
+     *  @param config the configuration to copy
+     */
+    protected void copy(ConfigBase config) {
+    	for (int j=0; j<getOptionCount(); j++) {
+    		options[j].setString(config.options[j].getString());
+    	}
+    	for (String sGroup : optionGroups.keySet()) {
+    		ComplexOption group = optionGroups.get(sGroup);
+    		group.clear();
+    		group.copyAll(config.optionGroups.get(sGroup));
+    	}
+    }
+    
 	// The subclass may use this method to define option groups
 	protected ComplexOption addComplexOption(String sGroup) {
 		optionGroups.put(sGroup, new ComplexOption());
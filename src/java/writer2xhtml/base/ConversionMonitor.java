@@ -0,0 +1,200 @@
+/************************************************************************
+ *
+ *  ConversionMonitor.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import writer2xhtml.api.ConversionStatistics;
+
+/** This class collects the totals of the statistics of all conversions in this JVM. There is a single
+ *  instance, which is registered with the platform MBean server as <code>writer2xhtml:type=ConversionMonitor</code>
+ *  when the first conversion collects statistics.
+ */
+public final class ConversionMonitor implements ConversionMonitorMBean, ConversionStatistics {
+	
+    /** The name of the MBean */
+    public static final String OBJECT_NAME = "writer2xhtml:type=ConversionMonitor";
+	
+    private static ConversionMonitor instance = null;
+	
+    private final AtomicLong nConversions = new AtomicLong();
+    private final AtomicLongArray times = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray counts = new AtomicLongArray(Counter.values().length);
+	
+    private ConversionMonitor() {
+    }
+	
+    /** Get the monitor, creating and registering it if needed
+     * 
+     * @return the monitor
+     */
+    public static synchronized ConversionMonitor getInstance() {
+        if (instance==null) {
+            instance = new ConversionMonitor();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+            }
+            catch (JMException e) {
+                // Another copy of Writer2xhtml may have registered already; the totals are still collected
+            }
+            catch (SecurityException e) {
+                // We are not allowed to register; the totals are still collected
+            }
+        }
+        return instance;
+    }
+	
+    void addConversion() {
+        nConversions.incrementAndGet();
+    }
+	
+    void addTime(Phase phase, long nTime) {
+        times.addAndGet(phase.ordinal(), nTime);
+    }
+	
+    void add(Counter counter, long nCount) {
+        counts.addAndGet(counter.ordinal(), nCount);
+    }
+	
+    // Implement ConversionStatistics
+
+    public long getTime(Phase phase) {
+        return times.get(phase.ordinal());
+    }
+
+    public long getCount(Counter counter) {
+        return counts.get(counter.ordinal());
+    }
+	
+    @Override public String toString() {
+        return ConversionStatisticsImpl.format(this);
+    }
+	
+    // Implement ConversionMonitorMBean
+
+    public long getConversionCount() {
+        return nConversions.get();
+    }
+
+    public double getReadTime() {
+        return getMillis(Phase.READ);
+    }
+
+    public double getParseTime() {
+        return getMillis(Phase.PARSE);
+    }
+
+    public double getPrescanTime() {
+        return getMillis(Phase.PRESCAN);
+    }
+
+    public double getConvertTime() {
+        return getMillis(Phase.CONVERT);
+    }
+
+    public double getPostprocessTime() {
+        return getMillis(Phase.POSTPROCESS);
+    }
+
+    public double getWriteTime() {
+        return getMillis(Phase.WRITE);
+    }
+
+    public double getTotalTime() {
+        long nTotal = 0;
+        for (Phase phase : Phase.values()) {
+            nTotal += getTime(phase);
+        }
+        return ConversionStatisticsImpl.toMillis(nTotal);
+    }
+
+    public long getElementCount() {
+        return getCount(Counter.ELEMENTS);
+    }
+
+    public long getParagraphCount() {
+        return getCount(Counter.PARAGRAPHS);
+    }
+
+    public long getTableCount() {
+        return getCount(Counter.TABLES);
+    }
+
+    public long getImageCount() {
+        return getCount(Counter.IMAGES);
+    }
+
+    public long getBytesIn() {
+        return getCount(Counter.BYTES_IN);
+    }
+
+    public long getBytesOut() {
+        return getCount(Counter.BYTES_OUT);
+    }
+
+    public long getFilesOut() {
+        return getCount(Counter.FILES_OUT);
+    }
+
+    public long getImageConversions() {
+        return getCount(Counter.IMAGE_CONVERSIONS);
+    }
+
+    public double getImageCacheHitRate() {
+        return getRate(Counter.IMAGE_CACHE_HITS, Counter.IMAGE_CACHE_MISSES);
+    }
+
+    public double getStyleCacheHitRate() {
+        return getRate(Counter.STYLE_CACHE_HITS, Counter.STYLE_CACHE_MISSES);
+    }
+
+    public void reset() {
+        nConversions.set(0);
+        for (int i=0; i<times.length(); i++) {
+            times.set(i, 0);
+        }
+        for (int i=0; i<counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+	
+    private double getMillis(Phase phase) {
+        return ConversionStatisticsImpl.toMillis(getTime(phase));
+    }
+	
+    private double getRate(Counter hits, Counter misses) {
+        long nHits = getCount(hits);
+        long nTotal = nHits+getCount(misses);
+        return nTotal>0 ? nHits/(double) nTotal : 0;
+    }
+
+}
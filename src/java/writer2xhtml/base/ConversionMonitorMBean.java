@@ -0,0 +1,91 @@
+/************************************************************************
+ *
+ *  ConversionMonitorMBean.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+/** The management interface of <code>ConversionMonitor</code>. Times are in milliseconds, and all values are
+ *  totals for the conversions which collected statistics since the monitor was created or reset.
+ */
+public interface ConversionMonitorMBean {
+	
+    /** @return the number of conversions */
+    public long getConversionCount();
+	
+    /** @return the time spent reading packages */
+    public double getReadTime();
+	
+    /** @return the time spent parsing XML */
+    public double getParseTime();
+	
+    /** @return the time spent in the <code>OfficeReader</code> pre-pass */
+    public double getPrescanTime();
+	
+    /** @return the time spent converting content */
+    public double getConvertTime();
+	
+    /** @return the time spent post processing */
+    public double getPostprocessTime();
+	
+    /** @return the time spent writing files */
+    public double getWriteTime();
+	
+    /** @return the total time of all phases */
+    public double getTotalTime();
+	
+    /** @return the number of elements in the source documents */
+    public long getElementCount();
+	
+    /** @return the number of paragraphs and headings in the source documents */
+    public long getParagraphCount();
+	
+    /** @return the number of tables in the source documents */
+    public long getTableCount();
+	
+    /** @return the number of images in the source documents */
+    public long getImageCount();
+	
+    /** @return the size of the source documents in bytes */
+    public long getBytesIn();
+	
+    /** @return the size of the files written in bytes */
+    public long getBytesOut();
+	
+    /** @return the number of files written */
+    public long getFilesOut();
+	
+    /** @return the number of images converted with a graphic converter */
+    public long getImageConversions();
+	
+    /** @return the fraction of image cache lookups which were hits (0 if there were no lookups) */
+    public double getImageCacheHitRate();
+	
+    /** @return the fraction of inherited style property lookups which were hits (0 if there were no lookups) */
+    public double getStyleCacheHitRate();
+	
+    /** Reset all values to zero */
+    public void reset();
+
+}
@@ -0,0 +1,135 @@
+/************************************************************************
+ *
+ *  ConversionStatisticsImpl.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import writer2xhtml.api.ConversionStatistics;
+
+/** This class collects the statistics for a single conversion. The phases are timed by the converting thread,
+ *  while times and counts may be added from any thread (e.g. by background image conversions). All values
+ *  are also added to the totals in the <code>ConversionMonitor</code>.
+ */
+public final class ConversionStatisticsImpl implements ConversionStatistics {
+	
+    private final ConversionMonitor monitor;
+    private final AtomicLongArray times = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray counts = new AtomicLongArray(Counter.values().length);
+	
+    // The current phase and its start time (only used by the converting thread)
+    private Phase currentPhase;
+    private long nPhaseStart;
+	
+    /** Create a new <code>ConversionStatisticsImpl</code> and start the first phase (READ)
+     */
+    public ConversionStatisticsImpl() {
+        monitor = ConversionMonitor.getInstance();
+        monitor.addConversion();
+        currentPhase = Phase.READ;
+        nPhaseStart = System.nanoTime();
+    }
+	
+    /** End the current phase (if any) and start a new phase
+     * 
+     * @param phase the new phase, or null to stop timing
+     */
+    public void enter(Phase phase) {
+        long nNow = System.nanoTime();
+        if (currentPhase!=null) {
+            addTime(currentPhase, nNow-nPhaseStart);
+        }
+        currentPhase = phase;
+        nPhaseStart = nNow;
+    }
+	
+    /** Add time to a phase
+     * 
+     * @param phase the phase
+     * @param nTime the time in nanoseconds (may be negative to move time to another phase)
+     */
+    public void addTime(Phase phase, long nTime) {
+        times.addAndGet(phase.ordinal(), nTime);
+        monitor.addTime(phase, nTime);
+    }
+	
+    /** Add to a counter
+     * 
+     * @param counter the counter
+     * @param nCount the value to add
+     */
+    public void add(Counter counter, long nCount) {
+        counts.addAndGet(counter.ordinal(), nCount);
+        monitor.add(counter, nCount);
+    }
+
+    public long getTime(Phase phase) {
+        return times.get(phase.ordinal());
+    }
+
+    public long getCount(Counter counter) {
+        return counts.get(counter.ordinal());
+    }
+	
+    @Override public String toString() {
+        return format(this);
+    }
+	
+    /** Format statistics for display, with times in milliseconds and one line for times and one line for counts
+     * 
+     * @param statistics the statistics to format
+     * @return the formatted statistics
+     */
+    static String format(ConversionStatistics statistics) {
+        StringBuilder buf = new StringBuilder("Time (ms):");
+        long nTotal = 0;
+        for (Phase phase : Phase.values()) {
+            long nTime = statistics.getTime(phase);
+            nTotal += nTime;
+            buf.append(' ').append(getName(phase)).append(' ').append(toMillis(nTime)).append(',');
+        }
+        buf.append(" total ").append(toMillis(nTotal)).append('\n').append("Counts:");
+        for (Counter counter : Counter.values()) {
+            if (counter.ordinal()>0) { buf.append(','); }
+            buf.append(' ').append(getName(counter)).append(' ').append(statistics.getCount(counter));
+        }
+        return buf.toString();
+    }
+	
+    /** Convert nanoseconds to milliseconds, rounded to one decimal
+     * 
+     * @param nTime the time in nanoseconds
+     * @return the time in milliseconds
+     */
+    static double toMillis(long nTime) {
+        return Math.round(nTime/100000.0)/10.0;
+    }
+	
+    private static String getName(Enum<?> e) {
+        return e.name().toLowerCase().replace('_', ' ');
+    }
+
+}
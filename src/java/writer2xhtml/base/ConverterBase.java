@@ -16,28 +16,32 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2018 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.6.1 (2018-08-10)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.base;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.InputStream;
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 import org.w3c.dom.Element;
 
+import writer2xhtml.api.ConversionStatistics;
 import writer2xhtml.api.Converter;
 import writer2xhtml.api.ConverterResult;
 import writer2xhtml.api.GraphicConverter;
+import writer2xhtml.api.ImageCache;
 import writer2xhtml.api.OutputFile;
+import writer2xhtml.office.DocumentIndex;
 import writer2xhtml.office.EmbeddedObject;
 import writer2xhtml.office.MetaData;
 import writer2xhtml.office.OfficeDocument;
@@ -53,12 +57,17 @@ public abstract class ConverterBase implements Converter {
 
     // Helper	
     protected GraphicConverter graphicConverter;
+    protected ImageCache imageCache = null;
+    protected Executor imageExecutor = null;
+    protected boolean bCollectStatistics = false;
+    protected boolean bReuseDocumentIndex = false;
 
     // The source document
     protected OfficeDocument odDoc;
     protected OfficeReader ofr;
     protected MetaData metaData;
     protected ImageConverter imageConverter;
+    protected ConversionStatisticsImpl statistics;
 
     // The output file(s)
     protected String sTargetFileName;
@@ -75,6 +84,26 @@ public abstract class ConverterBase implements Converter {
         this.graphicConverter = graphicConverter;
     }
 	
+    // Implement the interface
+    public void setImageCache(ImageCache imageCache) {
+        this.imageCache = imageCache;
+    }
+	
+    // Implement the interface
+    public void setImageExecutor(Executor imageExecutor) {
+        this.imageExecutor = imageExecutor;
+    }
+	
+    // Implement the interface
+    public void setCollectStatistics(boolean bCollect) {
+        this.bCollectStatistics = bCollect;
+    }
+	
+    // Implement the interface
+    public void setReuseDocumentIndex(boolean bReuse) {
+        this.bReuseDocumentIndex = bReuse;
+    }
+	
     // Provide a do noting fallback method
     public void readTemplate(InputStream is) throws IOException { }
 	
@@ -94,45 +123,104 @@ public abstract class ConverterBase implements Converter {
     public void readResource(File file, String sFileName, String sMediaType) throws IOException { }
 
     public ConverterResult convert(File source, String sTargetFileName) throws FileNotFoundException,IOException {
-        return convert(new FileInputStream(source), sTargetFileName);
+        if (!source.isFile()) {
+            throw new FileNotFoundException(source.getPath());
+        }
+        // Read document (embedded objects are read from the file on demand)
+        statistics = bCollectStatistics ? new ConversionStatisticsImpl() : null;
+        if (statistics!=null) {
+            statistics.add(ConversionStatistics.Counter.BYTES_IN, source.length());
+        }
+        odDoc = new OfficeDocument();
+        odDoc.read(source);
+        if (bReuseDocumentIndex) {
+            // Use the stored index if it matches the document, otherwise store the index collected by the reader
+            DocumentIndex index = DocumentIndex.read(source);
+            ConverterResult result = convert(sTargetFileName,true,index);
+            if (index==null) {
+                ofr.getDocumentIndex().write(source);
+            }
+            return result;
+        }
+        return convert(sTargetFileName,true,null);
     }
 
     public ConverterResult convert(InputStream is, String sTargetFileName) throws IOException {
         // Read document
+        statistics = bCollectStatistics ? new ConversionStatisticsImpl() : null;
         odDoc = new OfficeDocument();
-        odDoc.read(is);
-        return convert(sTargetFileName,true);
+        odDoc.read(statistics!=null ? new CountingInputStream(is,statistics) : is);
+        return convert(sTargetFileName,true,null);
     }
     
     public ConverterResult convert(org.w3c.dom.Document dom, String sTargetFileName, boolean bDestructive) throws IOException {
     	// Read document
+        statistics = bCollectStatistics ? new ConversionStatisticsImpl() : null;
     	odDoc = new OfficeDocument();
     	odDoc.read(dom);
-    	return convert(sTargetFileName,bDestructive);
+    	return convert(sTargetFileName,bDestructive,null);
     }
     
-    private ConverterResult convert(String sTargetFileName, boolean bDestructive) throws IOException {
-        ofr = new OfficeReader(odDoc,false,bDestructive);
-        metaData = new MetaData(odDoc);
-        imageConverter = new ImageConverter(ofr,bDestructive,true);
-        imageConverter.setGraphicConverter(graphicConverter);
-
-        // Prepare output
-        this.sTargetFileName = sTargetFileName;
-        converterResult.reset();
+    private ConverterResult convert(String sTargetFileName, boolean bDestructive, DocumentIndex index)
+            throws IOException {
+        if (statistics!=null) {
+            // The time spent parsing XML is measured by the document itself
+            statistics.enter(ConversionStatistics.Phase.PRESCAN);
+            statistics.addTime(ConversionStatistics.Phase.READ, -odDoc.getParseTime());
+            statistics.addTime(ConversionStatistics.Phase.PARSE, odDoc.getParseTime());
+        }
+        try {
+            ofr = new OfficeReader(odDoc,false,bDestructive,index);
+            metaData = new MetaData(odDoc);
+            imageConverter = new ImageConverter(ofr,bDestructive,true);
+            imageConverter.setGraphicConverter(graphicConverter);
+            imageConverter.setImageCache(imageCache);
+            imageConverter.setExecutor(imageExecutor);
+            imageConverter.setStatistics(statistics);
+
+            // Prepare output
+            this.sTargetFileName = sTargetFileName;
+            converterResult.reset();
         
-        converterResult.setMetaData(metaData);
-        if (metaData.getLanguage()==null || metaData.getLanguage().length()==0) {
-        	metaData.setLanguage(ofr.getMajorityLanguage());
+            converterResult.setMetaData(metaData);
+            if (metaData.getLanguage()==null || metaData.getLanguage().length()==0) {
+            	metaData.setLanguage(ofr.getMajorityLanguage());
+            }
+
+            enterPhase(ConversionStatistics.Phase.CONVERT);
+            convertInner();
+        }
+        finally {
+            // Release the source package, all embedded objects needed has been read at this point
+            // (also if the conversion fails, so that the temporary file, if any, is deleted)
+            odDoc.close();
         }
-		
-        convertInner();
         
+        if (statistics!=null) {
+            statistics.enter(null);
+            statistics.add(ConversionStatistics.Counter.ELEMENTS, ofr.getElementCount());
+            statistics.add(ConversionStatistics.Counter.PARAGRAPHS, ofr.getParagraphCount());
+            statistics.add(ConversionStatistics.Counter.TABLES, ofr.getTableCount());
+            statistics.add(ConversionStatistics.Counter.IMAGES, ofr.getImageCount());
+            statistics.add(ConversionStatistics.Counter.STYLE_CACHE_HITS, ofr.getPropertyCacheHits());
+            statistics.add(ConversionStatistics.Counter.STYLE_CACHE_MISSES, ofr.getPropertyCacheMisses());
+            converterResult.setStatistics(statistics);
+        }
         return converterResult;
     }
 	
     // The subclass must provide the implementation
     public abstract void convertInner() throws IOException;
+    
+    /** Start a new phase of the conversion, if statistics are collected
+     * 
+     * @param phase the phase
+     */
+    protected void enterPhase(ConversionStatistics.Phase phase) {
+        if (statistics!=null) {
+            statistics.enter(phase);
+        }
+    }
 
     public MetaData getMetaData() { return metaData; }
     
@@ -182,4 +270,32 @@ public abstract class ConverterBase implements Converter {
    		}
     }
 
+    // An input stream which counts the bytes read
+    private static class CountingInputStream extends FilterInputStream {
+        private final ConversionStatisticsImpl statistics;
+    	
+        private CountingInputStream(InputStream is, ConversionStatisticsImpl statistics) {
+            super(is);
+            this.statistics = statistics;
+        }
+    	
+        @Override public int read() throws IOException {
+            int n = super.read();
+            if (n>=0) { statistics.add(ConversionStatistics.Counter.BYTES_IN, 1); }
+            return n;
+        }
+    	
+        @Override public int read(byte[] b, int nOff, int nLen) throws IOException {
+            int n = super.read(b, nOff, nLen);
+            if (n>0) { statistics.add(ConversionStatistics.Counter.BYTES_IN, n); }
+            return n;
+        }
+    	
+        @Override public long skip(long n) throws IOException {
+            long nSkipped = super.skip(n);
+            statistics.add(ConversionStatistics.Counter.BYTES_IN, nSkipped);
+            return nSkipped;
+        }
+    }
+
 }
\ No newline at end of file
@@ -16,11 +16,11 @@
 *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
 *  MA  02111-1307  USA
 *
-*  Copyright: 2002-2022 by Henrik Just
+*  Copyright: 2002-2026 by Henrik Just
 *
 *  All Rights Reserved.
 * 
-*  Version 1.7 (2022-06-24)
+*  Version 1.7.2 (2026-10-18)
 *
 */ 
 
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Vector;
 
 import writer2xhtml.api.ContentEntry;
+import writer2xhtml.api.ConversionStatistics;
 import writer2xhtml.api.ConverterResult;
 import writer2xhtml.api.MetaData;
 import writer2xhtml.api.OutputFile;
@@ -60,6 +61,8 @@ public class ConverterResultImpl implements ConverterResult {
 	
 	private MetaData metaData = null;
 	
+	private ConversionStatisticsImpl statistics = null;
+	
 	private int nMasterCount;
 	
 	/** Construct a new <code>ConverterResultImpl</code> with empty content
@@ -84,6 +87,7 @@ public class ConverterResultImpl implements ConverterResult {
         coverImageFile = null;
         originalPageNumbers = new Vector<ContentEntry>();
         metaData = null;
+        statistics = null;
         nMasterCount = 0;
 	}
 
@@ -275,12 +279,25 @@ public class ConverterResultImpl implements ConverterResult {
 		return metaData;
 	}
     
+    /** Set the statistics of this <code>ConverterResult</code>
+     * 
+     *  @param statistics the statistics, or null if statistics are not collected
+     */
+    public void setStatistics(ConversionStatisticsImpl statistics) {
+    	this.statistics = statistics;
+    }
+    
+    public ConversionStatistics getStatistics() {
+    	return statistics;
+    }
+    
     /** Write all files to a given directory
      * 
      *  @param dir the directory to use
      */
     public void write(File dir) throws IOException {
         if (dir!=null && !dir.exists()) throw new IOException("Directory does not exist");
+        long nStart = System.nanoTime();
         Iterator<OutputFile> docEnum = iterator();
         while (docEnum.hasNext()) {
             OutputFile docOut = docEnum.next();
@@ -299,8 +316,14 @@ public class ConverterResultImpl implements ConverterResult {
             docOut.write(fos);
             fos.flush();
             fos.close();
+            if (statistics!=null) {
+                statistics.add(ConversionStatistics.Counter.BYTES_OUT, outfile.length());
+                statistics.add(ConversionStatistics.Counter.FILES_OUT, 1);
+            }
+        }
+        if (statistics!=null) {
+            statistics.addTime(ConversionStatistics.Phase.WRITE, System.nanoTime()-nStart);
         }
-
     }
 }
 
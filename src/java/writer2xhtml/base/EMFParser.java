@@ -0,0 +1,532 @@
+/************************************************************************
+ *
+ *  EMFParser.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.util.HashMap;
+import java.util.Map;
+
+/** This class parses an enhanced metafile (EMF). The picture frame from the header defines the size of the
+ *  picture. EMF+ records (embedded in comments) are ignored, hence dual EMF+ files are rendered using
+ *  the EMF records. Clipping, raster operations and pattern brushes are not supported (pattern brushes are
+ *  replaced by gray).
+ */
+final class EMFParser extends MetafileParser {
+	
+    private static final int EMF_SIGNATURE = 0x464D4520;
+	
+    // The transformation from device units to pixels
+    private AffineTransform deviceTransform;
+    // The number of device units per millimeter
+    private double fDeviceX;
+    private double fDeviceY;
+	
+    // The object table
+    private Map<Integer,Object> objects = new HashMap<Integer,Object>();
+	
+    // The last path completed by EndPath
+    private Path2D completedPath = null;
+	
+    EMFParser(byte[] data) {
+        super(data);
+    }
+	
+    @Override Metafile parse() {
+        if (data.length<88) { return null; }
+        nPos = 0;
+        if (s32()!=1) { return null; }
+        int nHeaderSize = s32();
+        nPos = 24;
+        int nFrameLeft = s32();
+        int nFrameTop = s32();
+        int nFrameRight = s32();
+        int nFrameBottom = s32();
+        if (s32()!=EMF_SIGNATURE) { return null; }
+        nPos = 72;
+        int nDeviceWidth = s32();
+        int nDeviceHeight = s32();
+        int nMillimetersWidth = s32();
+        int nMillimetersHeight = s32();
+        if (nDeviceWidth<=0 || nDeviceHeight<=0 || nMillimetersWidth<=0 || nMillimetersHeight<=0) { return null; }
+        fDeviceX = nDeviceWidth/(double) nMillimetersWidth;
+        fDeviceY = nDeviceHeight/(double) nMillimetersHeight;
+		
+        // The frame is given in 0.01 mm
+        double fWidth = Math.abs(nFrameRight-nFrameLeft)*96/2540.0;
+        double fHeight = Math.abs(nFrameBottom-nFrameTop)*96/2540.0;
+        deviceTransform = new AffineTransform();
+        deviceTransform.scale(96/25.4/fDeviceX, 96/25.4/fDeviceY);
+        deviceTransform.translate(-Math.min(nFrameLeft, nFrameRight)*fDeviceX/100, -Math.min(nFrameTop, nFrameBottom)*fDeviceY/100);
+        updateTransform();
+        metafile = new Metafile(fWidth, fHeight);
+		
+        nPos = nHeaderSize;
+        while (nPos+8<=data.length) {
+            int nRecordStart = nPos;
+            int nType = s32();
+            long nSize = s32() & 0xFFFFFFFFL;
+            if (nType==14 || nSize<8 || nRecordStart+nSize>data.length) { break; } // EMR_EOF
+            int nEnd = (int) (nRecordStart+nSize);
+            nRecordEnd = nEnd;
+            try {
+                record(nType, nRecordStart, nEnd);
+            }
+            catch (DamagedRecordException e) {
+                // Skip the record
+            }
+            nPos = nEnd;
+        }
+        return metafile;
+    }
+	
+    @Override void updateTransform() {
+        // The page transformation from world coordinates to device units
+        double fScaleX;
+        double fScaleY;
+        switch (state.nMapMode) {
+        case 2: fScaleX = 0.1*fDeviceX; fScaleY = -0.1*fDeviceY; break; // MM_LOMETRIC
+        case 3: fScaleX = 0.01*fDeviceX; fScaleY = -0.01*fDeviceY; break; // MM_HIMETRIC
+        case 4: fScaleX = 0.254*fDeviceX; fScaleY = -0.254*fDeviceY; break; // MM_LOENGLISH
+        case 5: fScaleX = 0.0254*fDeviceX; fScaleY = -0.0254*fDeviceY; break; // MM_HIENGLISH
+        case 6: fScaleX = 25.4/1440*fDeviceX; fScaleY = -25.4/1440*fDeviceY; break; // MM_TWIPS
+        case 7: // MM_ISOTROPIC
+        case 8: // MM_ANISOTROPIC
+            fScaleX = state.fWindowW!=0 ? state.fViewportW/state.fWindowW : 1;
+            fScaleY = state.fWindowH!=0 ? state.fViewportH/state.fWindowH : 1;
+            if (state.nMapMode==7) {
+                double fScale = Math.min(Math.abs(fScaleX), Math.abs(fScaleY));
+                fScaleX = Math.signum(fScaleX)*fScale;
+                fScaleY = Math.signum(fScaleY)*fScale;
+            }
+            break;
+        default: // MM_TEXT
+            fScaleX = 1;
+            fScaleY = 1;
+        }
+        AffineTransform transform = new AffineTransform(deviceTransform);
+        transform.translate(state.fViewportX, state.fViewportY);
+        transform.scale(fScaleX, fScaleY);
+        transform.translate(-state.fWindowX, -state.fWindowY);
+        transform.concatenate(state.world);
+        state.transform = transform;
+    }
+	
+    private void record(int nType, int nStart, int nEnd) {
+        switch (nType) {
+        case 33: // EMR_SAVEDC
+            saveState();
+            break;
+        case 34: // EMR_RESTOREDC
+            restoreState(s32());
+            break;
+        case 17: // EMR_SETMAPMODE
+            state.nMapMode = s32();
+            updateTransform();
+            break;
+        case 9: // EMR_SETWINDOWEXTEX
+            state.fWindowW = s32();
+            state.fWindowH = s32();
+            updateTransform();
+            break;
+        case 10: // EMR_SETWINDOWORGEX
+            state.fWindowX = s32();
+            state.fWindowY = s32();
+            updateTransform();
+            break;
+        case 11: // EMR_SETVIEWPORTEXTEX
+            state.fViewportW = s32();
+            state.fViewportH = s32();
+            updateTransform();
+            break;
+        case 12: // EMR_SETVIEWPORTORGEX
+            state.fViewportX = s32();
+            state.fViewportY = s32();
+            updateTransform();
+            break;
+        case 31: // EMR_SCALEVIEWPORTEXTEX
+        case 32: { // EMR_SCALEWINDOWEXTEX
+            int nXNum = s32();
+            int nXDenom = s32();
+            int nYNum = s32();
+            int nYDenom = s32();
+            if (nXDenom!=0 && nYDenom!=0) {
+                if (nType==31) {
+                    state.fViewportW = state.fViewportW*nXNum/nXDenom;
+                    state.fViewportH = state.fViewportH*nYNum/nYDenom;
+                }
+                else {
+                    state.fWindowW = state.fWindowW*nXNum/nXDenom;
+                    state.fWindowH = state.fWindowH*nYNum/nYDenom;
+                }
+                updateTransform();
+            }
+            break;
+        }
+        case 35: // EMR_SETWORLDTRANSFORM
+            state.world = readXForm();
+            updateTransform();
+            break;
+        case 36: { // EMR_MODIFYWORLDTRANSFORM
+            AffineTransform xform = readXForm();
+            switch (s32()) {
+            case 1: state.world = new AffineTransform(); break; // MWT_IDENTITY
+            case 2: state.world.concatenate(xform); break; // MWT_LEFTMULTIPLY
+            case 3: state.world.preConcatenate(xform); break; // MWT_RIGHTMULTIPLY
+            case 4: state.world = xform; // MWT_SET
+            }
+            updateTransform();
+            break;
+        }
+        case 19: // EMR_SETPOLYFILLMODE
+            state.nFillMode = s32();
+            break;
+        case 22: // EMR_SETTEXTALIGN
+            state.nTextAlign = s32();
+            break;
+        case 24: // EMR_SETTEXTCOLOR
+            state.textColor = colorRef();
+            break;
+        case 38: { // EMR_CREATEPEN
+            int nIndex = s32();
+            int nStyle = s32() & 0x0F;
+            int nWidth = s32();
+            s32();
+            objects.put(nIndex, createPen(nStyle, nWidth, colorRef()));
+            break;
+        }
+        case 95: { // EMR_EXTCREATEPEN
+            int nIndex = s32();
+            nPos+=16;
+            int nStyle = s32();
+            int nWidth = s32();
+            int nBrushStyle = s32();
+            Color color = colorRef();
+            // Cosmetic pens are always one pixel wide
+            objects.put(nIndex, createPen(nBrushStyle==1 ? PS_NULL : nStyle & 0x0F,
+                (nStyle & 0x10000)!=0 ? nWidth : 0, color));
+            break;
+        }
+        case 39: { // EMR_CREATEBRUSHINDIRECT
+            int nIndex = s32();
+            int nStyle = s32();
+            Color color = colorRef();
+            objects.put(nIndex, new Brush(nStyle==1 ? null : (nStyle==0 || nStyle==2 ? color : Color.GRAY)));
+            break;
+        }
+        case 93: // EMR_CREATEMONOBRUSH
+        case 94: // EMR_CREATEDIBPATTERNBRUSHPT
+            objects.put(s32(), new Brush(Color.GRAY));
+            break;
+        case 82: { // EMR_EXTCREATEFONTINDIRECTW
+            int nIndex = s32();
+            int nHeight = s32();
+            s32();
+            int nEscapement = s32();
+            s32();
+            int nWeight = s32();
+            int nItalic = u8();
+            nPos+=2;
+            int nCharset = u8();
+            nPos+=4;
+            String sName = string16(nPos, Math.min(32, (nEnd-nPos)/2));
+            objects.put(nIndex, new LogFont(sName.length()>0 ? sName : "Arial", nHeight, nWeight>=600, nItalic!=0,
+                nEscapement/10.0, getCharset(nCharset)));
+            break;
+        }
+        case 37: { // EMR_SELECTOBJECT
+            int nIndex = s32();
+            Object object = nIndex<0 ? getStockObject(nIndex & 0x7FFFFFFF) : objects.get(nIndex);
+            if (object instanceof Pen) { state.pen = (Pen) object; }
+            else if (object instanceof Brush) { state.brush = (Brush) object; }
+            else if (object instanceof LogFont) { state.font = (LogFont) object; }
+            break;
+        }
+        case 40: // EMR_DELETEOBJECT
+            objects.remove(s32());
+            break;
+        case 27: { // EMR_MOVETOEX
+            int nX = s32();
+            moveTo(nX, s32());
+            break;
+        }
+        case 54: { // EMR_LINETO
+            int nX = s32();
+            lineTo(nX, s32());
+            break;
+        }
+        case 43: // EMR_RECTANGLE
+            drawShape(readRectangle(), true, true);
+            break;
+        case 42: { // EMR_ELLIPSE
+            Rectangle2D rect = readRectangle();
+            drawShape(new Ellipse2D.Double(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight()), true, true);
+            break;
+        }
+        case 44: { // EMR_ROUNDRECT
+            Rectangle2D rect = readRectangle();
+            int nWidth = s32();
+            int nHeight = s32();
+            drawShape(new RoundRectangle2D.Double(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight(),
+                Math.abs(nWidth), Math.abs(nHeight)), true, true);
+            break;
+        }
+        case 45: // EMR_ARC
+        case 46: // EMR_CHORD
+        case 47: // EMR_PIE
+        case 55: { // EMR_ARCTO
+            int nLeft = s32();
+            int nTop = s32();
+            int nRight = s32();
+            int nBottom = s32();
+            int nXStart = s32();
+            int nYStart = s32();
+            int nXEnd = s32();
+            int nYEnd = s32();
+            int nArcType = nType==46 ? Arc2D.CHORD : (nType==47 ? Arc2D.PIE : Arc2D.OPEN);
+            drawShape(createArc(nLeft, nTop, nRight, nBottom, nXStart, nYStart, nXEnd, nYEnd, nArcType),
+                nArcType!=Arc2D.OPEN, true);
+            break;
+        }
+        case 2: case 85: // EMR_POLYBEZIER(16)
+        case 3: case 86: // EMR_POLYGON(16)
+        case 4: case 87: { // EMR_POLYLINE(16)
+            nPos+=16;
+            int nCount = count(s32(), nType>=85 ? 4 : 8);
+            double[] points = readPoints(nCount, nType>=85);
+            if (nType==2 || nType==85) {
+                drawShape(createBezier(points, nCount, null), false, true);
+            }
+            else {
+                boolean bPolygon = nType==3 || nType==86;
+                drawShape(createPolygon(points, bPolygon), bPolygon, true);
+            }
+            break;
+        }
+        case 5: case 88: // EMR_POLYBEZIERTO(16)
+        case 6: case 89: { // EMR_POLYLINETO(16)
+            nPos+=16;
+            int nCount = count(s32(), nType>=85 ? 4 : 8);
+            double[] points = readPoints(nCount, nType>=85);
+            Path2D shape = path!=null ? path : createPath();
+            if (shape.getCurrentPoint()==null || path==null) { shape.moveTo(state.fX, state.fY); }
+            if (nType==5 || nType==88) {
+                createBezier(points, nCount, shape);
+            }
+            else {
+                for (int i=0; i<nCount; i++) {
+                    shape.lineTo(points[2*i], points[2*i+1]);
+                }
+            }
+            if (nCount>0) {
+                state.fX = points[2*nCount-2];
+                state.fY = points[2*nCount-1];
+            }
+            if (path==null) { drawShape(shape, false, true); }
+            break;
+        }
+        case 7: case 90: // EMR_POLYPOLYLINE(16)
+        case 8: case 91: { // EMR_POLYPOLYGON(16)
+            nPos+=16;
+            int nPolygons = count(s32(), 4);
+            s32();
+            int[] counts = new int[nPolygons];
+            for (int i=0; i<nPolygons; i++) {
+                counts[i] = s32();
+            }
+            boolean bPolygon = nType==8 || nType==91;
+            Path2D shape = createPath();
+            for (int i=0; i<nPolygons; i++) {
+                shape.append(createPolygon(readPoints(counts[i], nType>=85), bPolygon), false);
+            }
+            drawShape(shape, bPolygon, true);
+            break;
+        }
+        case 59: // EMR_BEGINPATH
+            path = createPath();
+            completedPath = null;
+            break;
+        case 60: // EMR_ENDPATH
+            completedPath = path;
+            path = null;
+            break;
+        case 61: // EMR_CLOSEFIGURE
+            if (path!=null && path.getCurrentPoint()!=null) { path.closePath(); }
+            break;
+        case 68: // EMR_ABORTPATH
+        case 67: // EMR_SELECTCLIPPATH
+            path = null;
+            completedPath = null;
+            break;
+        case 62: // EMR_FILLPATH
+        case 63: // EMR_STROKEANDFILLPATH
+        case 64: // EMR_STROKEPATH
+            if (completedPath!=null) {
+                completedPath.setWindingRule(state.nFillMode==WINDING ? Path2D.WIND_NON_ZERO : Path2D.WIND_EVEN_ODD);
+                drawShape(completedPath, nType!=64, nType!=62);
+                completedPath = null;
+            }
+            break;
+        case 83: // EMR_EXTTEXTOUTA
+        case 84: { // EMR_EXTTEXTOUTW
+            nPos+=28;
+            double fX = s32();
+            double fY = s32();
+            int nChars = s32();
+            int nOffString = s32();
+            if ((state.nTextAlign & TA_UPDATECP)!=0) {
+                fX = state.fX;
+                fY = state.fY;
+            }
+            if (nChars>0 && nOffString>0 && nStart+nOffString<nEnd) {
+                int nOffset = nStart+nOffString;
+                String sText = nType==84 ? string16(nOffset, Math.min(nChars, (nEnd-nOffset)/2))
+                    : string8(nOffset, Math.min(nChars, nEnd-nOffset), state.font.sCharset);
+                drawText(sText, fX, fY);
+            }
+            break;
+        }
+        case 81: { // EMR_STRETCHDIBITS
+            nPos+=16;
+            int nXDest = s32();
+            int nYDest = s32();
+            nPos+=16;
+            int nOffBmi = s32();
+            int nCbBmi = s32();
+            int nOffBits = s32();
+            int nCbBits = s32();
+            nPos+=8;
+            int nCxDest = s32();
+            int nCyDest = s32();
+            drawImage(readDIB(nStart+nOffBmi, nCbBmi, nStart+nOffBits, nCbBits), nXDest, nYDest, nCxDest, nCyDest);
+            break;
+        }
+        case 76: // EMR_BITBLT
+        case 77: { // EMR_STRETCHBLT
+            nPos+=16;
+            int nXDest = s32();
+            int nYDest = s32();
+            int nCxDest = s32();
+            int nCyDest = s32();
+            nPos+=40;
+            int nOffBmi = s32();
+            int nCbBmi = s32();
+            int nOffBits = s32();
+            int nCbBits = s32();
+            if (nCbBmi==0) {
+                // Without a bitmap, the destination is filled with the brush
+                if (state.brush.color!=null && path==null) {
+                    fillShape(new Rectangle2D.Double(nXDest, nYDest, nCxDest, nCyDest), state.brush.color);
+                }
+            }
+            else {
+                drawImage(readDIB(nStart+nOffBmi, nCbBmi, nStart+nOffBits, nCbBits), nXDest, nYDest, nCxDest, nCyDest);
+            }
+            break;
+        }
+        default:
+            // Other records do not affect the output
+        }
+    }
+	
+    private Pen createPen(int nStyle, int nWidth, Color color) {
+        // PS_INSIDEFRAME and PS_USERSTYLE are drawn as solid lines, PS_ALTERNATE as dots
+        if (nStyle==6 || nStyle==7) { nStyle = PS_SOLID; }
+        else if (nStyle==8) { nStyle = PS_DOT; }
+        return new Pen(nStyle, Math.abs(nWidth), color);
+    }
+	
+    private static Object getStockObject(int nIndex) {
+        switch (nIndex) {
+        case 0: return new Brush(Color.WHITE);
+        case 1: return new Brush(Color.LIGHT_GRAY);
+        case 2: return new Brush(Color.GRAY);
+        case 3: return new Brush(Color.DARK_GRAY);
+        case 4: return new Brush(Color.BLACK);
+        case 5: return new Brush(null);
+        case 6: return new Pen(PS_SOLID, 0, Color.WHITE);
+        case 7: return new Pen(PS_SOLID, 0, Color.BLACK);
+        case 8: return new Pen(PS_NULL, 0, Color.BLACK);
+        case 18: return new Brush(Color.WHITE);
+        case 19: return new Pen(PS_SOLID, 0, Color.BLACK);
+        default:
+            if (nIndex>=10 && nIndex<=17) {
+                return new LogFont("Arial", -12, false, false, 0, "windows-1252");
+            }
+            return null;
+        }
+    }
+	
+    private AffineTransform readXForm() {
+        float fM11 = f32();
+        float fM12 = f32();
+        float fM21 = f32();
+        float fM22 = f32();
+        float fDx = f32();
+        float fDy = f32();
+        return new AffineTransform(fM11, fM12, fM21, fM22, fDx, fDy);
+    }
+	
+    private Rectangle2D readRectangle() {
+        int nLeft = s32();
+        int nTop = s32();
+        int nRight = s32();
+        int nBottom = s32();
+        return new Rectangle2D.Double(Math.min(nLeft, nRight), Math.min(nTop, nBottom),
+            Math.abs(nRight-nLeft), Math.abs(nBottom-nTop));
+    }
+	
+    private double[] readPoints(int nCount, boolean b16) {
+        double[] points = new double[2*count(nCount, b16 ? 4 : 8)];
+        for (int i=0; i<2*nCount; i++) {
+            points[i] = b16 ? s16() : s32();
+        }
+        return points;
+    }
+	
+    // Create a sequence of bezier curves, or append it to an existing path. A new path starts with the first point,
+    // while the curves are appended to an existing path from the current point
+    private Path2D createBezier(double[] points, int nCount, Path2D shape) {
+        int i = 0;
+        if (shape==null) {
+            shape = createPath();
+            if (nCount==0) { return shape; }
+            shape.moveTo(points[0], points[1]);
+            i++;
+        }
+        for (; i+2<nCount; i+=3) {
+            shape.curveTo(points[2*i], points[2*i+1], points[2*i+2], points[2*i+3], points[2*i+4], points[2*i+5]);
+        }
+        return shape;
+    }
+
+}
@@ -0,0 +1,190 @@
+/************************************************************************
+ *
+ *  ImageCacheImpl.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import writer2xhtml.api.ImageCache;
+import writer2xhtml.util.Misc;
+
+/** Implementation of <code>writer2xhtml.api.ImageCache</code>. The images are kept in memory, and the
+ *  least recently used images are removed when the total size exceeds a given limit. Optionally the
+ *  images are also stored as files in a directory, which is used if an image is not (or no longer) in
+ *  memory. The directory may be shared by several processes, and is never cleaned up by the cache.
+ */
+public final class ImageCacheImpl implements ImageCache {
+	
+    private final long nMaxSize;
+    private final File cacheDir;
+	
+    // The images in memory in access order, and their total size
+    private final LinkedHashMap<String,byte[]> images = new LinkedHashMap<String,byte[]>(16,0.75f,true);
+    private long nSize = 0;
+    
+    // Statistics
+    private long nHits = 0;
+    private long nMisses = 0;
+    private long nBytesSaved = 0;
+	
+    /** Create a new image cache, which keeps the images in memory only
+     * 
+     * @param nMaxSize the maximum total size in bytes of the images kept in memory
+     */
+    public ImageCacheImpl(long nMaxSize) {
+    	this(nMaxSize,null);
+    }
+	
+    /** Create a new image cache, which keeps the images in memory and in a directory
+     * 
+     * @param nMaxSize the maximum total size in bytes of the images kept in memory
+     * @param cacheDir the directory in which to store the images, or null to use memory only.
+     * The directory is created if it does not exist.
+     */
+    public ImageCacheImpl(long nMaxSize, File cacheDir) {
+    	this.nMaxSize = nMaxSize;
+    	this.cacheDir = cacheDir;
+    	if (cacheDir!=null && !cacheDir.isDirectory()) {
+    		cacheDir.mkdirs();
+    	}
+    }
+	
+    public byte[] get(String sKey) {
+    	byte[] data;
+    	synchronized (this) {
+    		data = images.get(sKey);
+    	}
+    	if (data==null && cacheDir!=null) {
+    		data = readFile(sKey);
+    		if (data!=null) {
+    			// Keep the image in memory for the next request
+    			putInMemory(sKey,data);
+    		}
+    	}
+    	synchronized (this) {
+    		if (data!=null) {
+    			nHits++;
+    			nBytesSaved+=data.length;
+    		}
+    		else {
+    			nMisses++;
+    		}
+    	}
+    	return data;
+    }
+	
+    public void put(String sKey, byte[] data) {
+    	putInMemory(sKey,data);
+    	if (cacheDir!=null) {
+    		writeFile(sKey,data);
+    	}
+    }
+	
+    public synchronized long getHits() {
+    	return nHits;
+    }
+
+    public synchronized long getMisses() {
+    	return nMisses;
+    }
+
+    public synchronized long getBytesSaved() {
+    	return nBytesSaved;
+    }
+    
+    private synchronized void putInMemory(String sKey, byte[] data) {
+    	if (data.length>nMaxSize) {
+    		// This image would push out everything else
+    		return;
+    	}
+    	byte[] old = images.put(sKey, data);
+    	if (old!=null) {
+    		nSize-=old.length;
+    	}
+    	nSize+=data.length;
+    	// Remove the least recently used images
+    	Iterator<Map.Entry<String,byte[]>> iter = images.entrySet().iterator();
+    	while (nSize>nMaxSize && iter.hasNext()) {
+    		nSize-=iter.next().getValue().length;
+    		iter.remove();
+    	}
+    }
+    
+    private byte[] readFile(String sKey) {
+    	File file = new File(cacheDir,sKey);
+    	if (file.isFile()) {
+    		try {
+    			InputStream is = new FileInputStream(file);
+    			try {
+    				return Misc.inputStreamToByteArray(is);
+    			}
+    			finally {
+    				is.close();
+    			}
+    		}
+    		catch (IOException e) {
+    			// Treat as a cache miss
+    		}
+    	}
+    	return null;
+    }
+    
+    private void writeFile(String sKey, byte[] data) {
+    	File file = new File(cacheDir,sKey);
+    	if (!file.exists()) {
+    		// Write to a temporary file first, so that other processes never see an incomplete file
+    		File tempFile = null;
+    		try {
+    			tempFile = File.createTempFile("w2x", ".tmp", cacheDir);
+    			OutputStream os = new FileOutputStream(tempFile);
+    			try {
+    				os.write(data);
+    			}
+    			finally {
+    				os.close();
+    			}
+    			if (!tempFile.renameTo(file)) {
+    				tempFile.delete();
+    			}
+    		}
+    		catch (IOException e) {
+    			// The image is still cached in memory
+    			if (tempFile!=null) {
+    				tempFile.delete();
+    			}
+    		}
+    	}
+    }
+
+}
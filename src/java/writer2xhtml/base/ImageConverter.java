@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2022 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2022-06-07)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -34,12 +34,18 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import writer2xhtml.api.ConversionStatistics;
 import writer2xhtml.api.GraphicConverter;
+import writer2xhtml.api.ImageCache;
 import writer2xhtml.office.EmbeddedBinaryObject;
 import writer2xhtml.office.EmbeddedObject;
 import writer2xhtml.office.MIMETypes;
@@ -70,6 +76,9 @@ public final class ImageConverter {
 	
     // Data for image conversion
     private GraphicConverter gcv = null;
+    private ImageCache imageCache = null;
+    private Executor executor = null;
+    private ConversionStatisticsImpl statistics = null;
     private boolean bAcceptOtherFormats = true;
     private String sDefaultFormat = null;
     private String sDefaultVectorFormat = null;
@@ -159,6 +168,33 @@ public final class ImageConverter {
     	this.gcv = gcv;
     }
     
+    /** Define the <code>ImageCache</code> to consult before converting an image
+     * 
+     * @param imageCache the image cache, or null if no cache should be used
+     */
+    public void setImageCache(ImageCache imageCache) {
+    	this.imageCache = imageCache;
+    }
+    
+    /** Define an <code>Executor</code> to run image conversions in the background. The images
+     *  returned by <code>getImage</code> will then have a placeholder for the data until the conversion is done.
+     *  Images using Base64 encoding are always converted immediately, and so are all images if images in other
+     *  formats are not accepted: An image which cannot be converted must then be left out of the document.
+     * 
+     * @param executor the executor, or null if images should be converted immediately
+     */
+    public void setExecutor(Executor executor) {
+    	this.executor = executor;
+    }
+    
+    /** Define the statistics to update with image conversions and image cache lookups
+     * 
+     * @param statistics the statistics, or null if statistics are not collected
+     */
+    public void setStatistics(ConversionStatisticsImpl statistics) {
+    	this.statistics = statistics;
+    }
+    
     /** Define whether to use Base64 to represent binary data
      * 
      * @param b
@@ -306,15 +342,20 @@ public final class ImageConverter {
         if (gcv!=null && !isAcceptedFormat(sMIME) && sDefaultFormat!=null) {
         	byte[] newBlob = null;
             String sTargetMIME = null;
+            // The cache is keyed by the content of the image
+            String sHash = imageCache!=null ? createHash(blob) : null;
 
             if (MIMETypes.isVectorFormat(sMIME) && sDefaultVectorFormat!=null &&
                 gcv.supportsConversion(sMIME,sDefaultVectorFormat,false,false)) {
             	// Try vector format first
-                newBlob = gcv.convert(blob, sMIME, sTargetMIME=sDefaultVectorFormat);
+                newBlob = convert(blob, sHash, sMIME, sTargetMIME=sDefaultVectorFormat);
             }
             if (newBlob==null && gcv.supportsConversion(sMIME,sDefaultFormat,false,false)) {
             	// Then try bitmap format
-                newBlob = gcv.convert(blob,sMIME,sTargetMIME=sDefaultFormat);
+            	if (executor!=null && !bUseBase64 && bAcceptOtherFormats) {
+            		return getPendingImage(sName, blob, sHash, sMIME, sId);
+            	}
+                newBlob = convert(blob, sHash, sMIME, sTargetMIME=sDefaultFormat);
             }
 
             if (newBlob!=null) {
@@ -341,6 +382,74 @@ public final class ImageConverter {
         }
     }
     
+    // Create an image in the default format, which is converted in the background. The file name and the
+    // MIME type must be known at this point, hence the original image is used with these if the conversion fails
+    private BinaryGraphicsDocument getPendingImage(String sName, final byte[] blob, final String sHash,
+    		final String sMIME, String sId) {
+    	final String sTargetMIME = sDefaultFormat;
+    	FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+    		public byte[] call() {
+    			return convert(blob, sHash, sMIME, sTargetMIME);
+    		}
+    	});
+    	try {
+    		executor.execute(task);
+    	}
+    	catch (RejectedExecutionException e) {
+    		task.run();
+    	}
+    	BinaryGraphicsDocument bgd = new BinaryGraphicsDocument(sName+MIMETypes.getFileExtension(sTargetMIME),sTargetMIME);
+    	bgd.setData(task, blob, isAcceptedFormat(sTargetMIME));
+    	if (sId!=null) {
+    		recycledImages.put(sId, new BinaryGraphicsDocument(bgd));
+    	}
+    	return bgd;
+    }
+    
+    // Convert an image using the graphic converter, unless the result is found in the image cache
+    private byte[] convert(byte[] blob, String sHash, String sSourceMIME, String sTargetMIME) {
+    	if (sHash==null) {
+    		count(ConversionStatistics.Counter.IMAGE_CONVERSIONS);
+    		return gcv.convert(blob, sSourceMIME, sTargetMIME);
+    	}
+    	String sKey = sHash+"."+sTargetMIME.toLowerCase().replaceAll("[^a-z0-9]", ".");
+    	byte[] newBlob = imageCache.get(sKey);
+    	if (newBlob==null) {
+    		count(ConversionStatistics.Counter.IMAGE_CACHE_MISSES);
+    		count(ConversionStatistics.Counter.IMAGE_CONVERSIONS);
+    		newBlob = gcv.convert(blob, sSourceMIME, sTargetMIME);
+    		if (newBlob!=null) {
+    			imageCache.put(sKey, newBlob);
+    		}
+    	}
+    	else {
+    		count(ConversionStatistics.Counter.IMAGE_CACHE_HITS);
+    	}
+    	return newBlob;
+    }
+    
+    // Update the statistics, if any (this may happen on a background thread)
+    private void count(ConversionStatistics.Counter counter) {
+    	if (statistics!=null) {
+    		statistics.add(counter, 1);
+    	}
+    }
+    
+    // Create a hexadecimal SHA-256 hash of a blob, or null if SHA-256 is not available
+    private String createHash(byte[] blob) {
+    	try {
+    		byte[] digest = MessageDigest.getInstance("SHA-256").digest(blob);
+    		StringBuilder buf = new StringBuilder(2*digest.length);
+    		for (byte b : digest) {
+    			buf.append(Character.forDigit((b>>4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    		}
+    		return buf.toString();
+    	} catch (NoSuchAlgorithmException e) {
+    		// This would be surprising (all Java platforms support SHA-256)
+    		return null;
+    	}
+    }
+    
     private Element getAlternativeImage(Element node) {
     	Node sibling = node.getNextSibling();
     	if (sibling!=null && Misc.isElement(sibling, XMLString.DRAW_IMAGE)) {
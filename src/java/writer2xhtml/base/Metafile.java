@@ -0,0 +1,361 @@
+/************************************************************************
+ *
+ *  Metafile.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/** This class holds the contents of a metafile (SVM, WMF or EMF) as a list of shapes, texts and images
+ *  in pixel coordinates (96 pixels per inch), and converts it to SVG or PNG.
+ */
+final class Metafile {
+	
+    // Text anchors
+    static final int START = 0;
+    static final int MIDDLE = 1;
+    static final int END = 2;
+    
+    // The maximum width or height of a PNG image in pixels
+    private static final int MAX_PNG_SIZE = 4096;
+	
+    // An item in the metafile: Either a shape, a text or an image
+    private static class Item {
+        Shape shape;
+        Color fill;
+        Color stroke;
+        BasicStroke pen;
+        String sText;
+        Font font;
+        double fX;
+        double fY;
+        double fAngle;
+        int nAnchor;
+        BufferedImage image;
+        Rectangle2D dest;
+    }
+	
+    private final double fWidth;
+    private final double fHeight;
+    private final List<Item> items = new ArrayList<Item>();
+	
+    /** Create a new, empty <code>Metafile</code>
+     * 
+     * @param fWidth the width in pixels
+     * @param fHeight the height in pixels
+     */
+    Metafile(double fWidth, double fHeight) {
+        this.fWidth = Math.max(fWidth, 1);
+        this.fHeight = Math.max(fHeight, 1);
+    }
+	
+    /** Add a shape
+     * 
+     * @param shape the shape in pixel coordinates
+     * @param fill the fill color, or null if the shape should not be filled
+     * @param stroke the stroke color, or null if the outline should not be drawn
+     * @param pen the stroke to use for the outline (ignored if the stroke color is null)
+     */
+    void addShape(Shape shape, Color fill, Color stroke, BasicStroke pen) {
+        if (fill!=null || stroke!=null) {
+            Item item = new Item();
+            item.shape = shape;
+            item.fill = fill;
+            item.stroke = stroke;
+            item.pen = pen;
+            items.add(item);
+        }
+    }
+	
+    /** Add a text
+     * 
+     * @param sText the text
+     * @param fX the x coordinate of the anchor point on the base line
+     * @param fY the y coordinate of the anchor point on the base line
+     * @param font the font (with the size in pixels)
+     * @param color the text color
+     * @param fAngle the rotation in degrees (counterclockwise)
+     * @param nAnchor the position of the anchor point (START, MIDDLE or END)
+     */
+    void addText(String sText, double fX, double fY, Font font, Color color, double fAngle, int nAnchor) {
+        if (sText.length()>0) {
+            Item item = new Item();
+            item.sText = sText;
+            item.fX = fX;
+            item.fY = fY;
+            item.font = font;
+            item.fill = color;
+            item.fAngle = fAngle;
+            item.nAnchor = nAnchor;
+            items.add(item);
+        }
+    }
+	
+    /** Add an image
+     * 
+     * @param image the image
+     * @param dest the destination rectangle in pixel coordinates
+     */
+    void addImage(BufferedImage image, Rectangle2D dest) {
+        Item item = new Item();
+        item.image = image;
+        item.dest = dest;
+        items.add(item);
+    }
+	
+    /** Convert the metafile to SVG
+     * 
+     * @return the SVG document as a byte array (UTF-8)
+     */
+    byte[] toSVG() {
+        StringBuilder buf = new StringBuilder();
+        buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+           .append("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\"")
+           .append(" width=\"").append(num(fWidth)).append("\" height=\"").append(num(fHeight))
+           .append("\" viewBox=\"0 0 ").append(num(fWidth)).append(' ').append(num(fHeight)).append("\">\n");
+        for (Item item : items) {
+            if (item.shape!=null) {
+                buf.append("<path d=\"");
+                appendPathData(buf, item.shape);
+                buf.append("\"");
+                if (item.fill!=null) {
+                    appendColor(buf, "fill", item.fill);
+                    if (item.shape.getPathIterator(null).getWindingRule()==PathIterator.WIND_EVEN_ODD) {
+                        buf.append(" fill-rule=\"evenodd\"");
+                    }
+                }
+                else {
+                    buf.append(" fill=\"none\"");
+                }
+                if (item.stroke!=null) {
+                    appendColor(buf, "stroke", item.stroke);
+                    appendStroke(buf, item.pen);
+                }
+                buf.append("/>\n");
+            }
+            else if (item.sText!=null) {
+                buf.append("<text x=\"").append(num(item.fX)).append("\" y=\"").append(num(item.fY)).append("\"");
+                buf.append(" font-family=\"");
+                appendEscaped(buf, item.font.getName());
+                buf.append("\" font-size=\"").append(num(item.font.getSize2D())).append("\"");
+                if (item.font.isBold()) { buf.append(" font-weight=\"bold\""); }
+                if (item.font.isItalic()) { buf.append(" font-style=\"italic\""); }
+                if (item.nAnchor==MIDDLE) { buf.append(" text-anchor=\"middle\""); }
+                else if (item.nAnchor==END) { buf.append(" text-anchor=\"end\""); }
+                appendColor(buf, "fill", item.fill);
+                if (item.fAngle!=0) {
+                    buf.append(" transform=\"rotate(").append(num(-item.fAngle)).append(' ')
+                       .append(num(item.fX)).append(' ').append(num(item.fY)).append(")\"");
+                }
+                buf.append(" xml:space=\"preserve\">");
+                appendEscaped(buf, item.sText);
+                buf.append("</text>\n");
+            }
+            else {
+                byte[] png = encodePNG(item.image);
+                if (png!=null) {
+                    buf.append("<image x=\"").append(num(item.dest.getX())).append("\" y=\"").append(num(item.dest.getY()))
+                       .append("\" width=\"").append(num(item.dest.getWidth())).append("\" height=\"").append(num(item.dest.getHeight()))
+                       .append("\" preserveAspectRatio=\"none\" xlink:href=\"data:image/png;base64,")
+                       .append(Base64.getEncoder().encodeToString(png)).append("\"/>\n");
+                }
+            }
+        }
+        buf.append("</svg>\n");
+        return buf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+	
+    /** Convert the metafile to PNG. The resolution is 96 pixels per inch, unless this would exceed the
+     *  maximum size of the image
+     * 
+     * @return the PNG image as a byte array, or null if the image could not be created
+     */
+    byte[] toPNG() {
+        double fScale = Math.min(1.0, MAX_PNG_SIZE/Math.max(fWidth, fHeight));
+        int nWidth = Math.max((int) Math.ceil(fWidth*fScale), 1);
+        int nHeight = Math.max((int) Math.ceil(fHeight*fScale), 1);
+        BufferedImage image = new BufferedImage(nWidth, nHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.scale(fScale, fScale);
+            for (Item item : items) {
+                if (item.shape!=null) {
+                    if (item.fill!=null) {
+                        g.setColor(item.fill);
+                        g.fill(item.shape);
+                    }
+                    if (item.stroke!=null) {
+                        g.setColor(item.stroke);
+                        g.setStroke(item.pen);
+                        g.draw(item.shape);
+                    }
+                }
+                else if (item.sText!=null) {
+                    AffineTransform saved = g.getTransform();
+                    g.translate(item.fX, item.fY);
+                    if (item.fAngle!=0) { g.rotate(-Math.toRadians(item.fAngle)); }
+                    g.setFont(item.font);
+                    g.setColor(item.fill);
+                    float fOffset = 0;
+                    if (item.nAnchor!=START) {
+                        float fTextWidth = (float) item.font.getStringBounds(item.sText, g.getFontRenderContext()).getWidth();
+                        fOffset = item.nAnchor==MIDDLE ? -fTextWidth/2 : -fTextWidth;
+                    }
+                    g.drawString(item.sText, fOffset, 0);
+                    g.setTransform(saved);
+                }
+                else {
+                    AffineTransform saved = g.getTransform();
+                    g.translate(item.dest.getX(), item.dest.getY());
+                    g.scale(item.dest.getWidth()/item.image.getWidth(), item.dest.getHeight()/item.image.getHeight());
+                    g.drawImage(item.image, 0, 0, null);
+                    g.setTransform(saved);
+                }
+            }
+        }
+        finally {
+            g.dispose();
+        }
+        return encodePNG(image);
+    }
+	
+    private static byte[] encodePNG(BufferedImage image) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (ImageIO.write(image, "png", out)) {
+                return out.toByteArray();
+            }
+        }
+        catch (IOException e) {
+            // Cannot happen with a ByteArrayOutputStream
+        }
+        return null;
+    }
+	
+    private static void appendPathData(StringBuilder buf, Shape shape) {
+        PathIterator iter = shape.getPathIterator(null);
+        double[] coords = new double[6];
+        while (!iter.isDone()) {
+            switch (iter.currentSegment(coords)) {
+            case PathIterator.SEG_MOVETO:
+                buf.append('M').append(num(coords[0])).append(' ').append(num(coords[1]));
+                break;
+            case PathIterator.SEG_LINETO:
+                buf.append('L').append(num(coords[0])).append(' ').append(num(coords[1]));
+                break;
+            case PathIterator.SEG_QUADTO:
+                buf.append('Q').append(num(coords[0])).append(' ').append(num(coords[1])).append(' ')
+                   .append(num(coords[2])).append(' ').append(num(coords[3]));
+                break;
+            case PathIterator.SEG_CUBICTO:
+                buf.append('C').append(num(coords[0])).append(' ').append(num(coords[1])).append(' ')
+                   .append(num(coords[2])).append(' ').append(num(coords[3])).append(' ')
+                   .append(num(coords[4])).append(' ').append(num(coords[5]));
+                break;
+            case PathIterator.SEG_CLOSE:
+                buf.append('Z');
+            }
+            iter.next();
+        }
+    }
+	
+    private static void appendColor(StringBuilder buf, String sAttribute, Color color) {
+        buf.append(' ').append(sAttribute).append("=\"#");
+        String sHex = Integer.toHexString(color.getRGB() & 0xFFFFFF);
+        for (int i=sHex.length(); i<6; i++) { buf.append('0'); }
+        buf.append(sHex).append('"');
+        if (color.getAlpha()<255) {
+            buf.append(' ').append(sAttribute).append("-opacity=\"").append(num(color.getAlpha()/255.0)).append('"');
+        }
+    }
+	
+    private static void appendStroke(StringBuilder buf, BasicStroke pen) {
+        buf.append(" stroke-width=\"").append(num(pen.getLineWidth())).append('"');
+        float[] dashes = pen.getDashArray();
+        if (dashes!=null) {
+            buf.append(" stroke-dasharray=\"");
+            for (int i=0; i<dashes.length; i++) {
+                if (i>0) { buf.append(','); }
+                buf.append(num(dashes[i]));
+            }
+            buf.append('"');
+        }
+        if (pen.getEndCap()==BasicStroke.CAP_ROUND) { buf.append(" stroke-linecap=\"round\""); }
+        else if (pen.getEndCap()==BasicStroke.CAP_SQUARE) { buf.append(" stroke-linecap=\"square\""); }
+        if (pen.getLineJoin()==BasicStroke.JOIN_ROUND) { buf.append(" stroke-linejoin=\"round\""); }
+        else if (pen.getLineJoin()==BasicStroke.JOIN_BEVEL) { buf.append(" stroke-linejoin=\"bevel\""); }
+    }
+	
+    private static void appendEscaped(StringBuilder buf, String s) {
+        int nLen = s.length();
+        for (int i=0; i<nLen; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '<': buf.append("&lt;"); break;
+            case '>': buf.append("&gt;"); break;
+            case '&': buf.append("&amp;"); break;
+            case '"': buf.append("&quot;"); break;
+            default:
+            	// Control characters are not allowed in XML
+                if (c>=' ' || c=='\t' || c=='\n' || c=='\r') { buf.append(c); }
+            }
+        }
+    }
+	
+    // Format a number with at most two decimals
+    private static String num(double f) {
+        long n = Math.round(f*100);
+        if (n%100==0) { return Long.toString(n/100); }
+        StringBuilder buf = new StringBuilder();
+        if (n<0) { buf.append('-'); n=-n; }
+        buf.append(n/100).append('.');
+        long nFraction = n%100;
+        if (nFraction<10) { buf.append('0').append(nFraction); }
+        else if (nFraction%10==0) { buf.append(nFraction/10); }
+        else { buf.append(nFraction); }
+        return buf.toString();
+    }
+
+}
@@ -0,0 +1,70 @@
+/************************************************************************
+ *
+ *  MetafileConverter.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import writer2xhtml.api.GraphicConverter;
+import writer2xhtml.api.MIMETypes;
+
+/** This class is a graphic converter, which converts metafiles (SVM, WMF and EMF) to SVG or PNG using only
+ *  Java2D. The conversion is an approximation: Clipping, raster operations, pattern brushes and gradients
+ *  are not supported or simplified. The converter has no state, hence it can be used by several threads
+ *  concurrently.
+ */
+public final class MetafileConverter implements GraphicConverter {
+	
+    /** Create a new <code>MetafileConverter</code>
+     */
+    public MetafileConverter() {
+    }
+
+    public boolean supportsConversion(String sSourceMime, String sTargetMime, boolean bCrop, boolean bResize) {
+        if (bCrop || bResize) { return false; }
+        return (MIMETypes.SVM.equals(sSourceMime) || MIMETypes.WMF.equals(sSourceMime) || MIMETypes.EMF.equals(sSourceMime))
+            && (MIMETypes.SVG.equals(sTargetMime) || MIMETypes.PNG.equals(sTargetMime));
+    }
+
+    public byte[] convert(byte[] source, String sSourceMime, String sTargetMime) {
+        if (source==null || !supportsConversion(sSourceMime, sTargetMime, false, false)) {
+            return null;
+        }
+        MetafileParser parser;
+        if (MIMETypes.SVM.equals(sSourceMime)) { parser = new SVMParser(source); }
+        else if (MIMETypes.WMF.equals(sSourceMime)) { parser = new WMFParser(source); }
+        else { parser = new EMFParser(source); }
+        try {
+            Metafile metafile = parser.parse();
+            if (metafile!=null) {
+                return MIMETypes.SVG.equals(sTargetMime) ? metafile.toSVG() : metafile.toPNG();
+            }
+        }
+        catch (RuntimeException e) {
+            // The metafile is damaged or uses features which are not supported
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,514 @@
+/************************************************************************
+ *
+ *  MetafileParser.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/** This is an abstract base class for the metafile parsers. It holds the graphics state, which is
+ *  modelled after the Windows GDI, and provides methods to read little endian data and to draw in
+ *  logical coordinates.
+ */
+abstract class MetafileParser {
+	
+    // Pen styles
+    static final int PS_SOLID = 0;
+    static final int PS_DASH = 1;
+    static final int PS_DOT = 2;
+    static final int PS_DASHDOT = 3;
+    static final int PS_DASHDOTDOT = 4;
+    static final int PS_NULL = 5;
+	
+    // Text alignment flags
+    static final int TA_UPDATECP = 1;
+    static final int TA_RIGHT = 2;
+    static final int TA_CENTER = 6;
+    static final int TA_BOTTOM = 8;
+    static final int TA_BASELINE = 24;
+	
+    // Poly fill modes
+    static final int ALTERNATE = 1;
+    static final int WINDING = 2;
+	
+    // The maximal number of pixels in an embedded bitmap
+    private static final long MAX_IMAGE_PIXELS = 4096L*4096;
+	
+    /** An exception thrown if a record is damaged. The parsers skip the record */
+    static class DamagedRecordException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+	
+    /** A pen */
+    static class Pen {
+        final int nStyle;
+        final double fWidth; // in logical units, 0 means one pixel
+        final Color color;
+		
+        Pen(int nStyle, double fWidth, Color color) {
+            this.nStyle = nStyle;
+            this.fWidth = fWidth;
+            this.color = color;
+        }
+    }
+	
+    /** A brush, a null color means a hollow brush */
+    static class Brush {
+        final Color color;
+		
+        Brush(Color color) {
+            this.color = color;
+        }
+    }
+	
+    /** A logical font */
+    static class LogFont {
+        final String sName;
+        final double fHeight; // in logical units, negative for character height
+        final boolean bBold;
+        final boolean bItalic;
+        final double fAngle; // in degrees (counterclockwise)
+        final String sCharset;
+		
+        LogFont(String sName, double fHeight, boolean bBold, boolean bItalic, double fAngle, String sCharset) {
+            this.sName = sName;
+            this.fHeight = fHeight;
+            this.bBold = bBold;
+            this.bItalic = bItalic;
+            this.fAngle = fAngle;
+            this.sCharset = sCharset;
+        }
+    }
+	
+    /** The graphics state */
+    static class State {
+        Pen pen = new Pen(PS_SOLID, 0, Color.BLACK);
+        Brush brush = new Brush(Color.WHITE);
+        LogFont font = new LogFont("Arial", -12, false, false, 0, "windows-1252");
+        Color textColor = Color.BLACK;
+        int nTextAlign = 0;
+        int nFillMode = ALTERNATE;
+        double fX = 0;
+        double fY = 0;
+        // The mapping from logical coordinates to pixels
+        int nMapMode = 1;
+        double fWindowX = 0;
+        double fWindowY = 0;
+        double fWindowW = 1;
+        double fWindowH = 1;
+        double fViewportX = 0;
+        double fViewportY = 0;
+        double fViewportW = 1;
+        double fViewportH = 1;
+        AffineTransform world = new AffineTransform();
+        AffineTransform transform = new AffineTransform();
+		
+        State copy() {
+            State state = new State();
+            state.pen = pen;
+            state.brush = brush;
+            state.font = font;
+            state.textColor = textColor;
+            state.nTextAlign = nTextAlign;
+            state.nFillMode = nFillMode;
+            state.fX = fX;
+            state.fY = fY;
+            state.nMapMode = nMapMode;
+            state.fWindowX = fWindowX;
+            state.fWindowY = fWindowY;
+            state.fWindowW = fWindowW;
+            state.fWindowH = fWindowH;
+            state.fViewportX = fViewportX;
+            state.fViewportY = fViewportY;
+            state.fViewportW = fViewportW;
+            state.fViewportH = fViewportH;
+            state.world = new AffineTransform(world);
+            state.transform = new AffineTransform(transform);
+            return state;
+        }
+    }
+	
+    // The data to parse, the current position and the end of the current record
+    final byte[] data;
+    int nPos;
+    int nRecordEnd;
+	
+    // The graphics state and the saved states
+    State state = new State();
+    private final List<State> savedStates = new ArrayList<State>();
+	
+    // The current path, if a path is being recorded
+    Path2D path = null;
+	
+    // The result
+    Metafile metafile = null;
+	
+    MetafileParser(byte[] data) {
+        this.data = data;
+    }
+	
+    /** Parse the metafile
+     * 
+     * @return the parsed metafile, or null if the data is not a valid metafile of this type
+     */
+    abstract Metafile parse();
+	
+    /** Update the transformation from logical coordinates to pixels after a change of the mapping */
+    abstract void updateTransform();
+	
+    // Read little endian numbers
+	
+    int u8() {
+        return data[nPos++] & 0xFF;
+    }
+	
+    int u16() {
+        int n = (data[nPos] & 0xFF) | ((data[nPos+1] & 0xFF)<<8);
+        nPos+=2;
+        return n;
+    }
+	
+    int s16() {
+        return (short) u16();
+    }
+	
+    int s32() {
+        int n = (data[nPos] & 0xFF) | ((data[nPos+1] & 0xFF)<<8) | ((data[nPos+2] & 0xFF)<<16) | ((data[nPos+3] & 0xFF)<<24);
+        nPos+=4;
+        return n;
+    }
+	
+    float f32() {
+        return Float.intBitsToFloat(s32());
+    }
+	
+    // Check a count read from the file: The items must fit in the rest of the current record, such that a damaged
+    // file cannot cause large allocations
+    int count(int nCount, int nItemSize) {
+        if (nCount<0 || (long) nCount*nItemSize>nRecordEnd-nPos) {
+            throw new DamagedRecordException();
+        }
+        return nCount;
+    }
+	
+    // Read a COLORREF
+    Color colorRef() {
+        Color color = new Color(data[nPos] & 0xFF, data[nPos+1] & 0xFF, data[nPos+2] & 0xFF);
+        nPos+=4;
+        return color;
+    }
+	
+    // Decode a string of 8 bit characters
+    String string8(int nOffset, int nLen, String sCharset) {
+        int nEnd = nOffset;
+        while (nEnd<nOffset+nLen && data[nEnd]!=0) { nEnd++; }
+        Charset charset = Charset.isSupported(sCharset) ? Charset.forName(sCharset) : Charset.forName("ISO-8859-1");
+        return new String(data, nOffset, nEnd-nOffset, charset);
+    }
+	
+    // Decode a string of 16 bit characters
+    String string16(int nOffset, int nLen) {
+        StringBuilder buf = new StringBuilder(nLen);
+        for (int i=0; i<nLen; i++) {
+            char c = (char) ((data[nOffset+2*i] & 0xFF) | ((data[nOffset+2*i+1] & 0xFF)<<8));
+            if (c==0) { break; }
+            buf.append(c);
+        }
+        return buf.toString();
+    }
+	
+    // Get the Java name of a Windows character set
+    static String getCharset(int nCharset) {
+        switch (nCharset) {
+        case 128: return "Shift_JIS";
+        case 129: return "x-windows-949";
+        case 134: return "GBK";
+        case 136: return "Big5";
+        case 161: return "windows-1253";
+        case 162: return "windows-1254";
+        case 177: return "windows-1255";
+        case 178: return "windows-1256";
+        case 186: return "windows-1257";
+        case 204: return "windows-1251";
+        case 222: return "x-windows-874";
+        case 238: return "windows-1250";
+        default: return "windows-1252";
+        }
+    }
+	
+    // Decode a device independent bitmap, given as a BITMAPINFO structure and the bits
+    BufferedImage readDIB(int nInfoOffset, int nInfoSize, int nBitsOffset, int nBitsSize) {
+        if (nInfoSize<12 || nInfoOffset<0 || nBitsOffset<0 || (long) nInfoOffset+nInfoSize>data.length) {
+            return null;
+        }
+        nBitsSize = Math.min(nBitsSize, data.length-nBitsOffset);
+        // Add a bitmap file header and let ImageIO do the rest
+        byte[] bmp = new byte[14+nInfoSize+Math.max(nBitsSize,0)];
+        int nFileSize = bmp.length;
+        int nBitsStart = 14+nInfoSize;
+        bmp[0] = 'B';
+        bmp[1] = 'M';
+        for (int i=0; i<4; i++) {
+            bmp[2+i] = (byte) (nFileSize>>(8*i));
+            bmp[10+i] = (byte) (nBitsStart>>(8*i));
+        }
+        System.arraycopy(data, nInfoOffset, bmp, 14, nInfoSize);
+        if (nBitsSize>0) {
+            System.arraycopy(data, nBitsOffset, bmp, nBitsStart, nBitsSize);
+        }
+        return readImage(bmp);
+    }
+	
+    // Decode a packed device independent bitmap, where the bits follow the BITMAPINFO structure
+    BufferedImage readPackedDIB(int nOffset, int nSize) {
+        if (nSize<12 || nOffset+16>data.length) { return null; }
+        int nSavedPos = nPos;
+        nPos = nOffset;
+        int nHeaderSize = s32();
+        int nBitCount;
+        int nInfoSize;
+        if (nHeaderSize==12) { // BITMAPCOREHEADER
+            nPos+=6;
+            nBitCount = u16();
+            nInfoSize = 12+(nBitCount<=8 ? 3<<nBitCount : 0);
+        }
+        else if (nOffset+36<=data.length) {
+            nPos = nOffset+14;
+            nBitCount = u16();
+            int nCompression = s32();
+            nPos = nOffset+32;
+            int nColors = s32();
+            if (nColors==0 && nBitCount<=8) { nColors = 1<<nBitCount; }
+            nInfoSize = nHeaderSize+4*nColors;
+            if (nCompression==3 && nHeaderSize==40) { nInfoSize+=12; } // BI_BITFIELDS
+        }
+        else {
+            nInfoSize = nSize;
+        }
+        nPos = nSavedPos;
+        return readDIB(nOffset, nInfoSize, nOffset+nInfoSize, nSize-nInfoSize);
+    }
+	
+    // Decode an image file. The size is checked before the image is decoded, since the header may be damaged
+    static BufferedImage readImage(byte[] bytes) {
+        try {
+            ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes));
+            try {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+                if (readers.hasNext()) {
+                    ImageReader reader = readers.next();
+                    try {
+                        reader.setInput(iis, true, true);
+                        long nWidth = reader.getWidth(0);
+                        long nHeight = reader.getHeight(0);
+                        if (nWidth>0 && nHeight>0 && nWidth*nHeight<=MAX_IMAGE_PIXELS) {
+                            return reader.read(0);
+                        }
+                    }
+                    finally {
+                        reader.dispose();
+                    }
+                }
+                return null;
+            }
+            finally {
+                iis.close();
+            }
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+	
+    // Save and restore the graphics state
+	
+    void saveState() {
+        savedStates.add(state.copy());
+    }
+	
+    // A negative level is relative to the current level, a positive level is absolute
+    void restoreState(int nLevel) {
+        int nIndex = nLevel<0 ? savedStates.size()+nLevel : nLevel-1;
+        if (nIndex>=0 && nIndex<savedStates.size()) {
+            state = savedStates.get(nIndex);
+            while (savedStates.size()>nIndex) {
+                savedStates.remove(savedStates.size()-1);
+            }
+        }
+    }
+	
+    // Drawing in logical coordinates
+	
+    // Get the scale factor from logical units to pixels
+    double getScale() {
+        return Math.sqrt(Math.abs(state.transform.getDeterminant()));
+    }
+	
+    // Create an empty path with the current fill mode
+    Path2D createPath() {
+        return new Path2D.Double(state.nFillMode==WINDING ? Path2D.WIND_NON_ZERO : Path2D.WIND_EVEN_ODD);
+    }
+	
+    // Create a polygon or a polyline from coordinates given as x1, y1, x2, y2,...
+    Path2D createPolygon(double[] points, boolean bClose) {
+        Path2D shape = createPath();
+        for (int i=0; i+1<points.length; i+=2) {
+            if (i==0) { shape.moveTo(points[i], points[i+1]); }
+            else { shape.lineTo(points[i], points[i+1]); }
+        }
+        if (bClose && points.length>=2) {
+            shape.closePath();
+        }
+        return shape;
+    }
+	
+    // Create an arc, a pie or a chord from a bounding box and the end points of two radials
+    static Shape createArc(double fLeft, double fTop, double fRight, double fBottom,
+            double fStartX, double fStartY, double fEndX, double fEndY, int nType) {
+        double fCenterX = (fLeft+fRight)/2;
+        double fCenterY = (fTop+fBottom)/2;
+        double fWidth = Math.abs(fRight-fLeft);
+        double fHeight = Math.abs(fBottom-fTop);
+        if (fWidth==0 || fHeight==0) {
+            return new Rectangle2D.Double();
+        }
+        // The angles must be computed on a circle
+        double fStart = Math.toDegrees(Math.atan2((fCenterY-fStartY)/fHeight, (fStartX-fCenterX)/fWidth));
+        double fEnd = Math.toDegrees(Math.atan2((fCenterY-fEndY)/fHeight, (fEndX-fCenterX)/fWidth));
+        double fExtent = fEnd-fStart;
+        while (fExtent<=0) { fExtent+=360; }
+        return new Arc2D.Double(Math.min(fLeft, fRight), Math.min(fTop, fBottom), fWidth, fHeight, fStart, fExtent, nType);
+    }
+	
+    // Fill and/or stroke a shape with the current brush and pen, or add it to the current path
+    void drawShape(Shape shape, boolean bFill, boolean bStroke) {
+        if (path!=null) {
+            path.append(shape, false);
+            return;
+        }
+        Color fill = bFill ? state.brush.color : null;
+        Color stroke = bStroke && state.pen.nStyle!=PS_NULL ? state.pen.color : null;
+        if (fill!=null || stroke!=null) {
+            metafile.addShape(state.transform.createTransformedShape(shape), fill, stroke, getStroke());
+        }
+    }
+	
+    // Fill a shape with a given color
+    void fillShape(Shape shape, Color color) {
+        metafile.addShape(state.transform.createTransformedShape(shape), color, null, null);
+    }
+	
+    // Get the stroke for the current pen
+    BasicStroke getStroke() {
+        float fWidth = (float) Math.max(state.pen.fWidth*getScale(), 1);
+        float[] dashes = null;
+        switch (state.pen.nStyle) {
+        case PS_DASH: dashes = new float[] { 4*fWidth, 2*fWidth }; break;
+        case PS_DOT: dashes = new float[] { fWidth, fWidth }; break;
+        case PS_DASHDOT: dashes = new float[] { 4*fWidth, 2*fWidth, fWidth, 2*fWidth }; break;
+        case PS_DASHDOTDOT: dashes = new float[] { 4*fWidth, 2*fWidth, fWidth, 2*fWidth, fWidth, 2*fWidth };
+        }
+        return new BasicStroke(fWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 10, dashes, 0);
+    }
+	
+    // Draw a text at a point given in logical coordinates using the current font and text alignment
+    void drawText(String sText, double fX, double fY) {
+        if (path!=null || sText.length()==0) { return; }
+        LogFont logFont = state.font;
+        // A positive height is the cell height, which includes the internal leading
+        double fSize = (logFont.fHeight<0 ? -logFont.fHeight : 0.85*logFont.fHeight)*getScale();
+        if (fSize<=0) { fSize = 12; }
+        Font font = new Font(logFont.sName, (logFont.bBold ? Font.BOLD : 0) | (logFont.bItalic ? Font.ITALIC : 0), 1)
+            .deriveFont((float) fSize);
+        Point2D point = state.transform.transform(new Point2D.Double(fX, fY), null);
+        // Move the reference point to the base line, assuming that the ascent is 80% of the font size
+        double fShift = 0;
+        if ((state.nTextAlign & TA_BASELINE)==TA_BASELINE) { fShift = 0; }
+        else if ((state.nTextAlign & TA_BOTTOM)==TA_BOTTOM) { fShift = -0.2*fSize; }
+        else { fShift = 0.8*fSize; }
+        double fAngle = Math.toRadians(logFont.fAngle);
+        double fBaseX = point.getX()+fShift*Math.sin(fAngle);
+        double fBaseY = point.getY()+fShift*Math.cos(fAngle);
+        int nAnchor = Metafile.START;
+        if ((state.nTextAlign & TA_CENTER)==TA_CENTER) { nAnchor = Metafile.MIDDLE; }
+        else if ((state.nTextAlign & TA_RIGHT)==TA_RIGHT) { nAnchor = Metafile.END; }
+        metafile.addText(sText, fBaseX, fBaseY, font, state.textColor, logFont.fAngle, nAnchor);
+    }
+	
+    // Draw an image in a rectangle given in logical coordinates
+    void drawImage(BufferedImage image, double fX, double fY, double fWidth, double fHeight) {
+        if (image!=null && path==null) {
+            Rectangle2D dest = state.transform.createTransformedShape(
+                new Rectangle2D.Double(Math.min(fX, fX+fWidth), Math.min(fY, fY+fHeight), Math.abs(fWidth), Math.abs(fHeight)))
+                .getBounds2D();
+            metafile.addImage(image, dest);
+        }
+    }
+	
+    // Move the current position
+    void moveTo(double fX, double fY) {
+        state.fX = fX;
+        state.fY = fY;
+        if (path!=null) {
+            path.moveTo(fX, fY);
+        }
+    }
+	
+    // Draw a line from the current position
+    void lineTo(double fX, double fY) {
+        if (path!=null) {
+            if (path.getCurrentPoint()==null) { path.moveTo(state.fX, state.fY); }
+            path.lineTo(fX, fY);
+        }
+        else {
+            Path2D line = createPath();
+            line.moveTo(state.fX, state.fY);
+            line.lineTo(fX, fY);
+            drawShape(line, false, true);
+        }
+        state.fX = fX;
+        state.fY = fY;
+    }
+	
+}
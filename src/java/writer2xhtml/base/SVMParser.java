@@ -0,0 +1,495 @@
+/************************************************************************
+ *
+ *  SVMParser.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/** This class parses a StarView metafile (SVM). The format is described in <code>writer2xhtml.office.SVMReader</code>.
+ *  Gradients are filled with the average color, and only the bitmap part of bitmaps with transparency is used.
+ *  Clipping, hatches, raster operations and transparency groups are not supported, and EPS actions are ignored.
+ */
+final class SVMParser extends MetafileParser {
+	
+    // Text alignment
+    private static final int ALIGN_BASELINE = 1;
+    private static final int ALIGN_BOTTOM = 2;
+	
+    // Polygon flags
+    private static final int POLY_CONTROL = 2;
+	
+    SVMParser(byte[] data) {
+        super(data);
+    }
+	
+    @Override Metafile parse() {
+        if (data.length<61 || data[0]!='V' || data[1]!='C' || data[2]!='L' || data[3]!='M' || data[4]!='T' || data[5]!='F') {
+            return null;
+        }
+        nPos = 8;
+        int nHeaderEnd = 12+s32();
+        nPos = 16;
+        readMapMode();
+        Point2D size = state.transform.deltaTransform(new Point2D.Double(s32(), s32()), null);
+        metafile = new Metafile(Math.abs(size.getX()), Math.abs(size.getY()));
+        nPos = 57;
+        int nCount = s32();
+		
+        nPos = nHeaderEnd;
+        for (int i=0; i<nCount && nPos+8<=data.length; i++) {
+            int nType = u16();
+            int nVersion = u16();
+            long nSize = s32() & 0xFFFFFFFFL;
+            if (nPos+nSize>data.length) { break; }
+            int nEnd = (int) (nPos+nSize);
+            nRecordEnd = nEnd;
+            try {
+                action(nType, nVersion, nEnd);
+            }
+            catch (DamagedRecordException e) {
+                // Skip the action
+            }
+            nPos = nEnd;
+        }
+        return metafile;
+    }
+	
+    // The window origin is the logical point at the origin of the picture, the viewport size is the number of
+    // pixels per logical unit
+    @Override void updateTransform() {
+        AffineTransform transform = new AffineTransform();
+        transform.scale(state.fViewportW, state.fViewportH);
+        transform.translate(-state.fWindowX, -state.fWindowY);
+        state.transform = transform;
+    }
+	
+    private void action(int nType, int nVersion, int nEnd) {
+        switch (nType) {
+        case 100: { // META_PIXEL_ACTION
+            Point2D point = state.transform.transform(readPoint(), null);
+            metafile.addShape(new Rectangle2D.Double(point.getX(), point.getY(), 1, 1), readColor(), null, null);
+            break;
+        }
+        case 101: // META_POINT_ACTION
+            if (state.pen.nStyle!=PS_NULL) {
+                Point2D point = state.transform.transform(readPoint(), null);
+                metafile.addShape(new Rectangle2D.Double(point.getX(), point.getY(), 1, 1), state.pen.color, null, null);
+            }
+            break;
+        case 102: { // META_LINE_ACTION
+            Point2D start = readPoint();
+            Point2D end = readPoint();
+            Pen pen = state.pen;
+            if (nVersion>=2) { readLineInfo(); }
+            Path2D line = createPath();
+            line.moveTo(start.getX(), start.getY());
+            line.lineTo(end.getX(), end.getY());
+            drawShape(line, false, true);
+            state.pen = pen;
+            break;
+        }
+        case 103: // META_RECT_ACTION
+            drawShape(readRectangle(), true, true);
+            break;
+        case 104: { // META_ROUNDRECT_ACTION
+            Rectangle2D rect = readRectangle();
+            int nHorizontal = s32();
+            int nVertical = s32();
+            drawShape(new RoundRectangle2D.Double(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight(),
+                2*nHorizontal, 2*nVertical), true, true);
+            break;
+        }
+        case 105: { // META_ELLIPSE_ACTION
+            Rectangle2D rect = readRectangle();
+            drawShape(new Ellipse2D.Double(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight()), true, true);
+            break;
+        }
+        case 106: // META_ARC_ACTION
+        case 107: // META_PIE_ACTION
+        case 108: { // META_CHORD_ACTION
+            Rectangle2D rect = readRectangle();
+            Point2D start = readPoint();
+            Point2D end = readPoint();
+            int nArcType = nType==106 ? Arc2D.OPEN : (nType==107 ? Arc2D.PIE : Arc2D.CHORD);
+            drawShape(createArc(rect.getMinX(), rect.getMinY(), rect.getMaxX(), rect.getMaxY(),
+                start.getX(), start.getY(), end.getX(), end.getY(), nArcType), nArcType!=Arc2D.OPEN, true);
+            break;
+        }
+        case 109: { // META_POLYLINE_ACTION
+            Path2D shape = readPolygon(false);
+            Pen pen = state.pen;
+            if (nVersion>=2) { readLineInfo(); }
+            if (nVersion>=3 && u8()!=0) { shape = readComplexPolygon(false); }
+            drawShape(shape, false, true);
+            state.pen = pen;
+            break;
+        }
+        case 110: { // META_POLYGON_ACTION
+            Path2D shape = readPolygon(true);
+            if (nVersion>=2 && u8()!=0) { shape = readComplexPolygon(true); }
+            drawShape(shape, true, true);
+            break;
+        }
+        case 111: { // META_POLYPOLYGON_ACTION
+            int nPolygons = count(u16(), 2);
+            Path2D[] polygons = new Path2D[nPolygons];
+            for (int i=0; i<nPolygons; i++) {
+                polygons[i] = readPolygon(true);
+            }
+            if (nVersion>=2) {
+                int nComplex = count(u16(), 2);
+                for (int i=0; i<nComplex; i++) {
+                    int nIndex = u16();
+                    Path2D polygon = readComplexPolygon(true);
+                    if (nIndex<nPolygons) { polygons[nIndex] = polygon; }
+                }
+            }
+            Path2D shape = createPath();
+            for (Path2D polygon : polygons) {
+                shape.append(polygon, false);
+            }
+            drawShape(shape, true, true);
+            break;
+        }
+        case 112: // META_TEXT_ACTION
+        case 113: // META_TEXTARRAY_ACTION
+        case 114: { // META_STRETCHTEXT_ACTION
+            Point2D point = readPoint();
+            String sText = readByteString();
+            if (nType==114) { nPos+=4; } // width
+            int nIndex = u16();
+            int nLen = u16();
+            if (nType==113) { nPos+=4*count(s32(), 4); } // character positions
+            if (nVersion>=2) { sText = readUnicodeString(); }
+            drawText(substring(sText, nIndex, nLen), point.getX(), point.getY());
+            break;
+        }
+        case 115: { // META_TEXTRECT_ACTION
+            Rectangle2D rect = readRectangle();
+            String sText = readByteString();
+            nPos+=2; // style
+            if (nVersion>=2) { sText = readUnicodeString(); }
+            int nTextAlign = state.nTextAlign;
+            state.nTextAlign = 0;
+            drawText(sText, rect.getX(), rect.getY());
+            state.nTextAlign = nTextAlign;
+            break;
+        }
+        case 116: // META_BMP_ACTION
+        case 119: { // META_BMPEX_ACTION
+            BufferedImage image = readImage(Arrays.copyOfRange(data, nPos, nEnd-8));
+            nPos = nEnd-8;
+            Point2D point = readPoint();
+            if (image!=null) {
+                double fScale = getScale();
+                drawImage(image, point.getX(), point.getY(), image.getWidth()/fScale, image.getHeight()/fScale);
+            }
+            break;
+        }
+        case 117: // META_BMPSCALE_ACTION
+        case 118: // META_BMPSCALEPART_ACTION
+        case 120: // META_BMPEXSCALE_ACTION
+        case 121: { // META_BMPEXSCALEPART_ACTION
+            // The destination follows the bitmap, and is followed by the source for the part actions
+            int nDest = nEnd-(nType==118 || nType==121 ? 32 : 16);
+            BufferedImage image = readImage(Arrays.copyOfRange(data, nPos, nDest));
+            nPos = nDest;
+            Point2D point = readPoint();
+            Point2D size = readPoint();
+            drawImage(image, point.getX(), point.getY(), size.getX(), size.getY());
+            break;
+        }
+        case 125: { // META_GRADIENT_ACTION
+            Rectangle2D rect = readRectangle();
+            if (path==null) { fillShape(rect, readGradientColor()); }
+            break;
+        }
+        case 149: { // META_GRADIENTEX_ACTION
+            Path2D shape = readPolyPolygon();
+            if (path==null) { fillShape(shape, readGradientColor()); }
+            break;
+        }
+        case 143: { // META_TRANSPARENT_ACTION
+            Path2D shape = readPolyPolygon();
+            int nAlpha = 255*(100-Math.min(u16(), 100))/100;
+            Color fill = withAlpha(state.brush.color, nAlpha);
+            Color stroke = state.pen.nStyle!=PS_NULL ? withAlpha(state.pen.color, nAlpha) : null;
+            if (fill!=null || stroke!=null) {
+                metafile.addShape(state.transform.createTransformedShape(shape), fill, stroke, getStroke());
+            }
+            break;
+        }
+        case 132: { // META_LINECOLOR_ACTION
+            Color color = readColor();
+            state.pen = new Pen(u8()!=0 ? PS_SOLID : PS_NULL, 0, color);
+            break;
+        }
+        case 133: { // META_FILLCOLOR_ACTION
+            Color color = readColor();
+            state.brush = new Brush(u8()!=0 ? color : null);
+            break;
+        }
+        case 134: // META_TEXTCOLOR_ACTION
+            state.textColor = readColor();
+            break;
+        case 137: { // META_TEXTALIGN_ACTION
+            int nAlign = u16();
+            state.nTextAlign = nAlign==ALIGN_BASELINE ? TA_BASELINE : (nAlign==ALIGN_BOTTOM ? TA_BOTTOM : 0);
+            break;
+        }
+        case 138: // META_MAPMODE_ACTION
+            readMapMode();
+            break;
+        case 139: // META_FONT_ACTION
+            readFont();
+            break;
+        case 140: // META_PUSH_ACTION
+            saveState();
+            break;
+        case 141: // META_POP_ACTION
+            restoreState(-1);
+            break;
+        default:
+            // Other actions do not affect the output
+        }
+    }
+	
+    private Point2D readPoint() {
+        int nX = s32();
+        return new Point2D.Double(nX, s32());
+    }
+	
+    private Rectangle2D readRectangle() {
+        int nLeft = s32();
+        int nTop = s32();
+        int nRight = s32();
+        int nBottom = s32();
+        // An empty rectangle is marked by a special value
+        if (nRight==-32767 || nBottom==-32767) {
+            return new Rectangle2D.Double(nLeft, nTop, 0, 0);
+        }
+        return new Rectangle2D.Double(Math.min(nLeft, nRight), Math.min(nTop, nBottom),
+            Math.abs(nRight-nLeft), Math.abs(nBottom-nTop));
+    }
+	
+    // Read a color as a 32 bit value, where the high byte is the transparency
+    private Color readColor() {
+        int nColor = s32();
+        return new Color((nColor>>16) & 0xFF, (nColor>>8) & 0xFF, nColor & 0xFF, 255-((nColor>>24) & 0xFF));
+    }
+	
+    private static Color withAlpha(Color color, int nAlpha) {
+        return color!=null ? new Color(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha()*nAlpha/255) : null;
+    }
+	
+    // Read a map mode and update the transformation
+    private void readMapMode() {
+        int nEnd = readVersionCompat();
+        int nUnit = u16();
+        int nOriginX = s32();
+        int nOriginY = s32();
+        double fScaleX = readFraction();
+        double fScaleY = readFraction();
+        nPos = nEnd;
+        double fMillimeters;
+        switch (nUnit) {
+        case 0: fMillimeters = 0.01; break; // MAP_100TH_MM
+        case 1: fMillimeters = 0.1; break; // MAP_10TH_MM
+        case 2: fMillimeters = 1; break; // MAP_MM
+        case 3: fMillimeters = 10; break; // MAP_CM
+        case 4: fMillimeters = 0.0254; break; // MAP_1000TH_INCH
+        case 5: fMillimeters = 0.254; break; // MAP_100TH_INCH
+        case 6: fMillimeters = 2.54; break; // MAP_10TH_INCH
+        case 7: fMillimeters = 25.4; break; // MAP_INCH
+        case 8: fMillimeters = 25.4/72; break; // MAP_POINT
+        case 9: fMillimeters = 25.4/1440; break; // MAP_TWIP
+        case 10: fMillimeters = 25.4/96; break; // MAP_PIXEL
+        default: return; // Relative and font based map modes are not supported
+        }
+        state.fWindowX = -nOriginX;
+        state.fWindowY = -nOriginY;
+        state.fViewportW = fScaleX*fMillimeters*96/25.4;
+        state.fViewportH = fScaleY*fMillimeters*96/25.4;
+        updateTransform();
+    }
+	
+    private double readFraction() {
+        int nNumerator = s32();
+        int nDenominator = s32();
+        return nDenominator!=0 ? nNumerator/(double) nDenominator : 1;
+    }
+	
+    // Read a version compatibility header and return the end position of the data
+    private int readVersionCompat() {
+        u16();
+        int nSize = s32();
+        return nPos+nSize;
+    }
+	
+    private void readFont() {
+        int nEnd = readVersionCompat();
+        String sName = readByteString();
+        readByteString(); // style name
+        s32(); // width
+        int nHeight = s32();
+        nPos+=6; // character set, family and pitch
+        int nWeight = u16();
+        nPos+=4; // underline and strikeout
+        int nItalic = u16();
+        nPos+=4; // language and width type
+        int nOrientation = s16();
+        nPos = nEnd;
+        // The height is the character height, hence negative
+        state.font = new LogFont(sName.length()>0 ? sName : "Arial", -Math.abs(nHeight), nWeight>=7, nItalic!=0,
+            nOrientation/10.0, "ISO-8859-1");
+    }
+	
+    // Read line info, and set the pen accordingly
+    private void readLineInfo() {
+        int nEnd = readVersionCompat();
+        int nStyle = u16();
+        int nWidth = s32();
+        nPos = nEnd;
+        if (state.pen.nStyle!=PS_NULL) {
+            state.pen = new Pen(nStyle==0 ? PS_NULL : (nStyle==2 ? PS_DASH : PS_SOLID), nWidth, state.pen.color);
+        }
+    }
+	
+    private String readByteString() {
+        int nLen = count(u16(), 1);
+        String s = string8(nPos, nLen, state.font.sCharset);
+        nPos+=nLen;
+        return s;
+    }
+	
+    private String readUnicodeString() {
+        int nLen = count(u16(), 2);
+        String s = string16(nPos, nLen);
+        nPos+=2*nLen;
+        return s;
+    }
+	
+    private static String substring(String s, int nIndex, int nLen) {
+        int nStart = Math.min(nIndex, s.length());
+        return s.substring(nStart, Math.min(nStart+nLen, s.length()));
+    }
+	
+    // Read a simple polygon
+    private Path2D readPolygon(boolean bClose) {
+        int nCount = count(u16(), 8);
+        double[] points = new double[2*nCount];
+        for (int i=0; i<2*nCount; i++) {
+            points[i] = s32();
+        }
+        return createPolygon(points, bClose);
+    }
+	
+    // Read a polygon with flags, which may contain bezier curves
+    private Path2D readComplexPolygon(boolean bClose) {
+        int nEnd = readVersionCompat();
+        int nCount = count(u16(), 8);
+        double[] points = new double[2*nCount];
+        for (int i=0; i<2*nCount; i++) {
+            points[i] = s32();
+        }
+        int[] flags = new int[nCount];
+        if (u8()!=0) {
+            for (int i=0; i<nCount; i++) {
+                flags[i] = u8();
+            }
+        }
+        nPos = nEnd;
+        Path2D shape = createPath();
+        for (int i=0; i<nCount; i++) {
+            if (i==0) {
+                shape.moveTo(points[0], points[1]);
+            }
+            else if (flags[i]==POLY_CONTROL && i+2<nCount) {
+                shape.curveTo(points[2*i], points[2*i+1], points[2*i+2], points[2*i+3], points[2*i+4], points[2*i+5]);
+                i+=2;
+            }
+            else {
+                shape.lineTo(points[2*i], points[2*i+1]);
+            }
+        }
+        if (bClose && nCount>0) {
+            shape.closePath();
+        }
+        return shape;
+    }
+	
+    private Path2D readPolyPolygon() {
+        int nPolygons = u16();
+        Path2D shape = createPath();
+        for (int i=0; i<nPolygons; i++) {
+            shape.append(readPolygon(true), false);
+        }
+        return shape;
+    }
+	
+    // Read a gradient and return the average color
+    private Color readGradientColor() {
+        int nEnd = readVersionCompat();
+        u16(); // style
+        Color start = readOldColor();
+        Color end = readOldColor();
+        nPos+=8; // angle, border and offset
+        int nStartIntensity = u16();
+        int nEndIntensity = u16();
+        nPos = nEnd;
+        return new Color(average(start.getRed(), nStartIntensity, end.getRed(), nEndIntensity),
+            average(start.getGreen(), nStartIntensity, end.getGreen(), nEndIntensity),
+            average(start.getBlue(), nStartIntensity, end.getBlue(), nEndIntensity));
+    }
+	
+    // Average two color components given with intensities in percent
+    private static int average(int nStart, int nStartIntensity, int nEnd, int nEndIntensity) {
+        return Math.min((nStart*nStartIntensity+nEnd*nEndIntensity)/200, 255);
+    }
+	
+    // Read a color in the old format used by gradients, with 16 bit components
+    private Color readOldColor() {
+        int nName = u16();
+        if ((nName & 0x8000)!=0) {
+            int nRed = u16()>>8;
+            int nGreen = u16()>>8;
+            int nBlue = u16()>>8;
+            return new Color(nRed, nGreen, nBlue);
+        }
+        // A predefined color, which is not used in practice
+        return Color.GRAY;
+    }
+
+}
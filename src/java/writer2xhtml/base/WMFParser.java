@@ -0,0 +1,396 @@
+/************************************************************************
+ *
+ *  WMFParser.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.base;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+
+/** This class parses a Windows metafile (WMF). The placeable header, if present, defines the size of the
+ *  picture, otherwise the logical units are assumed to be twips. The window origin and extent are mapped
+ *  onto the picture. Clipping, raster operations and pattern brushes are not supported (pattern brushes are
+ *  replaced by gray).
+ */
+final class WMFParser extends MetafileParser {
+	
+    private static final int PLACEABLE_KEY = 0x9AC6CDD7;
+	
+    // The size of the picture in pixels
+    private double fWidth;
+    private double fHeight;
+	
+    // The object table
+    private Object[] objects;
+	
+    WMFParser(byte[] data) {
+        super(data);
+    }
+	
+    @Override Metafile parse() {
+        if (data.length<18) { return null; }
+        nPos = 0;
+        boolean bPlaceable = s32()==PLACEABLE_KEY;
+        if (bPlaceable) {
+            if (data.length<40) { return null; }
+            nPos = 6;
+            int nLeft = s16();
+            int nTop = s16();
+            int nRight = s16();
+            int nBottom = s16();
+            int nInch = u16();
+            if (nInch==0) { nInch = 1440; }
+            fWidth = Math.abs(nRight-nLeft)*96.0/nInch;
+            fHeight = Math.abs(nBottom-nTop)*96.0/nInch;
+            state.fWindowX = nLeft;
+            state.fWindowY = nTop;
+            state.fWindowW = nRight-nLeft;
+            state.fWindowH = nBottom-nTop;
+            nPos = 22;
+        }
+        else {
+            nPos = 0;
+        }
+        int nHeaderStart = nPos;
+        int nType = u16();
+        int nHeaderSize = u16();
+        if ((nType!=1 && nType!=2) || nHeaderSize!=9) { return null; }
+        nPos = nHeaderStart+10;
+        objects = new Object[Math.max(u16(), 1)];
+        int nStart = nHeaderStart+2*nHeaderSize;
+		
+        if (!bPlaceable) {
+            // Without a placeable header, the size is given by the first window extent
+            if (!findWindow(nStart)) { return null; }
+            fWidth = Math.abs(state.fWindowW)*96.0/1440;
+            fHeight = Math.abs(state.fWindowH)*96.0/1440;
+        }
+        updateTransform();
+        metafile = new Metafile(fWidth, fHeight);
+		
+        nPos = nStart;
+        while (nPos+6<=data.length) {
+            int nRecordStart = nPos;
+            long nSize = (s32() & 0xFFFFFFFFL)*2;
+            int nFunction = u16();
+            if (nFunction==0 || nSize<6 || nRecordStart+nSize>data.length) { break; }
+            int nEnd = (int) (nRecordStart+nSize);
+            nRecordEnd = nEnd;
+            try {
+                record(nFunction, nRecordStart, nEnd);
+            }
+            catch (DamagedRecordException e) {
+                // Skip the record
+            }
+            nPos = nEnd;
+        }
+        return metafile;
+    }
+	
+    // Find the first window origin and extent (needed if there is no placeable header)
+    private boolean findWindow(int nStart) {
+        boolean bFound = false;
+        nPos = nStart;
+        while (nPos+6<=data.length) {
+            int nRecordStart = nPos;
+            long nSize = (s32() & 0xFFFFFFFFL)*2;
+            int nFunction = u16();
+            if (nFunction==0 || nSize<6 || nRecordStart+nSize>data.length) { break; }
+            if (nFunction==0x020B) { // META_SETWINDOWORG
+                state.fWindowY = s16();
+                state.fWindowX = s16();
+            }
+            else if (nFunction==0x020C) { // META_SETWINDOWEXT
+                state.fWindowH = s16();
+                state.fWindowW = s16();
+                bFound = true;
+            }
+            nPos = (int) (nRecordStart+nSize);
+        }
+        return bFound && state.fWindowW!=0 && state.fWindowH!=0;
+    }
+	
+    @Override void updateTransform() {
+        AffineTransform transform = new AffineTransform();
+        if (state.fWindowW!=0 && state.fWindowH!=0) {
+            transform.scale(fWidth/state.fWindowW, fHeight/state.fWindowH);
+        }
+        transform.translate(-state.fWindowX, -state.fWindowY);
+        state.transform = transform;
+    }
+	
+    private void record(int nFunction, int nStart, int nEnd) {
+        switch (nFunction) {
+        case 0x001E: // META_SAVEDC
+            saveState();
+            break;
+        case 0x0127: // META_RESTOREDC
+            restoreState(s16());
+            break;
+        case 0x0103: // META_SETMAPMODE
+            state.nMapMode = u16();
+            break;
+        case 0x0106: // META_SETPOLYFILLMODE
+            state.nFillMode = u16();
+            break;
+        case 0x0209: // META_SETTEXTCOLOR
+            state.textColor = colorRef();
+            break;
+        case 0x012E: // META_SETTEXTALIGN
+            state.nTextAlign = u16();
+            break;
+        case 0x020B: // META_SETWINDOWORG
+            state.fWindowY = s16();
+            state.fWindowX = s16();
+            updateTransform();
+            break;
+        case 0x020C: // META_SETWINDOWEXT
+            state.fWindowH = s16();
+            state.fWindowW = s16();
+            updateTransform();
+            break;
+        case 0x020F: // META_OFFSETWINDOWORG
+            state.fWindowY += s16();
+            state.fWindowX += s16();
+            updateTransform();
+            break;
+        case 0x0410: { // META_SCALEWINDOWEXT
+            int nYDenom = s16();
+            int nYNum = s16();
+            int nXDenom = s16();
+            int nXNum = s16();
+            if (nXDenom!=0 && nYDenom!=0) {
+                state.fWindowW = state.fWindowW*nXNum/nXDenom;
+                state.fWindowH = state.fWindowH*nYNum/nYDenom;
+                updateTransform();
+            }
+            break;
+        }
+        case 0x02FA: { // META_CREATEPENINDIRECT
+            int nStyle = u16() & 0x0F;
+            int nWidth = s16();
+            s16();
+            Color color = colorRef();
+            // PS_INSIDEFRAME and PS_USERSTYLE are drawn as solid lines, PS_ALTERNATE as dots
+            if (nStyle==6 || nStyle==7) { nStyle = PS_SOLID; }
+            else if (nStyle==8) { nStyle = PS_DOT; }
+            addObject(new Pen(nStyle, Math.abs(nWidth), color));
+            break;
+        }
+        case 0x02FC: { // META_CREATEBRUSHINDIRECT
+            int nStyle = u16();
+            Color color = colorRef();
+            addObject(new Brush(nStyle==1 ? null : (nStyle==0 || nStyle==2 ? color : Color.GRAY)));
+            break;
+        }
+        case 0x0142: // META_DIBCREATEPATTERNBRUSH
+        case 0x01F9: // META_CREATEPATTERNBRUSH
+            addObject(new Brush(Color.GRAY));
+            break;
+        case 0x02FB: { // META_CREATEFONTINDIRECT
+            int nHeight = s16();
+            s16();
+            int nEscapement = s16();
+            s16();
+            int nWeight = s16();
+            int nItalic = u8();
+            nPos+=2;
+            int nCharset = u8();
+            nPos+=4;
+            String sName = string8(nPos, Math.min(32, nEnd-nPos), "windows-1252");
+            addObject(new LogFont(sName.length()>0 ? sName : "Arial", nHeight, nWeight>=600, nItalic!=0,
+                nEscapement/10.0, getCharset(nCharset)));
+            break;
+        }
+        case 0x00F7: // META_CREATEPALETTE
+        case 0x06FF: // META_CREATEREGION
+            addObject(new Object());
+            break;
+        case 0x012D: { // META_SELECTOBJECT
+            int nIndex = u16();
+            if (nIndex<objects.length) {
+                Object object = objects[nIndex];
+                if (object instanceof Pen) { state.pen = (Pen) object; }
+                else if (object instanceof Brush) { state.brush = (Brush) object; }
+                else if (object instanceof LogFont) { state.font = (LogFont) object; }
+            }
+            break;
+        }
+        case 0x01F0: { // META_DELETEOBJECT
+            int nIndex = u16();
+            if (nIndex<objects.length) { objects[nIndex] = null; }
+            break;
+        }
+        case 0x0214: { // META_MOVETO
+            int nY = s16();
+            moveTo(s16(), nY);
+            break;
+        }
+        case 0x0213: { // META_LINETO
+            int nY = s16();
+            lineTo(s16(), nY);
+            break;
+        }
+        case 0x041B: { // META_RECTANGLE
+            int nBottom = s16();
+            int nRight = s16();
+            int nTop = s16();
+            int nLeft = s16();
+            drawShape(rectangle(nLeft, nTop, nRight, nBottom), true, true);
+            break;
+        }
+        case 0x061C: { // META_ROUNDRECT
+            int nHeight = s16();
+            int nWidth = s16();
+            int nBottom = s16();
+            int nRight = s16();
+            int nTop = s16();
+            int nLeft = s16();
+            Rectangle2D rect = rectangle(nLeft, nTop, nRight, nBottom);
+            drawShape(new RoundRectangle2D.Double(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight(),
+                Math.abs(nWidth), Math.abs(nHeight)), true, true);
+            break;
+        }
+        case 0x0418: { // META_ELLIPSE
+            int nBottom = s16();
+            int nRight = s16();
+            int nTop = s16();
+            int nLeft = s16();
+            Rectangle2D rect = rectangle(nLeft, nTop, nRight, nBottom);
+            drawShape(new Ellipse2D.Double(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight()), true, true);
+            break;
+        }
+        case 0x0817: // META_ARC
+        case 0x081A: // META_PIE
+        case 0x0830: { // META_CHORD
+            int nYEnd = s16();
+            int nXEnd = s16();
+            int nYStart = s16();
+            int nXStart = s16();
+            int nBottom = s16();
+            int nRight = s16();
+            int nTop = s16();
+            int nLeft = s16();
+            int nType = nFunction==0x0817 ? Arc2D.OPEN : (nFunction==0x081A ? Arc2D.PIE : Arc2D.CHORD);
+            drawShape(createArc(nLeft, nTop, nRight, nBottom, nXStart, nYStart, nXEnd, nYEnd, nType),
+                nType!=Arc2D.OPEN, true);
+            break;
+        }
+        case 0x0324: // META_POLYGON
+        case 0x0325: { // META_POLYLINE
+            int nCount = u16();
+            drawShape(createPolygon(readPoints(nCount), nFunction==0x0324), nFunction==0x0324, true);
+            break;
+        }
+        case 0x0538: { // META_POLYPOLYGON
+            int nPolygons = count(u16(), 2);
+            int[] counts = new int[nPolygons];
+            for (int i=0; i<nPolygons; i++) {
+                counts[i] = u16();
+            }
+            Path2D shape = createPath();
+            for (int i=0; i<nPolygons; i++) {
+                shape.append(createPolygon(readPoints(counts[i]), true), false);
+            }
+            drawShape(shape, true, true);
+            break;
+        }
+        case 0x0521: { // META_TEXTOUT
+            int nLen = count(s16(), 1);
+            String sText = string8(nPos, nLen, state.font.sCharset);
+            nPos+=(nLen+1) & ~1;
+            int nY = s16();
+            drawText(sText, s16(), nY);
+            break;
+        }
+        case 0x0A32: { // META_EXTTEXTOUT
+            int nY = s16();
+            int nX = s16();
+            int nLen = s16();
+            int nOptions = u16();
+            if ((nOptions & 0x0006)!=0) { nPos+=8; } // ETO_OPAQUE or ETO_CLIPPED
+            drawText(string8(nPos, Math.min(nLen, nEnd-nPos), state.font.sCharset), nX, nY);
+            break;
+        }
+        case 0x0F43: { // META_STRETCHDIB
+            nPos+=14;
+            int nDestHeight = s16();
+            int nDestWidth = s16();
+            int nYDest = s16();
+            int nXDest = s16();
+            drawImage(readPackedDIB(nPos, nEnd-nPos), nXDest, nYDest, nDestWidth, nDestHeight);
+            break;
+        }
+        case 0x0B41: // META_DIBSTRETCHBLT
+        case 0x0940: { // META_DIBBITBLT
+            if (nEnd-nStart==2*((nFunction>>8)+3)) { break; } // no bitmap
+            nPos+=4;
+            if (nFunction==0x0B41) { nPos+=4; } // source size
+            nPos+=4; // source origin
+            int nDestHeight = s16();
+            int nDestWidth = s16();
+            int nYDest = s16();
+            int nXDest = s16();
+            drawImage(readPackedDIB(nPos, nEnd-nPos), nXDest, nYDest, nDestWidth, nDestHeight);
+            break;
+        }
+        default:
+            // Other records do not affect the output
+        }
+    }
+	
+    // Add an object to the first free entry in the object table
+    private void addObject(Object object) {
+        for (int i=0; i<objects.length; i++) {
+            if (objects[i]==null) {
+                objects[i] = object;
+                return;
+            }
+        }
+        Object[] newObjects = new Object[2*objects.length];
+        System.arraycopy(objects, 0, newObjects, 0, objects.length);
+        newObjects[objects.length] = object;
+        objects = newObjects;
+    }
+	
+    private double[] readPoints(int nCount) {
+        double[] points = new double[2*count(nCount, 4)];
+        for (int i=0; i<2*nCount; i++) {
+            points[i] = s16();
+        }
+        return points;
+    }
+	
+    private static Rectangle2D rectangle(double fLeft, double fTop, double fRight, double fBottom) {
+        return new Rectangle2D.Double(Math.min(fLeft, fRight), Math.min(fTop, fBottom),
+            Math.abs(fRight-fLeft), Math.abs(fBottom-fTop));
+    }
+
+}
@@ -16,16 +16,17 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2018 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  version 1.6 (2018-05-24)
+ *  version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.epub;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -43,6 +44,10 @@ public final class EPUB3Converter extends Converter {
     public EPUB3Converter() {
         super(XhtmlDocument.XHTML5);
     }
+    
+    @Override protected EPUB3Converter createInstance() {
+    	return new EPUB3Converter();
+    }
 	
     @Override public ConverterResult convert(InputStream is, String sTargetFileName) throws IOException {
     	setOPS(true);
@@ -50,6 +55,12 @@ public final class EPUB3Converter extends Converter {
     	return createPackage(xhtmlResult,sTargetFileName);
     }
     
+    @Override public ConverterResult convert(File source, String sTargetFileName) throws IOException {
+    	setOPS(true);
+    	ConverterResult xhtmlResult = super.convert(source, "chapter");
+    	return createPackage(xhtmlResult,sTargetFileName);
+    }
+    
     @Override public ConverterResult convert(org.w3c.dom.Document dom, String sTargetFileName, boolean bDestructive) throws IOException {
     	setOPS(true);
     	ConverterResult xhtmlResult = super.convert(dom, "chapter", bDestructive);
@@ -60,6 +71,7 @@ public final class EPUB3Converter extends Converter {
     	ConverterResultImpl epubResult = new ConverterResultImpl();
     	epubResult.addDocument(new EPUBWriter(xhtmlResult,sTargetFileName,3,getXhtmlConfig()));
     	epubResult.setMetaData(xhtmlResult.getMetaData());
+    	epubResult.setStatistics(statistics);
     	return epubResult;
     }
 
@@ -16,16 +16,17 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2015 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  version 1.6 (2015-01-15)
+ *  version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.epub;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -42,6 +43,10 @@ public final class EPUBConverter extends Xhtml11Converter {
     public EPUBConverter() {
         super();
     }
+    
+    @Override protected EPUBConverter createInstance() {
+    	return new EPUBConverter();
+    }
 	
     @Override public ConverterResult convert(InputStream is, String sTargetFileName) throws IOException {
     	setOPS(true);
@@ -49,6 +54,12 @@ public final class EPUBConverter extends Xhtml11Converter {
     	return createPackage(xhtmlResult,sTargetFileName);
     }
     
+    @Override public ConverterResult convert(File source, String sTargetFileName) throws IOException {
+    	setOPS(true);
+    	ConverterResult xhtmlResult = super.convert(source, "chapter");
+    	return createPackage(xhtmlResult,sTargetFileName);
+    }
+    
     @Override public ConverterResult convert(org.w3c.dom.Document dom, String sTargetFileName, boolean bDestructive) throws IOException {
     	setOPS(true);
     	ConverterResult xhtmlResult = super.convert(dom, "chapter", bDestructive);
@@ -59,6 +70,7 @@ public final class EPUBConverter extends Xhtml11Converter {
     	ConverterResultImpl epubResult = new ConverterResultImpl();
     	epubResult.addDocument(new EPUBWriter(xhtmlResult,sTargetFileName,2,getXhtmlConfig()));
     	epubResult.setMetaData(xhtmlResult.getMetaData());
+    	epubResult.setStatistics(statistics);
     	return epubResult;
     }
 
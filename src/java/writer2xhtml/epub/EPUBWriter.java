@@ -16,24 +16,30 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2022 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  version 1.7 (2022-06-23)
+ *  version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.epub;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import writer2xhtml.api.ConverterResult;
+import writer2xhtml.api.MIMETypes;
 import writer2xhtml.api.OutputFile;
 import writer2xhtml.util.Misc;
 import writer2xhtml.xhtml.XhtmlConfig;
@@ -48,6 +54,10 @@ public class EPUBWriter implements OutputFile {
 	private static final byte[] mimeBytes = { 'a', 'p', 'p', 'l', 'i', 'c', 'a', 't', 'i', 'o', 'n', '/',
 		'e', 'p', 'u', 'b', '+', 'z', 'i', 'p'};
 	
+	// Files of these types are compressed already, and are stored without compression
+	private static final Set<String> storedMIMETypes = new HashSet<String>(Arrays.asList(
+		MIMETypes.PNG, MIMETypes.JPEG, MIMETypes.GIF, "font/woff", "font/woff2", "application/font-woff"));
+	
 	private ConverterResult xhtmlResult;
 	private String sFileName;
 	private int nVersion;
@@ -86,68 +96,110 @@ public class EPUBWriter implements OutputFile {
 		return nVersion==3;
 	}
 
-	public void write(OutputStream os) throws IOException {		
-		ZipOutputStream zos = new ZipOutputStream(os);
-		
-		// Write uncompressed MIME type as first entry
-		ZipEntry mimeEntry = new ZipEntry("mimetype");
-		mimeEntry.setMethod(ZipEntry.STORED);
-		mimeEntry.setCrc(0x2CAB616F);
-		mimeEntry.setSize(mimeBytes.length);
-		zos.putNextEntry(mimeEntry);
-		zos.write(mimeBytes, 0, mimeBytes.length);
-		zos.closeEntry();
-		
-		// Write container entry next
-		OutputFile containerWriter = new ContainerWriter();
-		ZipEntry containerEntry = new ZipEntry("META-INF/container.xml");
-		zos.putNextEntry(containerEntry);
-		writeZipEntry(containerWriter,zos);
-		zos.closeEntry();
+	public void write(OutputStream os) throws IOException {
+		// Collect the files in the order they should appear in the package (after the MIME type)
+		List<String> names = new ArrayList<String>();
+		List<OutputFile> files = new ArrayList<OutputFile>();
+
+		// Container entry first
+		names.add("META-INF/container.xml");
+		files.add(new ContainerWriter());
 		
 		// Then manifest
 		OPFWriter manifest = new OPFWriter(xhtmlResult,sFileName,nVersion,config);
-		ZipEntry manifestEntry = new ZipEntry("OEBPS/book.opf");
-		zos.putNextEntry(manifestEntry);
-		writeZipEntry(manifest,zos);
-		zos.closeEntry();
+		names.add("OEBPS/book.opf");
+		files.add(manifest);
 		
 		// And content table
 		if (nVersion==3) {
-			OutputFile navigation = new NavigationWriter(xhtmlResult, config.originalPageNumbers());
-			ZipEntry navigationEntry = new ZipEntry("OEBPS/nav.xhtml");
-			zos.putNextEntry(navigationEntry);
-			writeZipEntry(navigation,zos);
-			zos.closeEntry();
+			names.add("OEBPS/nav.xhtml");
+			files.add(new NavigationWriter(xhtmlResult, config.originalPageNumbers()));
 		}
 		if (nVersion!=3 || config.includeNCX()) {
-			OutputFile ncx = new NCXWriter(xhtmlResult, manifest.getUid());
-			ZipEntry ncxEntry = new ZipEntry("OEBPS/book.ncx");
-			zos.putNextEntry(ncxEntry);
-			writeZipEntry(ncx,zos);
-			zos.closeEntry();
+			names.add("OEBPS/book.ncx");
+			files.add(new NCXWriter(xhtmlResult, manifest.getUid()));
 		}
 		
 		// Finally XHTML content
 		Iterator<OutputFile> iter = xhtmlResult.iterator();
 		while (iter.hasNext()) {
 			OutputFile file = iter.next();
-			ZipEntry entry = new ZipEntry("OEBPS/"+file.getFileName());
-			zos.putNextEntry(entry);
-			writeZipEntry(file, zos);
-			zos.closeEntry();
+			names.add("OEBPS/"+file.getFileName());
+			files.add(file);
 		}
 		
-		zos.close();
+		int nCount = names.size();
+		if (config.epubParallelCompression()) {
+			ParallelZipWriter zip = new ParallelZipWriter(config.epubDeflateLevel());
+			zip.addEntry("mimetype", mimeBytes);
+			for (int i=0; i<nCount; i++) {
+				zip.addEntry(names.get(i), files.get(i), !storedMIMETypes.contains(files.get(i).getMIMEType()));
+			}
+			zip.write(os);
+		}
+		else {
+			ZipOutputStream zos = new ZipOutputStream(os);
+			zos.setLevel(config.epubDeflateLevel());
+			
+			// Write uncompressed MIME type as first entry
+			ZipEntry mimeEntry = new ZipEntry("mimetype");
+			mimeEntry.setMethod(ZipEntry.STORED);
+			mimeEntry.setCrc(0x2CAB616F);
+			mimeEntry.setSize(mimeBytes.length);
+			zos.putNextEntry(mimeEntry);
+			zos.write(mimeBytes, 0, mimeBytes.length);
+			zos.closeEntry();
+			
+			for (int i=0; i<nCount; i++) {
+				writeZipEntry(names.get(i), files.get(i), zos);
+			}
+			
+			zos.close();
+		}
 	}
 	
-	private void writeZipEntry(OutputFile file, ZipOutputStream zos) throws IOException {
-		// Unfortunately we cannot simply do file.write(zos) because the write method of OutputFile
-		// closes the OutputStream. Hence this suboptimal solution
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		file.write(baos);
-		byte[] content = baos.toByteArray();
-		zos.write(content, 0, content.length);
+	private void writeZipEntry(String sName, OutputFile file, ZipOutputStream zos) throws IOException {
+		ZipEntry entry = new ZipEntry(sName);
+		if (storedMIMETypes.contains(file.getMIMEType())) {
+			// The file is compressed already, so deflating it again is a waste of time. A stored entry needs
+			// the size and the CRC up front, hence we have to write the file twice (the first time to compute these)
+			EntryOutputStream counter = new EntryOutputStream(null);
+			file.write(counter);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(counter.nSize);
+			entry.setCompressedSize(counter.nSize);
+			entry.setCrc(counter.crc.getValue());
+		}
+		zos.putNextEntry(entry);
+		// We cannot simply do file.write(zos) because the write method of OutputFile closes the OutputStream
+		file.write(new EntryOutputStream(zos));
+		zos.closeEntry();
+	}
+	
+	// An output stream which writes to a zip entry, but is not allowed to close the zip file.
+	// Without a zip file, it only computes the size and the CRC of the data.
+	private static class EntryOutputStream extends OutputStream {
+		private final ZipOutputStream zos;
+		private final CRC32 crc = new CRC32();
+		private long nSize = 0;
+		
+		private EntryOutputStream(ZipOutputStream zos) {
+			this.zos = zos;
+		}
+		
+		@Override public void write(int b) throws IOException {
+			if (zos!=null) { zos.write(b); }
+			else { crc.update(b); nSize++; }
+		}
+		
+		@Override public void write(byte[] b, int nOff, int nLen) throws IOException {
+			if (zos!=null) { zos.write(b, nOff, nLen); }
+			else { crc.update(b, nOff, nLen); nSize+=nLen; }
+		}
+		
+		@Override public void close() {
+			// Do not close the zip file
+		}
 	}
 
 }
@@ -0,0 +1,289 @@
+/************************************************************************
+ *
+ *  ParallelZipWriter.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ *
+ *  version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.epub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import writer2xhtml.api.OutputFile;
+
+/** This class writes a zip file, where the entries are written and compressed concurrently on worker threads.
+ *  Each entry is compressed independently, and the entries are assembled in the order they were added,
+ *  hence the result does not depend on the number of threads. All entries get the same time stamp.
+ *  The zip file cannot exceed the limits of the original zip format (4 GB and 65535 entries).
+ */
+final class ParallelZipWriter {
+
+	private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+	private final int nLevel;
+	private final int nDosTime;
+	private final int nDosDate;
+	private final List<Future<Entry>> entries = new ArrayList<Future<Entry>>();
+
+	// An entry which is ready to be written
+	private static class Entry {
+		byte[] name;
+		boolean bDeflated;
+		long nCrc;
+		long nSize;
+		long nCompressedSize;
+		byte[] data;
+		long nOffset;
+	}
+
+	/** Create a new <code>ParallelZipWriter</code>
+	 *
+	 * @param nLevel the compression level (0-9, or -1 for the default level)
+	 */
+	ParallelZipWriter(int nLevel) {
+		this.nLevel = nLevel;
+		Calendar now = Calendar.getInstance();
+		nDosTime = (now.get(Calendar.HOUR_OF_DAY)<<11) | (now.get(Calendar.MINUTE)<<5) | (now.get(Calendar.SECOND)>>1);
+		nDosDate = ((now.get(Calendar.YEAR)-1980)<<9) | ((now.get(Calendar.MONTH)+1)<<5) | now.get(Calendar.DAY_OF_MONTH);
+	}
+
+	/** Add an entry given as a byte array, which is stored without compression
+	 *
+	 * @param sName the name of the entry
+	 * @param data the contents of the entry
+	 */
+	void addEntry(String sName, byte[] data) {
+		FutureTask<Entry> task = new FutureTask<Entry>(createEntry(sName, null, data, false));
+		task.run();
+		entries.add(task);
+	}
+
+	/** Add an entry given as an <code>OutputFile</code>. The file is written and compressed on a worker
+	 *  thread, hence it must not depend on any other entry.
+	 *
+	 * @param sName the name of the entry
+	 * @param file the file to write to the entry
+	 * @param bDeflate true if the entry should be compressed, false if it should be stored
+	 */
+	void addEntry(String sName, OutputFile file, boolean bDeflate) {
+		FutureTask<Entry> task = new FutureTask<Entry>(createEntry(sName, file, null, bDeflate));
+		ExecutorService executor = getDeflaterThreads();
+		if (executor!=null) {
+			executor.execute(task);
+		}
+		else {
+			task.run();
+		}
+		entries.add(task);
+	}
+
+	/** Write the zip file and close the stream. The entries are written as soon as they are ready,
+	 *  in the order they were added.
+	 *
+	 * @param os the stream to write the zip file to
+	 * @throws IOException if an error occurs while creating an entry or writing the zip file
+	 */
+	void write(OutputStream os) throws IOException {
+		if (entries.size()>0xFFFF) {
+			throw new IOException("Too many entries for a zip file");
+		}
+		List<Entry> written = new ArrayList<Entry>(entries.size());
+		long nOffset = 0;
+		for (Future<Entry> future : entries) {
+			Entry entry = getEntry(future);
+			entry.nOffset = nOffset;
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			writeInt(header, 0x04034b50L);
+			writeEntryInfo(header, entry);
+			writeShort(header, 0); // no extra field
+			header.write(entry.name);
+			header.writeTo(os);
+			os.write(entry.data);
+			nOffset += header.size()+entry.data.length;
+			if (nOffset>MAX_SIZE) {
+				throw new IOException("Zip file too large");
+			}
+			// The data is not needed anymore
+			entry.data = null;
+			written.add(entry);
+		}
+
+		ByteArrayOutputStream dir = new ByteArrayOutputStream();
+		for (Entry entry : written) {
+			writeInt(dir, 0x02014b50L);
+			writeShort(dir, 20); // version made by
+			writeEntryInfo(dir, entry);
+			writeShort(dir, 0); // no extra field
+			writeShort(dir, 0); // no comment
+			writeShort(dir, 0); // disk number
+			writeShort(dir, 0); // internal attributes
+			writeInt(dir, 0); // external attributes
+			writeInt(dir, entry.nOffset);
+			dir.write(entry.name);
+		}
+		int nDirSize = dir.size();
+		writeInt(dir, 0x06054b50L);
+		writeShort(dir, 0); // disk number
+		writeShort(dir, 0); // disk with the central directory
+		writeShort(dir, written.size());
+		writeShort(dir, written.size());
+		writeInt(dir, nDirSize);
+		writeInt(dir, nOffset);
+		writeShort(dir, 0); // no comment
+		dir.writeTo(os);
+		os.close();
+	}
+
+	// Create a task to create an entry from either an output file or a byte array
+	private Callable<Entry> createEntry(final String sName, final OutputFile file, final byte[] data,
+			final boolean bDeflate) {
+		return new Callable<Entry>() {
+			public Entry call() throws IOException {
+				Entry entry = new Entry();
+				entry.name = sName.getBytes(StandardCharsets.UTF_8);
+				entry.bDeflated = bDeflate;
+				byte[] content = data;
+				if (file!=null) {
+					ByteArrayOutputStream baos = new ByteArrayOutputStream();
+					file.write(baos);
+					content = baos.toByteArray();
+				}
+				CRC32 crc = new CRC32();
+				crc.update(content);
+				entry.nCrc = crc.getValue();
+				entry.nSize = content.length;
+				entry.data = bDeflate ? deflate(content) : content;
+				entry.nCompressedSize = entry.data.length;
+				if (entry.nSize>MAX_SIZE || entry.nCompressedSize>MAX_SIZE) {
+					throw new IOException("Zip entry too large: "+sName);
+				}
+				return entry;
+			}
+		};
+	}
+
+	// Compress data in the (raw) deflate format used in zip files
+	private byte[] deflate(byte[] content) {
+		Deflater deflater = new Deflater(nLevel, true);
+		try {
+			deflater.setInput(content);
+			deflater.finish();
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(content.length/2+64);
+			byte[] buffer = new byte[8192];
+			while (!deflater.finished()) {
+				int nLen = deflater.deflate(buffer);
+				baos.write(buffer, 0, nLen);
+			}
+			return baos.toByteArray();
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	// Write the part of the header which is common to the local header and the central directory,
+	// from the version needed to extract to the name length
+	private void writeEntryInfo(ByteArrayOutputStream header, Entry entry) {
+		writeShort(header, entry.bDeflated ? 20 : 10); // version needed to extract
+		writeShort(header, isASCII(entry.name) ? 0 : 0x0800); // the 0x0800 flag indicates UTF-8 names
+		writeShort(header, entry.bDeflated ? 8 : 0); // compression method
+		writeShort(header, nDosTime);
+		writeShort(header, nDosDate);
+		writeInt(header, entry.nCrc);
+		writeInt(header, entry.nCompressedSize);
+		writeInt(header, entry.nSize);
+		writeShort(header, entry.name.length);
+	}
+
+	private static boolean isASCII(byte[] bytes) {
+		for (byte b : bytes) {
+			if (b<0) { return false; }
+		}
+		return true;
+	}
+
+	// Zip files use little endian numbers
+	private static void writeShort(ByteArrayOutputStream os, int n) {
+		os.write(n & 0xFF);
+		os.write((n>>8) & 0xFF);
+	}
+
+	private static void writeInt(ByteArrayOutputStream os, long n) {
+		writeShort(os, (int) (n & 0xFFFF));
+		writeShort(os, (int) ((n>>16) & 0xFFFF));
+	}
+
+	// Wait for an entry to be ready
+	private static Entry getEntry(Future<Entry> future) throws IOException {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing the zip file");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) { throw (IOException) cause; }
+			if (cause instanceof RuntimeException) { throw (RuntimeException) cause; }
+			if (cause instanceof Error) { throw (Error) cause; }
+			throw new IOException(cause);
+		}
+	}
+
+	// Worker threads shared by all zip files. The threads are daemon threads, so they do not
+	// prevent the application from terminating
+	private static ExecutorService deflaterThreads = null;
+
+	// Get the worker threads, or null if there is nothing to gain from using them
+	private static synchronized ExecutorService getDeflaterThreads() {
+		if (deflaterThreads==null && Runtime.getRuntime().availableProcessors()>1) {
+			deflaterThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "w2x-deflater");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		}
+		return deflaterThreads;
+	}
+
+}
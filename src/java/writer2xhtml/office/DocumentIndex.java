@@ -0,0 +1,388 @@
+/************************************************************************
+ *
+ *  DocumentIndex.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.office;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/** This class holds the names collected from the content of a document when it is loaded by
+ *  <code>OfficeReader</code>: References to notes, bookmarks, reference marks and sequences, the headings
+ *  and lists containing bookmarks and reference marks, the names of sequences and all internal links.
+ *  The index does not refer to the DOM tree, hence it remains valid when converted content is removed
+ *  from the document.
+ *  
+ *  <p>The index can be stored in a file next to the source document and read again when the same document
+ *  is converted later. The file is plain UTF-8 text with one entry per line, and is identified by the size,
+ *  the modification time and the SHA-256 hash of the source document. A file which does not match the
+ *  source document or which is damaged in any way is ignored.</p>
+ */
+public class DocumentIndex {
+	
+    // The first line of a stored index
+    private static final String HEADER = "Writer2xhtml document index 1";
+
+    // All references
+    final Set<String> footnoteRef = new HashSet<String>();
+    final Set<String> endnoteRef = new HashSet<String>();
+    final Set<String> referenceRef = new HashSet<String>();
+    final Set<String> bookmarkRef = new HashSet<String>();
+    final Set<String> sequenceRef = new HashSet<String>();
+	
+    // Reference marks and bookmarks contained in headings or lists
+    final Map<String,Integer> referenceHeading = new HashMap<String,Integer>();
+    final Map<String,Integer> bookmarkHeading = new HashMap<String,Integer>();
+    final Map<String,String> bookmarkList = new HashMap<String,String>();
+    final Map<String,Integer> bookmarkListLevel = new HashMap<String,Integer>();
+	
+    // Map sequence reference names to sequence names
+    final Map<String, String> seqrefNames = new HashMap<String, String>();
+	
+    // All internal hyperlinks
+    final Set<String> links = new HashSet<String>();
+    
+    DocumentIndex() {
+    }
+
+    /** Get the sequence name associated with a reference name
+     *  @param sRefName the name of the reference
+     *  @return the name of the sequence or null if no such sequence exists
+     */
+    public String getSequenceFromRef(String sRefName) {
+        return seqrefNames.get(sRefName);
+    }
+	
+    /** Is there a reference to this footnote id?
+     *  @param sId the id of the footnote
+     *  @return true if there is a reference
+     */
+    public boolean hasFootnoteRefTo(String sId) {
+        return footnoteRef.contains(sId);
+    }
+
+    /** Is there a reference to this endnote?
+     *  @param sId the id of the endnote
+     *  @return true if there is a reference
+     */
+    public boolean hasEndnoteRefTo(String sId) {
+        return endnoteRef.contains(sId);
+    }
+
+    /** Get the level of the heading containing this reference mark
+     *  @param sName the name of the reference mark 
+     *  @return the level or 0 if the reference mark is not contained in a heading
+     */
+    public int getReferenceMarkHeadingLevel(String sName) {
+    	Integer level = referenceHeading.get(sName);
+        return level!=null ? level : 0;
+    }
+
+    /** Is there a reference to this reference mark?
+     *  @param sName the name of the reference mark 
+     *  @return true if there is a reference
+     */
+    public boolean hasReferenceRefTo(String sName) {
+        return referenceRef.contains(sName);
+    }
+
+    /** Get the level of the heading containing this bookmark
+     *  @param sName the name of the bookmark 
+     *  @return the level or 0 if the bookmark is not contained in a heading
+     */
+    public int getBookmarkHeadingLevel(String sName) {
+    	Integer level = bookmarkHeading.get(sName);
+        return level!=null ? level : 0;
+    }
+    
+    /** Get the list style name associated with a bookmark in a list
+     *  @param sName the name of the bookmark
+     *  @return the list style name or null if the bookmark is not contained in a list or the list does not
+     *  have a style name
+     */
+    public String getBookmarkListStyle(String sName) {
+    	return bookmarkList.get(sName);
+    }
+
+    /** Get the list level associated with a bookmark in a list
+     *  @param sName the name of the bookmark
+     *  @return the level or 0 if the bookmark is not contained in a list
+     */
+    public int getBookmarkListLevel(String sName) {
+    	Integer level = bookmarkListLevel.get(sName);
+        return level!=null ? level : 0;
+    }
+
+    /** Is there a reference to this bookmark?
+     *  @param sName the name of the bookmark
+     *  @return true if there is a reference
+     */
+    public boolean hasBookmarkRefTo(String sName) {
+        return bookmarkRef.contains(sName);
+    }
+    
+    /** Is there a reference to this sequence field?
+     *  @param sId the id of the sequence field
+     *  @return true if there is a reference
+     */
+    public boolean hasSequenceRefTo(String sId) {
+        return sequenceRef.contains(sId);
+    }
+
+    /** Is there a link to this anchor name?
+     *  @param sName the name of the anchor
+     *  @return true if there is a link
+     */
+    public boolean hasLinkTo(String sName) {
+        return links.contains(sName);
+    }
+    
+    /** Get the file used to store the index of a source document
+     * 
+     * @param source the source document
+     * @return the index file
+     */
+    public static File getIndexFile(File source) {
+    	return new File(source.getPath()+".w2xindex");
+    }
+    
+    /** Read the stored index of a source document
+     * 
+     * @param source the source document
+     * @return the index, or null if there is no stored index for the current version of the document
+     */
+    public static DocumentIndex read(File source) {
+    	File file = getIndexFile(source);
+    	if (!file.isFile()) { return null; }
+    	try {
+    		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+    				StandardCharsets.UTF_8));
+    		try {
+    			// The hash is only computed if the size and modification time match
+    			if (!HEADER.equals(reader.readLine())) { return null; }
+    			String[] key = split(reader.readLine());
+    			if (key==null || key.length!=3 || !key[0].equals(Long.toString(source.length()))
+    					|| !key[1].equals(Long.toString(source.lastModified())) || !key[2].equals(createHash(source))) {
+    				return null;
+    			}
+    			DocumentIndex index = new DocumentIndex();
+    			String sLine;
+    			while ((sLine = reader.readLine())!=null) {
+    				if (!index.readEntry(split(sLine))) { return null; }
+    			}
+    			return index;
+    		}
+    		finally {
+    			reader.close();
+    		}
+    	}
+    	catch (IOException e) {
+    		return null;
+    	}
+    	catch (NumberFormatException e) {
+    		return null;
+    	}
+    }
+    
+    /** Store this index for a source document. If the file cannot be written, the index is not stored.
+     * 
+     * @param source the source document
+     */
+    public void write(File source) {
+    	File file = getIndexFile(source);
+    	try {
+    		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+    				StandardCharsets.UTF_8));
+    		boolean bSuccess = false;
+    		try {
+    			writer.write(HEADER);
+    			writer.write('\n');
+    			writeEntry(writer, Long.toString(source.length()), Long.toString(source.lastModified()),
+    					createHash(source));
+    			writeEntries(writer, "footnote-ref", footnoteRef);
+    			writeEntries(writer, "endnote-ref", endnoteRef);
+    			writeEntries(writer, "reference-ref", referenceRef);
+    			writeEntries(writer, "bookmark-ref", bookmarkRef);
+    			writeEntries(writer, "sequence-ref", sequenceRef);
+    			writeEntries(writer, "reference-heading", referenceHeading);
+    			writeEntries(writer, "bookmark-heading", bookmarkHeading);
+    			writeEntries(writer, "bookmark-list", bookmarkList);
+    			writeEntries(writer, "bookmark-list-level", bookmarkListLevel);
+    			writeEntries(writer, "sequence-name", seqrefNames);
+    			writeEntries(writer, "link", links);
+    			bSuccess = true;
+    		}
+    		finally {
+    			writer.close();
+    			if (!bSuccess) { file.delete(); }
+    		}
+    	}
+    	catch (IOException e) {
+    		// The index is not stored
+    		file.delete();
+    	}
+    }
+    
+    // Read an entry, returning false if the entry is not valid
+    private boolean readEntry(String[] entry) {
+    	if (entry==null) { return false; }
+    	String sKind = entry[0];
+    	if (entry.length==2) {
+    		if ("footnote-ref".equals(sKind)) { footnoteRef.add(entry[1]); }
+    		else if ("endnote-ref".equals(sKind)) { endnoteRef.add(entry[1]); }
+    		else if ("reference-ref".equals(sKind)) { referenceRef.add(entry[1]); }
+    		else if ("bookmark-ref".equals(sKind)) { bookmarkRef.add(entry[1]); }
+    		else if ("sequence-ref".equals(sKind)) { sequenceRef.add(entry[1]); }
+    		else if ("link".equals(sKind)) { links.add(entry[1]); }
+    		else if ("bookmark-list".equals(sKind)) { bookmarkList.put(entry[1], null); }
+    		else { return false; }
+    	}
+    	else if (entry.length==3) {
+    		if ("reference-heading".equals(sKind)) { referenceHeading.put(entry[1], Integer.valueOf(entry[2])); }
+    		else if ("bookmark-heading".equals(sKind)) { bookmarkHeading.put(entry[1], Integer.valueOf(entry[2])); }
+    		else if ("bookmark-list".equals(sKind)) { bookmarkList.put(entry[1], entry[2]); }
+    		else if ("bookmark-list-level".equals(sKind)) { bookmarkListLevel.put(entry[1], Integer.valueOf(entry[2])); }
+    		else if ("sequence-name".equals(sKind)) { seqrefNames.put(entry[1], entry[2]); }
+    		else { return false; }
+    	}
+    	else {
+    		return false;
+    	}
+    	return true;
+    }
+    
+    private static void writeEntries(Writer writer, String sKind, Set<String> names) throws IOException {
+    	for (String sName : names) {
+    		writeEntry(writer, sKind, sName);
+    	}
+    }
+    
+    private static void writeEntries(Writer writer, String sKind, Map<String,?> names) throws IOException {
+    	for (Map.Entry<String,?> entry : names.entrySet()) {
+    		// A bookmark in a list may have no list style name, in which case the value is left out
+    		if (entry.getValue()!=null) {
+    			writeEntry(writer, sKind, entry.getKey(), entry.getValue().toString());
+    		}
+    		else {
+    			writeEntry(writer, sKind, entry.getKey());
+    		}
+    	}
+    }
+    
+    // Write the fields of an entry separated by tabs. Backslash, tab and line breaks are escaped
+    private static void writeEntry(Writer writer, String... fields) throws IOException {
+    	for (int i=0; i<fields.length; i++) {
+    		if (i>0) { writer.write('\t'); }
+    		String s = fields[i];
+    		int nLen = s.length();
+    		for (int j=0; j<nLen; j++) {
+    			char c = s.charAt(j);
+    			switch (c) {
+    			case '\\': writer.write("\\\\"); break;
+    			case '\t': writer.write("\\t"); break;
+    			case '\n': writer.write("\\n"); break;
+    			case '\r': writer.write("\\r"); break;
+    			default: writer.write(c);
+    			}
+    		}
+    	}
+    	writer.write('\n');
+    }
+    
+    // Split a line into fields, or return null if the line is not valid
+    private static String[] split(String sLine) {
+    	if (sLine==null) { return null; }
+    	String[] fields = sLine.split("\t", -1);
+    	for (int i=0; i<fields.length; i++) {
+    		String s = fields[i];
+    		if (s.indexOf('\\')>-1) {
+    			StringBuilder buf = new StringBuilder(s.length());
+    			int nLen = s.length();
+    			for (int j=0; j<nLen; j++) {
+    				char c = s.charAt(j);
+    				if (c=='\\') {
+    					if (++j==nLen) { return null; }
+    					switch (s.charAt(j)) {
+    					case '\\': buf.append('\\'); break;
+    					case 't': buf.append('\t'); break;
+    					case 'n': buf.append('\n'); break;
+    					case 'r': buf.append('\r'); break;
+    					default: return null;
+    					}
+    				}
+    				else {
+    					buf.append(c);
+    				}
+    			}
+    			fields[i] = buf.toString();
+    		}
+    	}
+    	return fields;
+    }
+    
+    // Create a hexadecimal SHA-256 hash of a file
+    private static String createHash(File file) throws IOException {
+    	MessageDigest md;
+    	try {
+    		md = MessageDigest.getInstance("SHA-256");
+    	} catch (NoSuchAlgorithmException e) {
+    		// This would be surprising (all Java platforms support SHA-256)
+    		throw new IOException(e);
+    	}
+    	InputStream is = new FileInputStream(file);
+    	try {
+    		byte[] buf = new byte[65536];
+    		int nLen;
+    		while ((nLen = is.read(buf))>0) {
+    			md.update(buf, 0, nLen);
+    		}
+    	}
+    	finally {
+    		is.close();
+    	}
+    	byte[] digest = md.digest();
+    	StringBuilder buf = new StringBuilder(2*digest.length);
+    	for (byte b : digest) {
+    		buf.append(Character.forDigit((b>>4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    	}
+    	return buf.toString();
+    }
+
+}
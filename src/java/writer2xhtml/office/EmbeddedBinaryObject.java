@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2014 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.4 (2012-03-28)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -33,7 +33,10 @@ import writer2xhtml.util.SimpleZipReader;
  */
 public class EmbeddedBinaryObject extends EmbeddedObject {
     
-    /** The object's binary representation. */
+    /** The package containing the object */
+    private SimpleZipReader source;
+    
+    /** The object's binary representation (read on demand) */
     private byte[] blob = null;
         
     /**
@@ -47,19 +50,23 @@ public class EmbeddedBinaryObject extends EmbeddedObject {
      */    
     protected EmbeddedBinaryObject(String sName, String sType, OfficeDocument doc, SimpleZipReader source) {
     	super(sName,sType,doc);
-    	blob = source.getEntry(sName);
+    	this.source = source;
     }
     
-    /** Get the binary data for this object
+    /** Get the binary data for this object. The data is read from the package on first invocation.
      *
      * @return  A <code>byte</code> array containing the object's data.
      */
     public byte[] getBinaryData() {
+    	if (blob==null && source!=null) {
+    		blob = source.getEntry(getName());
+    	}
         return blob;
     }    
     
     public void dispose() {
     	super.dispose();
+    	source = null;
     	blob = null;
     }
 
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2014 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.4 (2014-08-28)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -41,9 +41,8 @@ import writer2xhtml.util.SimpleZipReader;
  */
 public class EmbeddedXMLObject extends EmbeddedObject {
     
-	// Byte entries for the XML streams of this object
-	private byte[] contentBytes = null;
-	private byte[] stylesBytes = null;
+	// The package containing the XML streams of this object
+	private SimpleZipReader source = null;
 	
     // DOM trees representing the XML parts of this object
     protected Document contentDOM  = null;
@@ -57,9 +56,8 @@ public class EmbeddedXMLObject extends EmbeddedObject {
      */
     protected EmbeddedXMLObject(String sName, String sType, OfficeDocument doc, SimpleZipReader source) {              
         super(sName, sType, doc);
-        // Read the bytes, but defer parsing until required (at that point, the bytes are nullified)
-        contentBytes = source.getEntry(sName+"/"+OfficeDocument.CONTENTXML);
-        stylesBytes = source.getEntry(sName+"/"+OfficeDocument.STYLESXML);
+        // Defer reading and parsing until required
+        this.source = source;
     }  
     
     /**
@@ -72,8 +70,7 @@ public class EmbeddedXMLObject extends EmbeddedObject {
      */
     public Document getContentDOM() throws SAXException, IOException {
         if (contentDOM==null) {
-            contentDOM=getDOM(contentBytes);
-            contentBytes=null;
+            contentDOM=getDOM(OfficeDocument.CONTENTXML);
         }
         return contentDOM;
     }
@@ -88,23 +85,21 @@ public class EmbeddedXMLObject extends EmbeddedObject {
      */       
     public Document getStylesDOM() throws SAXException, IOException {
         if (stylesDOM==null) {
-            stylesDOM = getDOM(stylesBytes);
-            stylesBytes=null;
+            stylesDOM = getDOM(OfficeDocument.STYLESXML);
         }
         return stylesDOM;
     }
     
-    private Document getDOM(byte[] data) throws SAXException, IOException {
-    	if (data!=null) {
-    		return OfficeDocument.parse(data);
+    private Document getDOM(String sFileName) throws SAXException, IOException {
+    	if (source!=null) {
+    		return OfficeDocument.parseEntry(source, getName()+"/"+sFileName);
     	}
     	return null;
     }
     
     public void dispose() {
     	super.dispose();
-    	contentBytes = null;
-    	stylesBytes = null;
+    	source = null;
     	contentDOM  = null;
         stylesDOM   = null;
     }
@@ -16,26 +16,32 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2014 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.4 (2014-08-28)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.office;
 
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Map;
 import java.util.HashMap;
-
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Document;
@@ -62,6 +68,9 @@ public class OfficeDocument {
     
     // Identify package format
     private boolean bIsPackageFormat = false;
+    
+    // The time spent parsing XML
+    private long nParseTime = 0;
 
 	/** DOM <code>Document</code> of content.xml. */
 	private Document contentDoc = null;
@@ -78,12 +87,23 @@ public class OfficeDocument {
 	/** Collection to keep track of the embedded objects in the document. */
 	private Map<String, EmbeddedObject> embeddedObjects = null;
 	
+	/** The package from which embedded objects are read on demand (null for flat XML) */
+	private SimpleZipReader zip = null;
+	
 	/** Package or flat format? 
 	 *  @return true if the document is in package format, false if it's flat XML
 	 */
 	public boolean isPackageFormat() {
 		return bIsPackageFormat;
 	}
+	
+	/** Get the time spent parsing the XML parts of the document when it was read
+	 * 
+	 *  @return the time in nanoseconds
+	 */
+	public long getParseTime() {
+		return nParseTime;
+	}
 
 	/**
 	 *  Return a DOM <code>Document</code> object of the content.xml file.
@@ -186,7 +206,9 @@ public class OfficeDocument {
 	 * @param dom the DOM tree
 	 */
 	public void read(org.w3c.dom.Document dom) {
+		close();
 		contentDoc = dom;
+		nParseTime = 0;
 		styleDoc = null;
 		metaDoc = null;
 		manifestDoc = null;
@@ -206,6 +228,7 @@ public class OfficeDocument {
 	 * @throws SAXException 
 	 */
 	public void read(InputStream is) throws IOException {
+		close();
 		// We need to read 4 bytes ahead to detect flat or zip format
 		BufferedInputStream inbuf = new BufferedInputStream(is);
 		byte[] bytes = new byte[4];
@@ -221,58 +244,205 @@ public class OfficeDocument {
 		}
 	}
 
-	private void readZip(InputStream is) throws IOException {
-		SimpleZipReader zip = new SimpleZipReader();
-		zip.read(is);
-
-		byte contentBytes[] = zip.getEntry(CONTENTXML);
-		if (contentBytes == null) {
-			throw new IOException("Entry content.xml not found in file");
-		}
+	/**
+	 *  Read the Office <code>Document</code> from the given <code>File</code>.
+	 *  Performs simple type detection to determine package or flat format.
+	 *  In package format, only the XML streams are read at this point, while embedded objects
+	 *  are read from the file on demand.
+	 *
+	 *  @param  file  Office document <code>File</code>.
+	 *
+	 *  @throws  IOException  If any I/O error occurs.
+	 */
+	public void read(File file) throws IOException {
+		close();
+		byte[] bytes = new byte[4];
+		InputStream is = new FileInputStream(file);
 		try {
-			contentDoc = parse(contentBytes);
-		} catch (SAXException ex) {
-			throw new IOException(ex);
+			is.read(bytes);
 		}
-
-		byte styleBytes[] = zip.getEntry(STYLESXML);
-		if (styleBytes != null) {
+		finally {
+			is.close();
+		}
+		if (MIMETypes.ZIP.equals(MIMETypes.getMagicMIMEType(bytes))) {
+			SimpleZipReader zip = new SimpleZipReader();
+			zip.read(file);
+			readZip(zip);
+		}
+		else {
+			InputStream fis = new BufferedInputStream(new FileInputStream(file));
 			try {
-				styleDoc = parse(styleBytes);
-			} catch (SAXException ex) {
-				throw new IOException(ex);
+				readFlat(fis);
+			}
+			finally {
+				fis.close();
 			}
 		}
+	}
+	
+	/** Close the document. This releases the package file, hence embedded objects which has
+	 *  not yet been read will no longer be available. The DOM trees are not affected.
+	 */
+	public void close() {
+		if (zip!=null) {
+			zip.close();
+			zip = null;
+		}
+	}
 
-		byte metaBytes[] = zip.getEntry(METAXML);
-		if (metaBytes != null) {
+	private void readZip(InputStream is) throws IOException {
+		SimpleZipReader zip = new SimpleZipReader();
+		zip.read(is);
+		readZip(zip);
+	}
+	
+	private void readZip(SimpleZipReader zip) throws IOException {
+		this.zip = zip;
+		boolean bSuccess = false;
+		try {
+			if (!zip.hasEntry(CONTENTXML)) {
+				throw new IOException("Entry content.xml not found in file");
+			}
+			// The parts are independent, so we parse the other parts on worker threads while
+			// content.xml (usually the largest part) is parsed on this thread
+			long nStart = System.nanoTime();
+			Future<Document> styles = parseEntryLater(zip, STYLESXML);
+			Future<Document> meta = parseEntryLater(zip, METAXML);
+			Future<Document> manifest = parseEntryLater(zip, MANIFESTXML);
+			Throwable exception = null;
 			try {
-				metaDoc = parse(metaBytes);
-			} catch (SAXException ex) {
-				throw new IOException(ex);
+				contentDoc = parseEntry(zip, CONTENTXML);
 			}
-		}
-
-		byte manifestBytes[] = zip.getEntry(MANIFESTXML);
-		if (manifestBytes != null) {
+			catch (Throwable e) {
+				exception = e;
+			}
+			// Always wait for all workers, the package must not be closed while they are reading it
 			try {
-				manifestDoc = parse(manifestBytes);
-			} catch (SAXException ex) {
-				throw new IOException(ex);
+				styleDoc = getParsedEntry(styles);
+			}
+			catch (Throwable e) {
+				if (exception==null) { exception = e; }
+			}
+			try {
+				metaDoc = getParsedEntry(meta);
+			}
+			catch (Throwable e) {
+				if (exception==null) { exception = e; }
+			}
+			try {
+				manifestDoc = getParsedEntry(manifest);
+			}
+			catch (Throwable e) {
+				if (exception==null) { exception = e; }
+			}
+			nParseTime = System.nanoTime()-nStart;
+			if (exception==null && Thread.currentThread().isInterrupted()) {
+				exception = new InterruptedIOException("Interrupted while parsing the document");
+			}
+			if (exception instanceof IOException) { throw (IOException) exception; }
+			if (exception instanceof RuntimeException) { throw (RuntimeException) exception; }
+			if (exception instanceof Error) { throw (Error) exception; }
+			if (exception!=null) { throw new IOException(exception); }
+			bSuccess = true;
+		}
+		finally {
+			if (!bSuccess) {
+				close();
 			}
 		}
 		
 		bIsPackageFormat = true;
 		getEmbeddedObjects(zip);
 	}
-
+	
+	// Parse an entry from the package, returning null if the entry does not exist
+	static Document parseEntry(SimpleZipReader zip, String sName) throws IOException {
+		InputStream is = zip.getInputStream(sName);
+		if (is!=null) {
+			try {
+				return parse(is);
+			} catch (SAXException ex) {
+				throw new IOException(ex);
+			}
+			finally {
+				is.close();
+			}
+		}
+		return null;
+	}
+	
+	// Parse an entry from the package on a worker thread (or immediately if we only have one processor)
+	private static Future<Document> parseEntryLater(final SimpleZipReader zip, final String sName) {
+		FutureTask<Document> task = new FutureTask<Document>(new Callable<Document>() {
+			public Document call() throws IOException {
+				return parseEntry(zip, sName);
+			}
+		});
+		ExecutorService executor = getParserThreads();
+		if (executor!=null) {
+			executor.execute(task);
+		}
+		else {
+			task.run();
+		}
+		return task;
+	}
+	
+	// Wait for the result of parsing an entry on a worker thread. The wait cannot be interrupted, because the package
+	// must not be closed while the worker is reading it, but the interrupt status of the thread is restored
+	private static Document getParsedEntry(Future<Document> future) throws IOException {
+		boolean bInterrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				}
+				catch (InterruptedException e) {
+					bInterrupted = true;
+				}
+			}
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) { throw (IOException) cause; }
+			if (cause instanceof RuntimeException) { throw (RuntimeException) cause; }
+			if (cause instanceof Error) { throw (Error) cause; }
+			throw new IOException(cause);
+		}
+		finally {
+			if (bInterrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	// Worker threads shared by all documents. The threads are daemon threads, so they do not
+	// prevent the application from terminating
+	private static ExecutorService parserThreads = null;
+	
+	// Get the worker threads, or null if there is nothing to gain from using them
+	private static synchronized ExecutorService getParserThreads() {
+		if (parserThreads==null && Runtime.getRuntime().availableProcessors()>1) {
+			parserThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "w2x-parser");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		}
+		return parserThreads;
+	}
 
 	private void readFlat(InputStream is) throws IOException {
+		long nStart = System.nanoTime();
 		try {
 			contentDoc = SimpleXMLParser.parse(is);
 		} catch (SAXException e) {
 			throw new IOException(e);
 		}
+		nParseTime = System.nanoTime()-nStart;
 		styleDoc = null;
 		metaDoc = null;
 		manifestDoc = null;
@@ -285,7 +455,6 @@ public class OfficeDocument {
 	 *  <code>Document</code> object using the
 	 *  <code>DocumentBuilder</code> object.
 	 *
-	 *  @param  builder  <code>DocumentBuilder</code> object for parsing.
 	 *  @param  bytes    <code>byte</code> array for parsing.
 	 *
 	 *  @return  Resulting DOM <code>Document</code> object.
@@ -293,18 +462,21 @@ public class OfficeDocument {
 	 *  @throws  SAXException  If any parsing error occurs.
 	 */
 	static Document parse(byte bytes[]) throws SAXException, IOException {
-		SAXParserFactory factory=SAXParserFactory.newInstance();
-		SimpleXMLParser handler = new SimpleXMLParser();
-		try {
-			SAXParser saxParser = factory.newSAXParser();
-			saxParser.parse(new ByteArrayInputStream(bytes),handler);
-			return handler.getDOM();
-		}
-		catch (ParserConfigurationException e) {
-			System.err.println("Oops - failed to get XML parser!?");
-			e.printStackTrace();
-		}
-		return null;
+		return parse(new ByteArrayInputStream(bytes));
+	}
+	
+	/**
+	 *  Parse given <code>InputStream</code> into a DOM
+	 *  <code>Document</code> object.
+	 *
+	 *  @param  is    <code>InputStream</code> for parsing.
+	 *
+	 *  @return  Resulting DOM <code>Document</code> object.
+	 *
+	 *  @throws  SAXException  If any parsing error occurs.
+	 */
+	static Document parse(InputStream is) throws SAXException, IOException {
+		return SimpleXMLParser.parse(is);
 	}
 
 }
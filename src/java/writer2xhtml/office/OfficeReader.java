@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2022 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2022-08-17)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -28,18 +28,17 @@ package writer2xhtml.office;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.Document;
-import org.w3c.dom.Text;
 
 import writer2xhtml.util.Misc;
 
@@ -194,6 +193,7 @@ public class OfficeReader {
      *  @return the number of characters
      */
     public static int getCharacterCount(Node node) {
+    	// Note: The same count is computed by traverseContent
         Node child = node.getFirstChild();
         int nCount = 0;
         while (child!=null) {
@@ -336,24 +336,9 @@ public class OfficeReader {
     // Map paragraphs to sequence names (caption helper)
     private Map<Element, String> sequenceNames = new Hashtable<Element, String>();
 	
-    // Map sequence reference names to sequence names
-    private Map<String, String> seqrefNames = new Hashtable<String, String>();
-	
-    // All references
-    private Set<String> footnoteRef = new HashSet<String>();
-    private Set<String> endnoteRef = new HashSet<String>();
-    private Set<String> referenceRef = new HashSet<String>();
-    private Set<String> bookmarkRef = new HashSet<String>();
-    private Set<String> sequenceRef = new HashSet<String>();
-	
-    // Reference marks and bookmarks contained in headings or lists
-    private Map<String,Integer> referenceHeading = new HashMap<String,Integer>();
-    private Map<String,Integer> bookmarkHeading = new HashMap<String,Integer>();
-    private Map<String,String> bookmarkList = new HashMap<String,String>();
-    private Map<String,Integer> bookmarkListLevel = new HashMap<String,Integer>();
-	
-    // All internal hyperlinks
-    private Set<String> links = new HashSet<String>();
+    // References, marks, sequences and links, and a flag to indicate that they should be collected from the content
+    private DocumentIndex documentIndex = new DocumentIndex();
+    private boolean bCollectIndex = true;
 	
     // Forms
     private FormsReader forms = new FormsReader();
@@ -363,6 +348,16 @@ public class OfficeReader {
     
     // The first image in the document
     private Element firstImage = null;
+    
+    // The number of characters in each paragraph and heading. The keys are weak, because the converter removes
+    // converted blocks from the document, and the map must not keep them alive (DOM nodes have identity equality)
+    private Map<Node,Integer> characterCounts = new WeakHashMap<Node,Integer>();
+    
+    // Counts collected while loading the content
+    private int nElementCount = 0;
+    private int nParagraphCount = 0;
+    private int nTableCount = 0;
+    private int nImageCount = 0;
 	
     // Identify OASIS OpenDocument format
     private boolean bOpenDocument = false;
@@ -372,6 +367,9 @@ public class OfficeReader {
     private boolean bSpreadsheet = false;
     private boolean bPresentation = false;	
     
+    // Are we allowed to modify the DOM tree?
+    private boolean bDestructive = false;
+    
     ///////////////////////////////////////////////////////////////////////////
     // Various methods
     
@@ -531,6 +529,29 @@ public class OfficeReader {
      */
     public MasterPage getFirstMasterPage() { return firstMasterPage; }
 	
+    /** Get the number of inherited style property lookups which were served from the cache
+     *  (the cache is filled as the document is converted)
+     *  @return the number of cache hits
+     */
+    public long getPropertyCacheHits() {
+        long nHits = 0;
+        for (OfficeStyleFamily family : getPropertyStyleFamilies()) {
+            nHits += family.getCacheHits();
+        }
+        return nHits;
+    }
+
+    /** Get the number of inherited style property lookups which had to walk the parent style chain
+     *  @return the number of cache misses
+     */
+    public long getPropertyCacheMisses() {
+        long nMisses = 0;
+        for (OfficeStyleFamily family : getPropertyStyleFamilies()) {
+            nMisses += family.getCacheMisses();
+        }
+        return nMisses;
+    }
+
     /** Return the iso language used in most paragaph styles (in a well-structured
      * document this will be the default language)
      * TODO: Base on content rather than style 
@@ -656,7 +677,7 @@ public class OfficeReader {
      *  @return the sequence name or null
      */
     public String getSequenceFromRef(String sRefName) {
-        return seqrefNames.get(sRefName);
+        return documentIndex.seqrefNames.get(sRefName);
     }
 	
 	
@@ -665,7 +686,7 @@ public class OfficeReader {
      *  @return true if there is a reference
      */
     public boolean hasNoteRefTo(String sId) {
-        return footnoteRef.contains(sId) || endnoteRef.contains(sId);
+        return documentIndex.footnoteRef.contains(sId) || documentIndex.endnoteRef.contains(sId);
     }
 
     /** <p>Is there a reference to this footnote id?
@@ -673,7 +694,7 @@ public class OfficeReader {
      *  @return true if there is a reference
      */
     public boolean hasFootnoteRefTo(String sId) {
-        return footnoteRef.contains(sId);
+        return documentIndex.footnoteRef.contains(sId);
     }
 
     /** <p>Is there a reference to this endnote?
@@ -681,7 +702,7 @@ public class OfficeReader {
      *  @return true if there is a reference
      */
     public boolean hasEndnoteRefTo(String sId) {
-        return endnoteRef.contains(sId);
+        return documentIndex.endnoteRef.contains(sId);
     }
 
     /** Is this reference mark contained in a heading?
@@ -689,7 +710,7 @@ public class OfficeReader {
      *  @return true if so
      */
     public boolean referenceMarkInHeading(String sName) {
-        return referenceHeading.containsKey(sName);
+        return documentIndex.referenceHeading.containsKey(sName);
     }
 
     /** Is there a reference to this reference mark?
@@ -697,7 +718,7 @@ public class OfficeReader {
      *  @return true if there is a reference
      */
     public boolean hasReferenceRefTo(String sName) {
-        return referenceRef.contains(sName);
+        return documentIndex.referenceRef.contains(sName);
     }
 
     /** Is this bookmark contained in a heading?
@@ -705,7 +726,7 @@ public class OfficeReader {
      *  @return true if so
      */
     public boolean bookmarkInHeading(String sName) {
-        return bookmarkHeading.containsKey(sName);
+        return documentIndex.bookmarkHeading.containsKey(sName);
     }
     
     /** Get the level of the heading associated with this bookmark
@@ -713,7 +734,7 @@ public class OfficeReader {
      *  @return the level or 0 if the bookmark does not exist
      */
     public int getBookmarkHeadingLevel(String sName) {
-        return bookmarkHeading.get(sName);
+        return documentIndex.bookmarkHeading.get(sName);
     }
     
     /** Is this bookmark contained in a list?
@@ -721,7 +742,7 @@ public class OfficeReader {
      *  @return true if so
      */
     public boolean bookmarkInList(String sName) {
-    	return bookmarkList.containsKey(sName);
+    	return documentIndex.bookmarkList.containsKey(sName);
     }
     
     /** Get the list style name associated with a bookmark in a list
@@ -729,8 +750,8 @@ public class OfficeReader {
      *  @return the list style name or null if the bookmark does not exist or the list does not have a style name
      */
     public String getBookmarkListStyle(String sName) {
-    	if (bookmarkList.containsKey(sName)) {
-    		return bookmarkList.get(sName);
+    	if (documentIndex.bookmarkList.containsKey(sName)) {
+    		return documentIndex.bookmarkList.get(sName);
     	}
     	else {
     		return null;
@@ -742,8 +763,8 @@ public class OfficeReader {
      *  @return the level or 0 if the bookmark does not exist
      */
     public int getBookmarkListLevel(String sName) {
-    	if (bookmarkListLevel.containsKey(sName)) {
-    		return bookmarkListLevel.get(sName);
+    	if (documentIndex.bookmarkListLevel.containsKey(sName)) {
+    		return documentIndex.bookmarkListLevel.get(sName);
     	}
     	else {
     		return 0;
@@ -755,7 +776,7 @@ public class OfficeReader {
      *  @return true if there is a reference
      */
     public boolean hasBookmarkRefTo(String sName) {
-        return bookmarkRef.contains(sName);
+        return documentIndex.bookmarkRef.contains(sName);
     }
     
     /** Get the raw list of all text:bibliography-mark elements. The marks are returned in document order and
@@ -772,7 +793,7 @@ public class OfficeReader {
      *  @return true if there is a reference
      */
     public boolean hasSequenceRefTo(String sId) {
-        return sequenceRef.contains(sId);
+        return documentIndex.sequenceRef.contains(sId);
     }
 
     /** <p>Is there a link to this sequence anchor name?
@@ -780,7 +801,7 @@ public class OfficeReader {
      *  @return true if there is a link
      */
     public boolean hasLinkTo(String sName) {
-        return links.contains(sName);
+        return documentIndex.links.contains(sName);
     }
 	
     /** <p>Is this an OASIS OpenDocument or an OOo 1.0 document?
@@ -827,6 +848,26 @@ public class OfficeReader {
         return new TableReader(this,node);
     }
     
+    /** Get the number of characters in a paragraph or heading, as returned by <code>getCharacterCount</code>.
+     *  The number is computed when the document is loaded (unless the paragraph was added later), and is
+     *  only kept until it is requested for the first time
+     * 
+     * @param node the text:p or text:h element
+     * @return the number of characters
+     */
+    public int getParagraphCharacterCount(Node node) {
+    	Integer count = characterCounts.remove(node);
+    	return count!=null ? count : getCharacterCount(node);
+    }
+    
+    /** Get the index of references, marks, sequences and links in this document
+     * 
+     * @return the document index
+     */
+    public DocumentIndex getDocumentIndex() {
+    	return documentIndex;
+    }
+    
     /** Get the very first image in this document, if any 
      * 
      *  @return the first image, or null if no images exists
@@ -834,16 +875,84 @@ public class OfficeReader {
     public Element getFirstImage() {
     	return firstImage;
     }
+    
+    /** Get the number of elements in the document body (counted when the document is loaded)
+     * 
+     *  @return the number of elements
+     */
+    public int getElementCount() {
+    	return nElementCount;
+    }
+    
+    /** Get the number of paragraphs and headings in the document body
+     * 
+     *  @return the number of paragraphs
+     */
+    public int getParagraphCount() {
+    	return nParagraphCount;
+    }
+    
+    /** Get the number of tables in the document body
+     * 
+     *  @return the number of tables
+     */
+    public int getTableCount() {
+    	return nTableCount;
+    }
+    
+    /** Get the number of images in the document body
+     * 
+     *  @return the number of images
+     */
+    public int getImageCount() {
+    	return nImageCount;
+    }
+
+    /** Is this reader destructive? If so, the converter is allowed to remove content from the DOM tree
+     *  once it has been converted (to save memory)
+     * 
+     * @return true if the reader is destructive
+     */
+    public boolean isDestructive() {
+    	return bDestructive;
+    }
 
     /** Constructor; read a document */
     public OfficeReader(OfficeDocument oooDoc, boolean bAllParagraphsAreSoft, boolean bDestructive) {
+        this(oooDoc,bAllParagraphsAreSoft,bDestructive,null);
+    }
+	
+    /** Constructor; read a document using a previously stored document index
+     * 
+     * @param oooDoc the document to read
+     * @param bAllParagraphsAreSoft true if all paragraphs should be considered soft
+     * @param bDestructive true if the converter may remove converted content from the document
+     * @param documentIndex the index of the document, or null if the index should be collected from the content
+     */
+    public OfficeReader(OfficeDocument oooDoc, boolean bAllParagraphsAreSoft, boolean bDestructive,
+    		DocumentIndex documentIndex) {
         this.oooDoc = oooDoc;
+        this.bDestructive = bDestructive;
+        if (documentIndex!=null) {
+            this.documentIndex = documentIndex;
+            bCollectIndex = false;
+        }
         loadStylesFromDOM(oooDoc.getStyleDOM(),oooDoc.getContentDOM(),bAllParagraphsAreSoft);
+        // All styles are loaded now, so inherited properties can be cached from now on
+        for (OfficeStyleFamily family : getPropertyStyleFamilies()) {
+            family.setComplete();
+        }
         loadContentFromDOM(oooDoc.getContentDOM(),bDestructive);
     }
 
     ///////////////////////////////////////////////////////////////////////////
     // Helpers
+    
+    // Get all style families containing styles with properties
+    private OfficeStyleFamily[] getPropertyStyleFamilies() {
+        return new OfficeStyleFamily[] { text, par, section, table, column, row, cell, frame, presentation, drawingPage,
+            pageLayout };
+    }
 	
     /*private void collectMasterPage(StyleWithProperties style) {
         if (style==null || firstMasterPage!=null) { return; }
@@ -942,31 +1051,61 @@ public class OfficeReader {
         }                                            
     }
 	
+    // Get elements with a given name in the same order as Document.getElementsByTagName. We only look at the
+    // children of the root element and of office:styles, where all the elements we need are found. This avoids
+    // searching through the entire document, including the (potentially large) body.
+    private static List<Element> getElementsByTagName(Document dom, String sName) {
+    	List<Element> list = new ArrayList<Element>();
+    	Element root = dom.getDocumentElement();
+    	if (root!=null) {
+    		if (root.getNodeName().equals(sName)) { list.add(root); }
+    		Node child = root.getFirstChild();
+    		while (child!=null) {
+    			if (child.getNodeType()==Node.ELEMENT_NODE) {
+    				if (child.getNodeName().equals(sName)) {
+    					list.add((Element) child);
+    				}
+    				if (child.getNodeName().equals(XMLString.OFFICE_STYLES)) {
+    					Node grandchild = child.getFirstChild();
+    					while (grandchild!=null) {
+    						if (grandchild.getNodeType()==Node.ELEMENT_NODE && grandchild.getNodeName().equals(sName)) {
+    							list.add((Element) grandchild);
+    						}
+    						grandchild = grandchild.getNextSibling();
+    					}
+    				}
+    			}
+    			child = child.getNextSibling();
+    		}
+    	}
+    	return list;
+    }
+	
     private void loadStylesFromDOM(Document stylesDOM, Document contentDOM, boolean bAllParagraphsAreSoft){
         // Flat xml: stylesDOM will be null and contentDOM contain everything
         // This is only the case for old versions of xmerge; newer versions
         // creates DOM for styles, content, meta and settings.
-        NodeList list;
+        List<Element> list;
 
         // font declarations: Try old format first
         if (stylesDOM==null) {
-            list = contentDOM.getElementsByTagName(XMLString.OFFICE_FONT_DECLS);
+            list = getElementsByTagName(contentDOM,XMLString.OFFICE_FONT_DECLS);
         }
         else {
-            list = stylesDOM.getElementsByTagName(XMLString.OFFICE_FONT_DECLS);
+            list = getElementsByTagName(stylesDOM,XMLString.OFFICE_FONT_DECLS);
         }
         // If that fails, try oasis format
-        if (list.getLength()==0) {
+        if (list.size()==0) {
             if (stylesDOM==null) {
-                list = contentDOM.getElementsByTagName(XMLString.OFFICE_FONT_FACE_DECLS);
+                list = getElementsByTagName(contentDOM,XMLString.OFFICE_FONT_FACE_DECLS);
             }
             else {
-                list = stylesDOM.getElementsByTagName(XMLString.OFFICE_FONT_FACE_DECLS);
+                list = getElementsByTagName(stylesDOM,XMLString.OFFICE_FONT_FACE_DECLS);
             }
         }
 		
-        if (list.getLength()!=0) {
-            Node node = list.item(0);
+        if (list.size()!=0) {
+            Node node = list.get(0);
             if (node.hasChildNodes()){
                 NodeList nl = node.getChildNodes();
                 int nLen = nl.getLength();
@@ -986,105 +1125,105 @@ public class OfficeReader {
 
         // soft formatting:
         if (stylesDOM==null) {
-            list = contentDOM.getElementsByTagName(XMLString.OFFICE_STYLES);
+            list = getElementsByTagName(contentDOM,XMLString.OFFICE_STYLES);
         }
         else {
-            list = stylesDOM.getElementsByTagName(XMLString.OFFICE_STYLES);
+            list = getElementsByTagName(stylesDOM,XMLString.OFFICE_STYLES);
         }
-        if (list.getLength()!=0) {
-            loadStylesFromDOM(list.item(0),bAllParagraphsAreSoft);
+        if (list.size()!=0) {
+            loadStylesFromDOM(list.get(0),bAllParagraphsAreSoft);
         }
 		
         // master styles:
         if (stylesDOM==null) {
-            list = contentDOM.getElementsByTagName(XMLString.OFFICE_MASTER_STYLES);
+            list = getElementsByTagName(contentDOM,XMLString.OFFICE_MASTER_STYLES);
         }
         else {
-            list = stylesDOM.getElementsByTagName(XMLString.OFFICE_MASTER_STYLES);
+            list = getElementsByTagName(stylesDOM,XMLString.OFFICE_MASTER_STYLES);
         }
-        if (list.getLength()!=0) {
-            loadStylesFromDOM(list.item(0),bAllParagraphsAreSoft);
+        if (list.size()!=0) {
+            loadStylesFromDOM(list.get(0),bAllParagraphsAreSoft);
         }
     
         // hard formatting:
         // Load from styles.xml first. Problem: There may be name clashes
         // with automatic styles from content.xml
         if (stylesDOM!=null) {
-            list = stylesDOM.getElementsByTagName(XMLString.OFFICE_AUTOMATIC_STYLES);
-            if (list.getLength()!=0) {
-                loadStylesFromDOM(list.item(0),bAllParagraphsAreSoft);
+            list = getElementsByTagName(stylesDOM,XMLString.OFFICE_AUTOMATIC_STYLES);
+            if (list.size()!=0) {
+                loadStylesFromDOM(list.get(0),bAllParagraphsAreSoft);
             }
         }	
-        list = contentDOM.getElementsByTagName(XMLString.OFFICE_AUTOMATIC_STYLES);
-        if (list.getLength()!=0) {
-            loadStylesFromDOM(list.item(0),bAllParagraphsAreSoft);
+        list = getElementsByTagName(contentDOM,XMLString.OFFICE_AUTOMATIC_STYLES);
+        if (list.size()!=0) {
+            loadStylesFromDOM(list.get(0),bAllParagraphsAreSoft);
         }
 
         // footnotes configuration:
         if (stylesDOM==null) {
-            list = contentDOM.getElementsByTagName(XMLString.TEXT_FOOTNOTES_CONFIGURATION);
+            list = getElementsByTagName(contentDOM,XMLString.TEXT_FOOTNOTES_CONFIGURATION);
         }
         else {
-            list = stylesDOM.getElementsByTagName(XMLString.TEXT_FOOTNOTES_CONFIGURATION);
+            list = getElementsByTagName(stylesDOM,XMLString.TEXT_FOOTNOTES_CONFIGURATION);
         }
-        if (list.getLength()!=0) {
+        if (list.size()!=0) {
             footnotes = new PropertySet();
-            footnotes.loadFromDOM(list.item(0));
+            footnotes.loadFromDOM(list.get(0));
         }
 		
         // endnotes configuration:
         if (stylesDOM==null) {
-            list = contentDOM.getElementsByTagName(XMLString.TEXT_ENDNOTES_CONFIGURATION);
+            list = getElementsByTagName(contentDOM,XMLString.TEXT_ENDNOTES_CONFIGURATION);
         }
         else {
-            list = stylesDOM.getElementsByTagName(XMLString.TEXT_ENDNOTES_CONFIGURATION);
+            list = getElementsByTagName(stylesDOM,XMLString.TEXT_ENDNOTES_CONFIGURATION);
         }
-        if (list.getLength()!=0) {
+        if (list.size()!=0) {
             endnotes = new PropertySet();
-            endnotes.loadFromDOM(list.item(0));
+            endnotes.loadFromDOM(list.get(0));
         }
 		
         // if it failed, try oasis format
         if (footnotes==null || endnotes==null) {
             if (stylesDOM==null) {
-                list = contentDOM.getElementsByTagName(XMLString.TEXT_NOTES_CONFIGURATION);
+                list = getElementsByTagName(contentDOM,XMLString.TEXT_NOTES_CONFIGURATION);
             }
             else {
-                list = stylesDOM.getElementsByTagName(XMLString.TEXT_NOTES_CONFIGURATION);
+                list = getElementsByTagName(stylesDOM,XMLString.TEXT_NOTES_CONFIGURATION);
             }
-            int nLen = list.getLength();
+            int nLen = list.size();
             for (int i=0; i<nLen; i++) {
-                String sClass = Misc.getAttribute(list.item(i),XMLString.TEXT_NOTE_CLASS);
+                String sClass = Misc.getAttribute(list.get(i),XMLString.TEXT_NOTE_CLASS);
                 if ("endnote".equals(sClass)) {
                     endnotes = new PropertySet();
-                    endnotes.loadFromDOM(list.item(i));
+                    endnotes.loadFromDOM(list.get(i));
                 }
                 else {
                     footnotes = new PropertySet();
-                    footnotes.loadFromDOM(list.item(i));
+                    footnotes.loadFromDOM(list.get(i));
                 }
             }
        }
         
         // bibliography configuration:
         if (stylesDOM==null) {
-            list = contentDOM.getElementsByTagName(XMLString.TEXT_BIBLIOGRAPHY_CONFIGURATION);
+            list = getElementsByTagName(contentDOM,XMLString.TEXT_BIBLIOGRAPHY_CONFIGURATION);
         }
         else {
-            list = stylesDOM.getElementsByTagName(XMLString.TEXT_BIBLIOGRAPHY_CONFIGURATION);
+            list = getElementsByTagName(stylesDOM,XMLString.TEXT_BIBLIOGRAPHY_CONFIGURATION);
         }
-        if (list.getLength()!=0) {
-            bibliographyConfiguration = (Element) list.item(0);
+        if (list.size()!=0) {
+            bibliographyConfiguration = list.get(0);
         }
 
     }
 	
     private void loadContentFromDOM(Document contentDOM, boolean bDestructive) {
      // Get the office:body element
-        NodeList list = contentDOM.getElementsByTagName(XMLString.OFFICE_BODY);
-        if (list.getLength()>0) {
+        List<Element> list = getElementsByTagName(contentDOM,XMLString.OFFICE_BODY);
+        if (list.size()>0) {
             // There may be several bodies, but the first one is the main body
-            Element body = (Element) list.item(0);
+            Element body = list.get(0);
 
             // Now get the content and identify the type of document
             content = Misc.getChildByTagName(body,XMLString.OFFICE_TEXT);
@@ -1154,9 +1293,12 @@ public class OfficeReader {
         }*/
     }
 	
-    private void traverseContent(Element node, String sListStyleName, int nListLevel, int nParLevel, boolean bDestructive) {
+    // Traverse content, returning the number of characters in the node (as computed by getCharacterCount)
+    private int traverseContent(Element node, String sListStyleName, int nListLevel, int nParLevel, boolean bDestructive) {
         // Handle this node first
         String sName = node.getTagName();
+        nElementCount++;
+        if (bCollectIndex) { collectIndexEntry(node, sName, sListStyleName, nListLevel, nParLevel); }
         if (sName.equals(XMLString.TEXT_P)) {
         	nParLevel=0;
         	if (bDestructive) { optimize(node); }
@@ -1196,62 +1338,21 @@ public class OfficeReader {
         	sListStyleName=null;
         	nListLevel=0;
         	nParLevel=-1;
+        	if (sName.equals(XMLString.TABLE_TABLE)) { nTableCount++; }
         }
         else if (sName.equals(XMLString.TEXT_SEQUENCE)) {
             String sSeqName = Misc.getAttribute(node,XMLString.TEXT_NAME);
-            String sRefName = Misc.getAttribute(node,XMLString.TEXT_REF_NAME);
             if (sSeqName!=null) {
                 Element par = getParagraph(node);
                 if (!sequenceNames.containsKey(par)) {
                     // Only the first text:seqence should be registered as possible caption sequence
                     sequenceNames.put(par,sSeqName);
                 }
-                if (sRefName!=null) {
-                    seqrefNames.put(sRefName,sSeqName);
-                }
             }
         }
-        else if (sName.equals(XMLString.TEXT_FOOTNOTE_REF)) {
-            collectRefName(footnoteRef,node);
-        }
-        else if (sName.equals(XMLString.TEXT_ENDNOTE_REF)) {
-            collectRefName(endnoteRef,node);
-        }
-        else if (sName.equals(XMLString.TEXT_NOTE_REF)) { // oasis
-            String sClass = Misc.getAttribute(node,XMLString.TEXT_NOTE_CLASS);
-            if ("footnote".equals(sClass)) { collectRefName(footnoteRef,node); }
-            else if ("endnote".equals(sClass)) { collectRefName(endnoteRef,node); }
-        }
-        else if (sName.equals(XMLString.TEXT_REFERENCE_MARK)) {
-            collectMarkByPosition(referenceHeading,null,null,node,sListStyleName,nListLevel,nParLevel);
-        }
-        else if (sName.equals(XMLString.TEXT_REFERENCE_MARK_START)) {
-            collectMarkByPosition(referenceHeading,null,null,node,sListStyleName,nListLevel,nParLevel);
-        }
-        else if (sName.equals(XMLString.TEXT_REFERENCE_REF)) {
-            collectRefName(referenceRef,node);
-        }
-        else if (sName.equals(XMLString.TEXT_BOOKMARK)) {
-            collectMarkByPosition(bookmarkHeading,bookmarkList,bookmarkListLevel,node,sListStyleName,nListLevel,nParLevel);
-        }
-        else if (sName.equals(XMLString.TEXT_BOOKMARK_START)) {
-            collectMarkByPosition(bookmarkHeading,bookmarkList,bookmarkListLevel,node,sListStyleName,nListLevel,nParLevel);
-        }
-        else if (sName.equals(XMLString.TEXT_BOOKMARK_REF)) {
-            collectRefName(bookmarkRef,node);
-        }
         else if (sName.equals(XMLString.TEXT_BIBLIOGRAPHY_MARK)) {
         	bibliographyMarks.add(node);
         }
-        else if (sName.equals(XMLString.TEXT_SEQUENCE_REF)) {
-            collectRefName(sequenceRef,node);
-        }
-        else if (sName.equals(XMLString.TEXT_A)) {
-            String sHref = node.getAttribute(XMLString.XLINK_HREF);
-            if (sHref!=null && sHref.startsWith("#")) {
-                links.add(sHref.substring(1));
-            }
-        }
         else if (sName.equals(XMLString.OFFICE_FORMS)) {
             forms.read(node);
         }
@@ -1279,15 +1380,36 @@ public class OfficeReader {
         	Element image = Misc.getChildByTagName(node, XMLString.DRAW_IMAGE);
         	if (image!=null) { firstImage=image; }
         }
+        else if (sName.equals(XMLString.DRAW_IMAGE)) {
+        	nImageCount++;
+        }
 		
-        // Traverse the children
+        // Traverse the children, counting the characters on the way
+        int nCount = 0;
         Node child = node.getFirstChild();
         while (child!=null) {
             if (child.getNodeType()==Node.ELEMENT_NODE) {
-                traverseContent((Element) child, sListStyleName, nListLevel, nParLevel, bDestructive);
+                int nChildCount = traverseContent((Element) child, sListStyleName, nListLevel, nParLevel, bDestructive);
+                String sChildName = child.getNodeName();
+                if (sChildName.equals(XMLString.TEXT_S)) {
+                    nCount += Misc.getPosInteger(Misc.getAttribute(child,XMLString.TEXT_C),1);
+                }
+                else if (sChildName.equals(XMLString.TEXT_TAB_STOP) || sChildName.equals(XMLString.TEXT_TAB)) {
+                    nCount++; // treat as single space
+                }
+                else if (!isNoteElement(child) && isTextElement(child)) {
+                    nCount += nChildCount;
+                }
+            }
+            else if (child.getNodeType()==Node.TEXT_NODE) {
+                nCount += child.getNodeValue().length();
             }
             child = child.getNextSibling();
         }
+        if (sName.equals(XMLString.TEXT_P) || sName.equals(XMLString.TEXT_H)) {
+        	characterCounts.put(node, nCount);
+        	nParagraphCount++;
+        }
 
         // Collect automatic captions sequences
         // Use OOo defaults: Captions have style names Illustration and Table resp.
@@ -1304,7 +1426,57 @@ public class OfficeReader {
                 }
             }
         }
-       
+        
+        return nCount;
+    }
+	
+    // Add an element to the document index, if it is a reference, a mark, a sequence or an internal link
+    private void collectIndexEntry(Element node, String sName, String sListStyleName, int nListLevel, int nParLevel) {
+        if (sName.equals(XMLString.TEXT_SEQUENCE)) {
+            String sSeqName = Misc.getAttribute(node,XMLString.TEXT_NAME);
+            String sRefName = Misc.getAttribute(node,XMLString.TEXT_REF_NAME);
+            if (sSeqName!=null && sRefName!=null) {
+                documentIndex.seqrefNames.put(sRefName,sSeqName);
+            }
+        }
+        else if (sName.equals(XMLString.TEXT_FOOTNOTE_REF)) {
+            collectRefName(documentIndex.footnoteRef,node);
+        }
+        else if (sName.equals(XMLString.TEXT_ENDNOTE_REF)) {
+            collectRefName(documentIndex.endnoteRef,node);
+        }
+        else if (sName.equals(XMLString.TEXT_NOTE_REF)) { // oasis
+            String sClass = Misc.getAttribute(node,XMLString.TEXT_NOTE_CLASS);
+            if ("footnote".equals(sClass)) { collectRefName(documentIndex.footnoteRef,node); }
+            else if ("endnote".equals(sClass)) { collectRefName(documentIndex.endnoteRef,node); }
+        }
+        else if (sName.equals(XMLString.TEXT_REFERENCE_MARK)) {
+            collectMarkByPosition(documentIndex.referenceHeading,null,null,node,sListStyleName,nListLevel,nParLevel);
+        }
+        else if (sName.equals(XMLString.TEXT_REFERENCE_MARK_START)) {
+            collectMarkByPosition(documentIndex.referenceHeading,null,null,node,sListStyleName,nListLevel,nParLevel);
+        }
+        else if (sName.equals(XMLString.TEXT_REFERENCE_REF)) {
+            collectRefName(documentIndex.referenceRef,node);
+        }
+        else if (sName.equals(XMLString.TEXT_BOOKMARK)) {
+            collectMarkByPosition(documentIndex.bookmarkHeading,documentIndex.bookmarkList,documentIndex.bookmarkListLevel,node,sListStyleName,nListLevel,nParLevel);
+        }
+        else if (sName.equals(XMLString.TEXT_BOOKMARK_START)) {
+            collectMarkByPosition(documentIndex.bookmarkHeading,documentIndex.bookmarkList,documentIndex.bookmarkListLevel,node,sListStyleName,nListLevel,nParLevel);
+        }
+        else if (sName.equals(XMLString.TEXT_BOOKMARK_REF)) {
+            collectRefName(documentIndex.bookmarkRef,node);
+        }
+        else if (sName.equals(XMLString.TEXT_SEQUENCE_REF)) {
+            collectRefName(documentIndex.sequenceRef,node);
+        }
+        else if (sName.equals(XMLString.TEXT_A)) {
+            String sHref = node.getAttribute(XMLString.XLINK_HREF);
+            if (sHref!=null && sHref.startsWith("#")) {
+                documentIndex.links.add(sHref.substring(1));
+            }
+        }
     }
 	
     private void collectRefName(Set<String> ref, Element node) {
@@ -1329,86 +1501,83 @@ public class OfficeReader {
         }
     }
 
-    // Optimize a heading or paragraph
+    // Optimize a heading or paragraph: Remove text spans which only represent a session id, merge adjacent
+    // text spans with the same style and merge adjacent text nodes. This is done in a single pass, where each
+    // node is moved at most once and the text of adjacent text nodes is collected in a single buffer
     private void optimize(Node node) {
+    	Node span = null; // The previous sibling, if this is a text span which is not yet optimized
+    	Node text = null; // The previous sibling, if this is a text node
+    	StringBuilder buf = null; // The collected text from the text node and following text nodes (if any)
     	Node child = node.getFirstChild();
     	while (child!=null) {
+    		Node next = child.getNextSibling();
     		if (child.getNodeType()==Node.ELEMENT_NODE && child.getNodeName().equals(XMLString.TEXT_SPAN)) {
     			String sStyleName = Misc.getAttribute(child, XMLString.TEXT_STYLE_NAME);
     			StyleWithProperties style = getTextStyle(sStyleName);
     			if (style!=null && style.isEmpty()) {
-    				// Found a text span which only represents a session id
-    				child = removeSpan(node, child); 
+    				// Found a text span which only represents a session id, continue with the children of the span
+    				// (The first child may be merged with the previous sibling)
+    				Node first = child.getFirstChild();
+    				moveChildren(child, node, child);
+    				node.removeChild(child);
+    				if (first!=null) { next = first; }
+    			}
+    			else if (span!=null && sStyleName!=null
+    					&& sStyleName.equals(Misc.getAttribute(span, XMLString.TEXT_STYLE_NAME))) {
+    				// Found two adjacent text spans with the same style name
+    				moveChildren(child, span, null);
+    				node.removeChild(child);
     			}
     			else {
-    				Node next = child.getNextSibling();
-    				if (next!=null && sStyleName.equals(Misc.getAttribute(next, XMLString.TEXT_STYLE_NAME))) {
-    					// Found two adjacent text spans with the same style name
-    					child = mergeSpan(node, child, next);
+    				// Found ordinary text span, which may be merged with the following text spans
+    				if (span!=null) { optimize(span); }
+    				span = child;
+    				mergeText(text, buf);
+    				text = null;
+    				buf = null;
+    			}
+    		}
+    		else {
+    			if (span!=null) { optimize(span); }
+    			span = null;
+    			if (child.getNodeType()==Node.TEXT_NODE) {
+    				if (text==null) {
+    					text = child;
     				}
     				else {
-    					// Found ordinary text span, optimize children and continue with next child
-    					optimize(child);
-    					child = child.getNextSibling();
+    					// Found two adjacent text nodes
+    					if (buf==null) { buf = new StringBuilder(text.getNodeValue()); }
+    					buf.append(child.getNodeValue());
+    					node.removeChild(child);
     				}
     			}
-    		}
-    		else if (child.getNodeType()==Node.TEXT_NODE) {
-    			Node next = child.getNextSibling();
-    			if (next!=null && next.getNodeType()==Node.TEXT_NODE) {
-    				// Found two adjacent text nodes
-    				child = mergeText(node, child, next);
-    			}
     			else {
-    				// Found isolated text node
-    				child = child.getNextSibling();
+    				// All other nodes are ignored
+    				mergeText(text, buf);
+    				text = null;
+    				buf = null;
     			}
     		}
-    		else {
-    			// All other nodes are ignored
-    			child = child.getNextSibling();
-    		}
-    	}
-    }
-    
-    private Node removeSpan(Node parent, Node span) {
-    	// After removing the span, we should reexamine the previous node (if any)
-    	// (This may be a text node to be merged with a text node from the span)
-    	Node next = span.getPreviousSibling();
-    	// Move all children out of the span
-    	Node child = span.getFirstChild();
-    	while (child!=null) {
-    		span.removeChild(child);
-    		parent.insertBefore(child, span);
-    		child = span.getFirstChild();
+    		child = next;
     	}
-    	// Remove the (now empty) span
-    	parent.removeChild(span);
-    	// Continue with the previous node (if any), or the first node of the parent
-    	return next!=null ? next : parent.getFirstChild();
+    	if (span!=null) { optimize(span); }
+    	mergeText(text, buf);
     }
     
-    private Node mergeSpan(Node parent, Node span1, Node span2) {
-    	// Move all child nodes from the second span into the first span
+    // Move all children of a node to another node, before a given child of that node (or at the end if null)
+    private void moveChildren(Node source, Node target, Node refChild) {
     	Node child;
-    	while ((child=span2.getFirstChild())!=null) {
-    		span2.removeChild(child);
-    		span1.appendChild(child);
+    	while ((child=source.getFirstChild())!=null) {
+    		source.removeChild(child);
+    		target.insertBefore(child, refChild);
     	}
-    	// Remove the second (now empty) span
-    	parent.removeChild(span2);
-    	// Continue with the merged node, as more merges may happen (this will also ensure the node gets optimized)
-    	return span1;
     }
     
-    private Node mergeText(Node parent, Node text1, Node text2) {
-    	// Replace the two text nodes with a single text node
-    	Text merged = parent.getOwnerDocument().createTextNode(text1.getNodeValue()+text2.getNodeValue());
-    	parent.insertBefore(merged, text1);
-    	parent.removeChild(text1);
-    	parent.removeChild(text2);
-    	// After the merge, we should examine the merged node, as more text nodes may follow
-    	return merged;
+    // Replace the text of a text node with the collected text (if any)
+    private void mergeText(Node text, StringBuilder buf) {
+    	if (text!=null && buf!=null) {
+    		text.setNodeValue(buf.toString());
+    	}
     }
 
 }
\ No newline at end of file
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2023-05-24)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -42,6 +42,11 @@ public class OfficeStyleFamily {
 	
     private OfficeStyle defaultStyle = null;
 
+    // Once the family is complete, styles may cache the result of inherited lookups
+    private boolean bComplete = false;
+    private long nCacheHits = 0;
+    private long nCacheMisses = 0;
+
     /** Create a new OfficeStyleFamily based on a class
      *  @param styleClass the subclass of OfficeStyle used to represent styles
      *  in this family
@@ -107,11 +112,46 @@ public class OfficeStyleFamily {
         return styles.elements();
     }
 	
+    /** Mark the family as complete, ie. no more styles will be loaded. From now on
+     *  the styles may cache properties resolved from the parent style chain.
+     */
+    public void setComplete() {
+        bComplete = true;
+    }
+
+    /** Test whether the family is complete
+     *  @return true if no more styles will be loaded into this family
+     */
+    public boolean isComplete() {
+        return bComplete;
+    }
+
+    // Count a lookup in the cache of inherited properties
+    void countCacheLookup(boolean bHit) {
+        if (bHit) { nCacheHits++; }
+        else { nCacheMisses++; }
+    }
+
+    /** Get the number of inherited property lookups served from the cache
+     *  @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return nCacheHits;
+    }
+
+    /** Get the number of inherited property lookups which had to walk the parent style chain
+     *  @return the number of cache misses
+     */
+    public long getCacheMisses() {
+        return nCacheMisses;
+    }
+
     /** Load a style from a DOM representation
      *  @param node the style:... node representing the style
      *  @param bAutomatic if true, the style is an automatic style
      */
     public void loadStyleFromDOM(Node node, boolean bAutomatic) {
+        if (bComplete) { throw new IllegalStateException("Style family is complete"); }
         String sName = Misc.getAttribute(node,XMLString.STYLE_NAME);
         if (sName!=null) {
             try {
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2018 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.6.1 (2018-08-10)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -28,39 +28,33 @@ package writer2xhtml.office;
 
 import org.w3c.dom.Node;
 import org.w3c.dom.NamedNodeMap;
-import java.util.Enumeration;
-import java.util.Hashtable;
+
+import java.util.Arrays;
 
 /** <p> Class representing a set of style properties in OOo (actually this
-    is simply the set of attributes of an element). </p> 
+    is simply the set of attributes of an element). </p>
+    <p>Most sets contain only a few properties, hence the properties are stored in two small parallel arrays,
+    which are not allocated until the first property is set. Property names are interned, so that the
+    lookup can usually be done by reference comparison with the constants in <code>XMLString</code>.
+    Values are normalized when they are set (lengths in inch are changed to in).</p>
   */
 public class PropertySet {
-    private Hashtable<String, String> properties = new Hashtable<String, String>();
+    private String[] names = null;
+    private String[] values = null;
+    private int nSize = 0;
     private String sName;
 
     public PropertySet() {
-        properties = new Hashtable<String, String>();
         sName="";
     }
     
     public int getSize() {
-    	return properties.size();
+    	return nSize;
     }
 	
     public String getProperty(String sPropName) {
-        if (sPropName!=null) {
-            String sValue = properties.get(sPropName);
-            if (sValue!=null && sValue.endsWith("inch")) {
-                // Cut of inch to in
-                return sValue.substring(0,sValue.length()-2);
-            }
-            else {
-                return sValue;
-            }
-        }
-        else {
-            return null;
-        }
+        int nIndex = indexOf(sPropName);
+        return nIndex>=0 ? values[nIndex] : null;
     }
 	
     public String getName() { return sName; }
@@ -74,29 +68,61 @@ public class PropertySet {
                 int nLen = attrNodes.getLength();
                 for (int i=0; i<nLen; i++){
                     Node attr = attrNodes.item(i);
-                    properties.put(attr.getNodeName(),attr.getNodeValue());
+                    setProperty(attr.getNodeName(),attr.getNodeValue());
                 }
             }
         }
     }
 	
     public boolean containsProperty(String sProperty) {
-        return sProperty!=null && properties.containsKey(sProperty);
+        return indexOf(sProperty)>=0;
     }
 	
     public void setProperty(String sProperty, String sValue){
-        properties.put(sProperty,sValue);
+    	int nIndex = indexOf(sProperty);
+    	if (nIndex<0) {
+    		if (names==null) {
+    			names = new String[4];
+    			values = new String[4];
+    		}
+    		else if (nSize==names.length) {
+    			names = Arrays.copyOf(names, 2*nSize);
+    			values = Arrays.copyOf(values, 2*nSize);
+    		}
+    		nIndex = nSize++;
+    		names[nIndex] = sProperty.intern();
+    	}
+    	values[nIndex] = normalize(sValue);
     }
 	
     public String toString() {
         String s="";
-        Enumeration<String> keys = properties.keys();
-        while (keys.hasMoreElements()) {
-            String sKey = keys.nextElement();
-            String sValue = properties.get(sKey);
-            s += sKey+"="+sValue+" ";
+        for (int i=0; i<nSize; i++) {
+            s += names[i]+"="+values[i]+" ";
         }
         return s;
     }
+    
+    // Find a property, returning -1 if it does not exist
+    private int indexOf(String sPropName) {
+    	if (sPropName!=null) {
+    		// Usually the name is a constant, which we can find by reference
+    		for (int i=0; i<nSize; i++) {
+    			if (names[i]==sPropName) { return i; }
+    		}
+    		for (int i=0; i<nSize; i++) {
+    			if (names[i].equals(sPropName)) { return i; }
+    		}
+    	}
+    	return -1;
+    }
+    
+    private static String normalize(String sValue) {
+        if (sValue!=null && sValue.endsWith("inch")) {
+            // Cut of inch to in
+            return sValue.substring(0,sValue.length()-2);
+        }
+        return sValue;
+    }
 
-}
\ No newline at end of file
+} 
@@ -16,18 +16,20 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  *  
- *  Version 1.7.1 (2023-06-26)
+ *  Version 1.7.2 (2026-10-18)
  */
  
 package writer2xhtml.office;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.w3c.dom.Node;
 
@@ -51,21 +53,22 @@ public class StyleWithProperties extends OfficeStyle {
 	
     private boolean bEmpty; // Flag to indicate that this style does not contain any properties except rsid
 	
+    // The property sets are created when needed; most styles only use one or two
     private PropertySet[] properties = new PropertySet[COUNT];
     private boolean bIsOldProps = false;
 
-    private PropertySet backgroundImageProperties = new PropertySet();
+    private PropertySet backgroundImageProperties = null;
 
     private int nColCount = 0;
 
     private boolean bHasFootnoteSep = false;
-    private PropertySet footnoteSep = new PropertySet();
+    private PropertySet footnoteSep = null;
     private List<String> tabStops = new ArrayList<>();
+    
+    // Cache of properties resolved from the parent style chain, created when needed
+    private Map<String,String>[] inheritedProperties = null;
 
     public StyleWithProperties() {
-        for (int i=0; i<COUNT; i++) {
-            properties[i] = new PropertySet();
-        }
     }
 
     public void loadStyleFromDOM(Node node) {
@@ -115,12 +118,13 @@ public class StyleWithProperties extends OfficeStyle {
         // Test whether this style contains any real properties
         int nSize = 0;
         for (int i=0; i<COUNT; i++) {
-        	nSize+=properties[i].getSize();
+        	if (properties[i]!=null) { nSize+=properties[i].getSize(); }
         }
-        bEmpty = (nSize==1 && properties[TEXT].containsProperty(XMLString.OFFICEOOO_RSID));
+        bEmpty = (nSize==1 && containsProperty(TEXT,XMLString.OFFICEOOO_RSID));
     }
 	
     private void loadPropertiesFromDOM(int nIndex,Node node) {
+        if (properties[nIndex]==null) { properties[nIndex] = new PropertySet(); }
         properties[nIndex].loadFromDOM(node);
         // Several property sets may contain these complex properties, but only one per style:
         Node child = node.getFirstChild();
@@ -128,6 +132,7 @@ public class StyleWithProperties extends OfficeStyle {
             if (child.getNodeType()==Node.ELEMENT_NODE) {        
                 String sName = child.getNodeName();
                 if (XMLString.STYLE_BACKGROUND_IMAGE.equals(sName)) {    
+                    if (backgroundImageProperties==null) { backgroundImageProperties = new PropertySet(); }
                     backgroundImageProperties.loadFromDOM(child);
                 }
                 else if (XMLString.STYLE_COLUMNS.equals(sName)) {    
@@ -137,6 +142,7 @@ public class StyleWithProperties extends OfficeStyle {
                 }
                 else if (XMLString.STYLE_FOOTNOTE_SEP.equals(sName)) {
                     bHasFootnoteSep = true; 
+                    if (footnoteSep==null) { footnoteSep = new PropertySet(); }
                     footnoteSep.loadFromDOM(child);
                 }
                 else if (XMLString.STYLE_TAB_STOPS.equals(sName)) {
@@ -160,21 +166,55 @@ public class StyleWithProperties extends OfficeStyle {
     public boolean isEmpty() {
     	return bEmpty;
     }
+    
+    // Test whether a property is set in this style (the index must be the real index)
+    private boolean containsProperty(int nIndex, String sName) {
+    	return properties[nIndex]!=null && properties[nIndex].containsProperty(sName);
+    }
 	
     protected String getProperty(int nIndex, String sName, boolean bInherit) {
         int nRealIndex = bIsOldProps ? OLDPROPS : nIndex;
-        if (properties[nRealIndex].containsProperty(sName)) {
-            String sValue = properties[nRealIndex].getProperty(sName);
-            return Calc.truncateLength(sValue);
+        if (containsProperty(nRealIndex,sName)) {
+            // The value has already been normalized by the property set
+            return properties[nRealIndex].getProperty(sName);
         }
         else if (bInherit && getParentName()!=null) {
+            if (family.isComplete()) {
+                return getInheritedProperty(nIndex,sName);
+            }
             StyleWithProperties parentStyle = (StyleWithProperties) family.getStyle(getParentName());
             if (parentStyle!=null) {
-                return parentStyle.getProperty(nIndex,sName,bInherit);
+                return parentStyle.getProperty(nIndex,sName,true);
             }
         }
         return null; // no value
     }
+    
+    // Get a property from the parent style chain. The result (including null) is cached, which is safe
+    // because the styles cannot change once the family is complete
+    @SuppressWarnings({"unchecked","rawtypes"})
+    private String getInheritedProperty(int nIndex, String sName) {
+        if (inheritedProperties==null) {
+            inheritedProperties = new Map[COUNT];
+        }
+        Map<String,String> cache = inheritedProperties[nIndex];
+        if (cache==null) {
+            cache = new HashMap<String,String>();
+            inheritedProperties[nIndex] = cache;
+        }
+        String sValue = cache.get(sName);
+        if (sValue!=null || cache.containsKey(sName)) {
+            family.countCacheLookup(true);
+            return sValue;
+        }
+        family.countCacheLookup(false);
+        StyleWithProperties parentStyle = (StyleWithProperties) family.getStyle(getParentName());
+        if (parentStyle!=null) {
+            sValue = parentStyle.getProperty(nIndex,sName,true);
+        }
+        cache.put(sName,sValue);
+        return sValue;
+    }
 	
     public String getTextProperty(String sName, boolean bInherit) {
         return getProperty(TEXT,sName,bInherit);
@@ -225,7 +265,7 @@ public class StyleWithProperties extends OfficeStyle {
 	
     protected String getAbsoluteProperty(int nIndex, String sProperty){
         int nRealIndex = bIsOldProps ? OLDPROPS : nIndex;
-        if (properties[nRealIndex].containsProperty(sProperty)){
+        if (containsProperty(nRealIndex,sProperty)){
             String sValue=(String) properties[nRealIndex].getProperty(sProperty);
             if (sValue.endsWith("%")) {
                 StyleWithProperties parentStyle 
@@ -309,7 +349,7 @@ public class StyleWithProperties extends OfficeStyle {
      * @return the absolute value, or null if the property is not set
      */
     public String getAbsoluteFontSize(){
-        if (properties[TEXT].containsProperty(XMLString.STYLE_FONT_SIZE_REL)) {
+        if (containsProperty(TEXT,XMLString.STYLE_FONT_SIZE_REL)) {
         	// Size specified as e.g. +3pt or -2pt
         	String sValue= properties[TEXT].getProperty(XMLString.STYLE_FONT_SIZE_REL);
         	String sParentValue = getAbsoluteParentFontSize();
@@ -317,7 +357,7 @@ public class StyleWithProperties extends OfficeStyle {
        			return Calc.add(Calc.truncateLength(sValue),sParentValue);
        		}
         }
-        else if (properties[TEXT].containsProperty(XMLString.FO_FONT_SIZE)) {
+        else if (containsProperty(TEXT,XMLString.FO_FONT_SIZE)) {
           	String sValue=(String) properties[TEXT].getProperty(XMLString.FO_FONT_SIZE);
             if (sValue.endsWith("%")) {
             	// Size specified as a percentage
@@ -355,7 +395,7 @@ public class StyleWithProperties extends OfficeStyle {
     }
 	
     public String getBackgroundImageProperty(String sName) {
-        return backgroundImageProperties.getProperty(sName);
+        return backgroundImageProperties!=null ? backgroundImageProperties.getProperty(sName) : null;
     }
 	
     public int getColCount() { return nColCount; }
@@ -363,7 +403,7 @@ public class StyleWithProperties extends OfficeStyle {
     public boolean hasFootnoteSep() { return bHasFootnoteSep; }
 
     public String getFootnoteProperty(String sPropName) {
-        return footnoteSep.getProperty(sPropName);
+        return footnoteSep!=null ? footnoteSep.getProperty(sPropName) : null;
     }
     
     public List<String> getTabStops(boolean bInherit) {
@@ -16,16 +16,18 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2022 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *  
- *  Version 1.7 (2022-08-17)
+ *  Version 1.7.2 (2026-10-18)
  *
  *  All Rights Reserved.
  */
  
 package writer2xhtml.office;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Vector;
 
 import org.w3c.dom.Element;
@@ -39,17 +41,37 @@ import writer2xhtml.util.Misc;
  * <p> This class reads a table from a table:table or table:sub-table element
  * and presents it as an n by m grid. In addition it gives access to the
  * absolute and relative widths of tables, columns and cells.</p>
+ * <p>Repeated rows, columns and cells are not expanded. Instead the grid is stored
+ * as runs of identical rows, each containing runs of identical cells.
+ * Random access to a row, column or cell uses a binary search in the runs,
+ * while sequential access (by increasing index) takes constant time.</p>
  */
 public class TableReader {
     //private OfficeReader ofr;
     private Element tableNode;
-    private LinkedList<TableLine> cols = new LinkedList<TableLine>();
-    private LinkedList<TableLine> rows = new LinkedList<TableLine>();
-    private LinkedList<LinkedList<Element>> cells = new LinkedList<LinkedList<Element>>();
+    
+    // Runs of columns: Run number i covers the columns nColEnd[i-1] to nColEnd[i]-1
+    private List<TableLine> colList = new ArrayList<TableLine>();
+    private List<Integer> colEndList = new ArrayList<Integer>();
+    private TableLine[] cols;
+    private int[] nColEnd;
+    private int nCols = 0;
+    private int nColHint = 0; // the run used in the last lookup
+    
+    // Runs of rows, each with the runs of cells
+    private List<TableLine> rowList = new ArrayList<TableLine>();
+    private List<Integer> rowEndList = new ArrayList<Integer>();
+    private List<CellRow> cellList = new ArrayList<CellRow>();
+    private TableLine[] rows;
+    private int[] nRowEnd;
+    private CellRow[] cells;
+    private int nRows = 0;
+    private int nRowHint = 0; // the run used in the last lookup
+    
     private int nMaxCols = 1; // real number of columns (count to last non-empty)
     private int nMaxRows = 1; // real number of rows (count to last non-empty)
-    private String[] sColWidth;
-    private String[] sRelColWidth;
+    private String[] sColWidth; // per column run
+    private String[] sRelColWidth; // per column run
     private String sTableWidth;
     private String sRelTableWidth;
     private Vector<TableRange> printRanges;
@@ -66,7 +88,13 @@ public class TableReader {
     public TableReader(OfficeReader ofr, Element tableNode) {
         //this.ofr = ofr;
         this.tableNode = tableNode;
-        if (!tableNode.hasChildNodes()) { return; } // empty table!
+        if (!tableNode.hasChildNodes()) { // empty table!
+            cols = new TableLine[0]; nColEnd = new int[0];
+            rows = new TableLine[0]; nRowEnd = new int[0]; cells = new CellRow[0];
+            sColWidth = new String[0]; sRelColWidth = new String[0];
+            printRanges = new Vector<TableRange>();
+            return;
+        }
         
         // Count the actual number of rows (trailing repeated rows are ignored)
         countTableRows(tableNode); 
@@ -104,6 +132,13 @@ public class TableReader {
             }
         }
 		
+        cols = colList.toArray(new TableLine[colList.size()]);
+        nColEnd = toIntArray(colEndList);
+        rows = rowList.toArray(new TableLine[rowList.size()]);
+        nRowEnd = toIntArray(rowEndList);
+        cells = cellList.toArray(new CellRow[cellList.size()]);
+        colList = null; colEndList = null; rowList = null; rowEndList = null; cellList = null;
+		
         // Read table width from style
         StyleWithProperties tableStyle = ofr.getTableStyle(getTableStyleName());
         if (tableStyle!=null) {
@@ -112,55 +147,55 @@ public class TableReader {
         }
 		
         // Determine column widths
-        int nCols = cols.size();
-        sColWidth = new String[nCols];
-        sRelColWidth = new String[nCols];
-        int[] nRelColWidth = new int[nCols];
+        int nColRuns = cols.length;
+        sColWidth = new String[nColRuns];
+        sRelColWidth = new String[nColRuns];
+        int[] nRelColWidth = new int[nColRuns];
         boolean bHasRelWidth=true; // set to false if some columns does not have a relative width set
         int nColSum = 0;
-        for (int nCol=0; nCol<nCols; nCol++) {
-            StyleWithProperties style = ofr.getColumnStyle(cols.get(nCol).getStyleName());
+        for (int nRun=0; nRun<nColRuns; nRun++) {
+            StyleWithProperties style = ofr.getColumnStyle(cols[nRun].getStyleName());
             if (style!=null) {
-                sColWidth[nCol] = style.getProperty(XMLString.STYLE_COLUMN_WIDTH);
+                sColWidth[nRun] = style.getProperty(XMLString.STYLE_COLUMN_WIDTH);
                 String s = style.getProperty(XMLString.STYLE_REL_COLUMN_WIDTH);
                 if (s!=null && s.endsWith("*")) {
-                    nRelColWidth[nCol] = Misc.getPosInteger(s.substring(0,s.length()-1),1);
+                    nRelColWidth[nRun] = Misc.getPosInteger(s.substring(0,s.length()-1),1);
                 }
             }
-            if (sColWidth[nCol]==null) { sColWidth[nCol] = "2cm"; } // emergency, should not happen
-            if (nRelColWidth[nCol]==0) { bHasRelWidth = false; }
-            nColSum += nRelColWidth[nCol];
+            if (sColWidth[nRun]==null) { sColWidth[nRun] = "2cm"; } // emergency, should not happen
+            if (nRelColWidth[nRun]==0) { bHasRelWidth = false; }
+            nColSum += nRelColWidth[nRun]*getRunLength(nColEnd,nRun);
         }
-        for (int nCol=0; nCol<nCols; nCol++) {
+        for (int nRun=0; nRun<nColRuns; nRun++) {
             if (bHasRelWidth) {
-                sRelColWidth[nCol] = (100.0F*nRelColWidth[nCol]/nColSum)+"%";
+                sRelColWidth[nRun] = (100.0F*nRelColWidth[nRun]/nColSum)+"%";
             }
             else if (sTableWidth!=null){
             	// Calculate the relative column width from the absolute column widths
             	// This may not add up to exactly 100%, but we will live with that
-                sRelColWidth[nCol] = Calc.divide(sColWidth[nCol], sTableWidth, true);
+                sRelColWidth[nRun] = Calc.divide(sColWidth[nRun], sTableWidth, true);
             }
             else {
             	// The table has not width, distribute the columns evenly
-            	sRelColWidth[nCol] = Double.toString(100.0/nCols)+"%";
+            	sRelColWidth[nRun] = Double.toString(100.0/nCols)+"%";
             }
         }
 
         // Now determine the actual number of rows and columns
         // (Calc exports a lot of empty rows at columns bottom/right)
-        int nRows = cells.size();
-        for (int nRow=0; nRow<nRows; nRow++) {
-        	LinkedList<Element> row = cells.get(nRow);
-            nCols = row.size();
-            int nMaxCol = 0;
-            int nMaxRow = 0;
-            for (int nCol=0; nCol<nCols; nCol++) {
-                Element cell = (Element) row.get(nCol);
+        // It is sufficient to consider the last row and column of each run
+        int nRowRuns = cells.length;
+        for (int nRun=0; nRun<nRowRuns; nRun++) {
+        	int nRow = nRowEnd[nRun]-1;
+        	CellRow row = cells[nRun];
+            for (int nCellRun=0; nCellRun<row.nRuns; nCellRun++) {
+                Element cell = row.cells[nCellRun];
                 if (cell.hasChildNodes()) {
-                    nMaxRow = nRow + Misc.getPosInteger(cell.getAttribute(
+                	int nCol = row.nEnd[nCellRun]-1;
+                    int nMaxRow = nRow + Misc.getPosInteger(cell.getAttribute(
                             XMLString.TABLE_NUMBER_ROWS_SPANNED),1);
                     if (nMaxRow>nMaxRows) { nMaxRows = nMaxRow; }
-                    nMaxCol = nCol + Misc.getPosInteger(cell.getAttribute(
+                    int nMaxCol = nCol + Misc.getPosInteger(cell.getAttribute(
                             XMLString.TABLE_NUMBER_COLUMNS_SPANNED),1);
                     if (nMaxCol>nMaxCols) { nMaxCols = nMaxCol; }
                 }
@@ -186,9 +221,9 @@ public class TableReader {
     private void readTableColumn(Node node, boolean bHeader, boolean bDisplay) {
         int nRepeat = Misc.getPosInteger(Misc.getAttribute(node,
                                          XMLString.TABLE_NUMBER_COLUMNS_REPEATED),1);
-        while (nRepeat-->0) {
-            cols.add(new TableLine(node,bHeader,bDisplay));
-        }
+        nCols += nRepeat;
+        colList.add(new TableLine(node,bHeader,bDisplay));
+        colEndList.add(nCols);
     }
 
     private void readTableColumns(Node node, boolean bHeader, boolean bDisplay) {
@@ -238,35 +273,31 @@ public class TableReader {
     private void readTableRow(Node node, boolean bHeader, boolean bDisplay) {
         int nRepeat = Misc.getPosInteger(Misc.getAttribute(node,
                                          XMLString.TABLE_NUMBER_ROWS_REPEATED),1);
-        while (nRepeat-->0  && rows.size()<nRowCount) {
-            rows.add(new TableLine(node,bHeader,bDisplay));
+        nRepeat = Math.min(nRepeat, nRowCount-nRows);
+        if (nRepeat<=0) { return; }
+        nRows += nRepeat;
+        rowList.add(new TableLine(node,bHeader,bDisplay));
+        rowEndList.add(nRows);
 
-            // Read the cells in the row
-            LinkedList<Element> row = new LinkedList<Element>();
-            if (node.hasChildNodes()) {
-                NodeList nl = node.getChildNodes();
-                int nLen = nl.getLength();
-                for (int i = 0; i < nLen; i++) {
-                    Node child = nl.item(i);
-                    if (child.getNodeType() == Node.ELEMENT_NODE) {
-                        Element cell = (Element) child;
-                        String sName = cell.getTagName();
-                        if (sName.equals(XMLString.TABLE_TABLE_CELL)) {
-                            int nColRepeat = Misc.getPosInteger(cell.getAttribute(
-                                             XMLString.TABLE_NUMBER_COLUMNS_REPEATED),1);
-                            while (nColRepeat-->0) { row.add(cell); }
-                        }
-                        else if (sName.equals(XMLString.TABLE_COVERED_TABLE_CELL)) {
-                            int nColRepeat = Misc.getPosInteger(cell.getAttribute(
-                                             XMLString.TABLE_NUMBER_COLUMNS_REPEATED),1);
-                            while (nColRepeat-->0) { row.add(cell); }
-                        }
+        // Read the cells in the row (the repeated rows share the cells)
+        CellRow row = new CellRow();
+        if (node.hasChildNodes()) {
+            NodeList nl = node.getChildNodes();
+            int nLen = nl.getLength();
+            for (int i = 0; i < nLen; i++) {
+                Node child = nl.item(i);
+                if (child.getNodeType() == Node.ELEMENT_NODE) {
+                    Element cell = (Element) child;
+                    String sName = cell.getTagName();
+                    if (sName.equals(XMLString.TABLE_TABLE_CELL) || sName.equals(XMLString.TABLE_COVERED_TABLE_CELL)) {
+                        int nColRepeat = Misc.getPosInteger(cell.getAttribute(
+                                         XMLString.TABLE_NUMBER_COLUMNS_REPEATED),1);
+                        row.add(cell, nColRepeat);
                     }
                 }
             }
-            cells.add(row);
         }
-
+        cellList.add(row);
     }
 
     private void readTableRows(Node node, boolean bHeader, boolean bDisplay) {
@@ -422,37 +453,34 @@ public class TableReader {
 	
     public String getRelTableWidth() { return sRelTableWidth; }
 	
-    public int getRowCount() { return rows.size(); }
+    public int getRowCount() { return nRows; }
 	
     public int getMaxRowCount() { return nMaxRows; }
 
     public int getFirstBodyRow() {
-        int nRows = rows.size();
-        for (int nRow=0; nRow<nRows; nRow++) {
-            if (!getRow(nRow).isHeader()) {
-                return nRow;
+        for (int nRun=0; nRun<rows.length; nRun++) {
+            if (!rows[nRun].isHeader()) {
+                return nRun>0 ? nRowEnd[nRun-1] : 0;
             }
         }
         return nRows; // no body rows!
     }
 
-    public int getColCount() { return cols.size(); }
+    public int getColCount() { return nCols; }
 	
     public int getMaxColCount() { return nMaxCols; }
 
     public String getColumnWidth(int nCol) {
-        return 0<=nCol && nCol<=cols.size() ? sColWidth[nCol] : null;
+        return 0<=nCol && nCol<nCols ? sColWidth[getColRun(nCol)] : null;
     }
 	
     public String getRelColumnWidth(int nCol) {
-        return 0<=nCol && nCol<=cols.size() ? sRelColWidth[nCol] : null;
+        return 0<=nCol && nCol<nCols ? sRelColWidth[getColRun(nCol)] : null;
     }
 	
     public Element getCell(int nRow, int nCol) {
-        if (nRow<0 || nRow>=cells.size()) { return null; }
-        LinkedList<Element> row = cells.get(nRow);
-        if (nCol<0 || nCol>=row.size()) { return null; }
-        return (Element) row.get(nCol);
+        if (nRow<0 || nRow>=nRows) { return null; }
+        return cells[getRowRun(nRow)].get(nCol);
     }
 	
     public String getCellStyleName(int nRow, int nCol) {
@@ -469,22 +497,22 @@ public class TableReader {
     public String getCellWidth(int nRow, int nCol) {
         Element cell = (Element) getCell(nRow,nCol);
         if (cell==null) { return null; }
-        int nCols = Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_COLUMNS_SPANNED),1);
-        String sWidth = sColWidth[nCol];
-        for (int i=nCol+1; i<nCol+nCols; i++) {
-            sWidth = Calc.add(sWidth,sColWidth[i]);
+        int nSpan = Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_COLUMNS_SPANNED),1);
+        String sWidth = getColumnWidth(nCol);
+        for (int i=nCol+1; i<nCol+nSpan; i++) {
+            sWidth = Calc.add(sWidth,getColumnWidth(i));
         }
         return sWidth;
     }
 	
     public TableLine getRow(int nRow) {
-        if (nRow<0 || nRow>=rows.size()) { return null; }
-        return rows.get(nRow);
+        if (nRow<0 || nRow>=nRows) { return null; }
+        return rows[getRowRun(nRow)];
     }
 	
     public TableLine getCol(int nCol) {
-        if (nCol<0 || nCol>=cols.size()) { return null; }
-        return cols.get(nCol);
+        if (nCol<0 || nCol>=nCols) { return null; }
+        return cols[getColRun(nCol)];
     }
 	
     public int getPrintRangeCount() { return printRanges.size(); }
@@ -498,4 +526,72 @@ public class TableReader {
         }
     }
 	
+    // Get the run containing a row (which must be valid)
+    private int getRowRun(int nRow) {
+    	nRowHint = findRun(nRowEnd, nRowEnd.length, nRowHint, nRow);
+    	return nRowHint;
+    }
+    
+    // Get the run containing a column (which must be valid)
+    private int getColRun(int nCol) {
+    	nColHint = findRun(nColEnd, nColEnd.length, nColHint, nCol);
+    	return nColHint;
+    }
+    
+    // Find the run containing an index. The hint (the last run found) or the run following it
+    // will be the result when the grid is traversed in order, otherwise we use a binary search
+    private static int findRun(int[] nEnd, int nCount, int nHint, int nIndex) {
+    	if (nHint<nCount && nIndex<nEnd[nHint] && (nHint==0 || nIndex>=nEnd[nHint-1])) {
+    		return nHint;
+    	}
+    	if (nHint+1<nCount && nIndex<nEnd[nHint+1] && nIndex>=nEnd[nHint]) {
+    		return nHint+1;
+    	}
+    	int nLow = 0;
+    	int nHigh = nCount-1;
+    	while (nLow<nHigh) {
+    		int nMid = (nLow+nHigh)>>>1;
+    		if (nEnd[nMid]<=nIndex) { nLow = nMid+1; }
+    		else { nHigh = nMid; }
+    	}
+    	return nLow;
+    }
+    
+    private static int getRunLength(int[] nEnd, int nRun) {
+    	return nRun>0 ? nEnd[nRun]-nEnd[nRun-1] : nEnd[0];
+    }
+    
+    private static int[] toIntArray(List<Integer> list) {
+    	int nLen = list.size();
+    	int[] array = new int[nLen];
+    	for (int i=0; i<nLen; i++) {
+    		array[i] = list.get(i);
+    	}
+    	return array;
+    }
+    
+    // The cells of a row, stored as runs of repeated cells
+    private static class CellRow {
+    	private Element[] cells = new Element[4];
+    	private int[] nEnd = new int[4]; // run number i covers the columns nEnd[i-1] to nEnd[i]-1
+    	private int nRuns = 0;
+    	private int nHint = 0; // the run used in the last lookup
+    	
+    	private void add(Element cell, int nRepeat) {
+    		if (nRuns==cells.length) {
+    			cells = Arrays.copyOf(cells, 2*nRuns);
+    			nEnd = Arrays.copyOf(nEnd, 2*nRuns);
+    		}
+    		cells[nRuns] = cell;
+    		nEnd[nRuns] = (nRuns>0 ? nEnd[nRuns-1] : 0) + nRepeat;
+    		nRuns++;
+    	}
+    	
+    	private Element get(int nCol) {
+    		if (nCol<0 || nRuns==0 || nCol>=nEnd[nRuns-1]) { return null; }
+    		nHint = findRun(nEnd, nRuns, nHint, nCol);
+    		return cells[nHint];
+    	}
+    }
+	
 }
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2023-06-09)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -38,6 +38,8 @@ public class CSVList{
    private String sKeyValueSep;
    // The CSVList is backed by a Map, which is accessible for other CSVList instances
    Map<String,String> items = new LinkedHashMap<>();
+   // The string representation of the list, or null if it must be recreated
+   private String sString = null;
    
    /** Create a new <code>CSVList</code> with specific separators
     * 
@@ -72,6 +74,7 @@ public class CSVList{
    public void addValue(String sVal){
    	if (sVal!=null) {
    		items.put(sVal, null);
+   		sString = null;
    	}
    }
 
@@ -83,6 +86,7 @@ public class CSVList{
    public void addValue(String sKey, String sVal) {
    	if (sKey!=null) {
    		items.put(sKey, sVal);
+   		sString = null;
    	}
    }
    
@@ -91,9 +95,12 @@ public class CSVList{
     * @param list the <code>CSVList</code> containing the items to add
     */
    public void addValues(CSVList list) {
-   	for (String sKey : list.items.keySet()) {
-   		items.put(sKey, list.items.get(sKey));
+   	// If this list is empty, the string representation of the other list can be reused
+   	boolean bSame = items.isEmpty() && sItemSep.equals(list.sItemSep) && sKeyValueSep.equals(list.sKeyValueSep);
+   	for (Map.Entry<String,String> entry : list.items.entrySet()) {
+   		items.put(entry.getKey(), entry.getValue());
    	}
+   	sString = bSame ? list.sString : null;
    }
    
    /** Return the value associated with a key
@@ -115,6 +122,7 @@ public class CSVList{
    public void removeValue(String sKey){
    	if (sKey!=null && items.containsKey(sKey)) {
    		items.remove(sKey);
+   		sString = null;
    	}
    }
 
@@ -122,6 +130,7 @@ public class CSVList{
     */
    public void clear() {
    	items.clear();
+   	sString = null;
    }
 	
    /** Test whether this <code>CSVList</code> contains any items
@@ -133,16 +142,29 @@ public class CSVList{
    }
 	
    public String toString() {
-       StringBuilder buf = new StringBuilder();
-       boolean bFirst=true;
-       for (String sKey : items.keySet()) {
-       	if (bFirst) { bFirst=false; } else { buf.append(sItemSep); }
-       	buf.append(sKey);
-       	if (items.get(sKey)!=null) {
-       		buf.append(sKeyValueSep).append(items.get(sKey));
-       	}
-       }
-       return buf.toString();
+   	if (sString==null) {
+   		sString = toString("");
+   	}
+   	return sString;
+   }
+	
+   /** Get a string representation of the list with a suffix added to each item
+    * 
+    * @param sItemSuffix the suffix, e.g. " !important" for a list of CSS declarations
+    * @return the string representation
+    */
+   public String toString(String sItemSuffix) {
+   	StringBuilder buf = new StringBuilder();
+   	boolean bFirst=true;
+   	for (Map.Entry<String,String> entry : items.entrySet()) {
+   		if (bFirst) { bFirst=false; } else { buf.append(sItemSep); }
+   		buf.append(entry.getKey());
+   		if (entry.getValue()!=null) {
+   			buf.append(sKeyValueSep).append(entry.getValue());
+   		}
+   		buf.append(sItemSuffix);
+   	}
+   	return buf.toString();
    }
 	
 }
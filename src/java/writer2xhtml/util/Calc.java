@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2022 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2022-06-14)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 package writer2xhtml.util;
@@ -28,6 +28,8 @@ package writer2xhtml.util;
 /** A collection of static methods used to perform calculations on strings representing floating point numbers
  *  with units or percentages. In the JavaDoc, a length refers to a string like e.g. "21.7cm" and percent refers
  *  to a string like e.g. "2.5%".
+ *  The calculations are performed by <code>Length</code> if possible; lengths with other units (e.g. "12px")
+ *  are handled as in previous versions, where unknown units are treated as pt. 
  */
 public class Calc {
 
@@ -69,9 +71,20 @@ public class Calc {
 	 * @return true if the value is close to zero
 	 */
 	public static boolean isZero(String sValue) {
+		Length length = Length.parse(sValue);
+		if (length!=null) { return length.isZero(); }
 		return Math.abs(getFloat(sValue.substring(0, sValue.length()-2),0))<0.001;
 	}
 
+	/** Get the value of a percentage (e.g. "2.5%" returns 2.5F)
+	 * 
+	 * @param sPercent the percentage
+	 * @return the value, or 1 if the percentage cannot be parsed
+	 */
+	public static final float getPercent(String sPercent) {
+		return getFloat(sPercent.substring(0,sPercent.length()-1),1);
+	}
+
 	// Return units per inch for some unit
 	private static final float getUpi(String sUnit) {
 	    if ("in".equals(sUnit)) { return 1.0F; }
@@ -89,6 +102,8 @@ public class Calc {
 	 */
 	public static final String length2px(String sLength) {
 	    if (sLength.equals("0")) { return "0"; }
+	    Length length = Length.parse(sLength);
+	    if (length!=null) { return length.toPx(); }
 	    float fLength=getFloat(sLength.substring(0,sLength.length()-2),1);
 	    String sUnit=sLength.substring(sLength.length()-2);
 	    float fPixels = 96.0F/getUpi(sUnit)*fLength;
@@ -114,6 +129,8 @@ public class Calc {
 		 */
 	public static final String length2rem(String sLength) {
 	    if (sLength.equals("0")) { return "0"; }
+	    Length length = Length.parse(sLength);
+	    if (length!=null) { return length.toRem(); }
 	    float fLength=getFloat(sLength.substring(0,sLength.length()-2),1);
 	    String sUnit=sLength.substring(sLength.length()-2);
 	    float fRems = 6.0F/getUpi(sUnit)*fLength;
@@ -151,7 +168,12 @@ public class Calc {
 	public static final String divide(String sDividend, String sDivisor, boolean bMax100) {
 	    if (sDividend.equals("0")) { return "0%"; }
 	    if (sDivisor.equals("0")) { return "100%"; }
-	
+	    
+	    Length dividend = Length.parse(sDividend);
+	    Length divisor = Length.parse(sDivisor);
+	    if (dividend!=null && divisor!=null) {
+	    	return Integer.toString(dividend.divide(divisor, bMax100))+"%";
+	    }
 	    float fDividend=getFloat(sDividend.substring(0,sDividend.length()-2),1);
 	    String sDividendUnit=sDividend.substring(sDividend.length()-2);
 	    float fDivisor=getFloat(sDivisor.substring(0,sDivisor.length()-2),1);
@@ -176,7 +198,9 @@ public class Calc {
 	 */
 	public static final String multiply(String sPercent, String sLength){
 	    if (sLength.equals("0")) { return "0"; }
-	    float fPercent=getFloat(sPercent.substring(0,sPercent.length()-1),1);
+	    float fPercent=getPercent(sPercent);
+	    Length length = Length.parse(sLength);
+	    if (length!=null) { return length.multiply(fPercent).toString(); }
 	    float fLength=getFloat(sLength.substring(0,sLength.length()-2),1);
 	    String sUnit=sLength.substring(sLength.length()-2);
 	    return Float.toString(fPercent*fLength/100)+sUnit;
@@ -191,6 +215,9 @@ public class Calc {
 	public static final String add(String sLength1, String sLength2){
 	    if (sLength1.equals("0")) { return sLength2; }
 	    if (sLength2.equals("0")) { return sLength1; }
+	    Length length1 = Length.parse(sLength1);
+	    Length length2 = Length.parse(sLength2);
+	    if (length1!=null && length2!=null) { return length1.add(length2).toString(); }
 	    float fLength1=getFloat(sLength1.substring(0,sLength1.length()-2),1);
 	    String sUnit1=sLength1.substring(sLength1.length()-2);
 	    float fLength2=getFloat(sLength2.substring(0,sLength2.length()-2),1);
@@ -206,6 +233,11 @@ public class Calc {
 	 * @return the difference (as a length with the same unit as the first term)
 	 */
 	public static final String sub(String sLength1, String sLength2){
+	    if (!sLength1.equals("0") && !sLength2.equals("0")) {
+	    	Length length1 = Length.parse(sLength1);
+	    	Length length2 = Length.parse(sLength2);
+	    	if (length1!=null && length2!=null) { return length1.sub(length2).toString(); }
+	    }
 	    return add(sLength1,multiply("-100%",sLength2));
 	}
 
@@ -217,6 +249,11 @@ public class Calc {
 	 * @return true is the first length is smaller than the second length
 	 */
 	public static boolean isLessThan(String sThis, String sThat) {
+	    if (!sThis.equals("0") && !sThat.equals("0")) {
+	    	Length length1 = Length.parse(sThis);
+	    	Length length2 = Length.parse(sThat);
+	    	if (length1!=null && length2!=null) { return length1.isLessThan(length2); }
+	    }
 	    return sub(sThis,sThat).startsWith("-");
 	}
 
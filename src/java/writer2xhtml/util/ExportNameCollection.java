@@ -16,26 +16,37 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-07-30)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.util;
 
 import java.text.Normalizer;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /** Maintain a collection of export names. 
  *  This is used to map named collections to simpler names (only A-Z, a-z and 0-9, and possibly additional characters)
  *  Accented letters are automatically replaced with the corresponding base character
+ *  The names are enumerated in the order in which they were added
  */
 public class ExportNameCollection{
-    private Hashtable<String, String> exportNames = new Hashtable<String, String>();
+    // Map from names to export names
+    private Map<String, String> exportNames = new LinkedHashMap<String, String>();
+    // The export names currently in use
+    private Set<String> usedExportNames = new HashSet<String>();
+    // For each stripped name, the last suffix number tried (all suffixes up to this are in use)
+    private Map<String, Integer> suffixCounters = new HashMap<String, Integer>();
     private String sPrefix;
     private String sAdditionalChars;
     private boolean bAcceptNumbers;
@@ -55,7 +66,7 @@ public class ExportNameCollection{
     }
 	
     public Enumeration<String> keys() {
-        return exportNames.keys();
+        return Collections.enumeration(exportNames.keySet());
     }
     
     public void addName(String sName){
@@ -99,23 +110,28 @@ public class ExportNameCollection{
         	// Do not accept empty export names
         	sExportName = "qwerty";
         }
-        if (!exportNames.containsValue(sExportName)) {
+        if (!usedExportNames.contains(sExportName)) {
         	// Everything's fine, we can use the stripped name directly
-        	exportNames.put(sName,sExportName);
+        	putName(sName,sExportName);
         }
         else {
         	// Otherwise add letters at the end until a unique export name is found
-        	int i=1;
-        	while (true) {
-        		String sSuffix = Misc.int2alph(i++, false);
-        		if (!exportNames.containsValue(sExportName+sSuffix)) {
-        			exportNames.put(sName,sExportName+sSuffix);
-        			break;
-        		}
-        	}
+        	// Export names are never removed, so we can continue from the last suffix used for this stripped name
+        	int i = suffixCounters.containsKey(sExportName) ? suffixCounters.get(sExportName) : 0;
+        	String sCandidate;
+        	do {
+        		sCandidate = sExportName+Misc.int2alph(++i, false);
+        	} while (usedExportNames.contains(sCandidate));
+        	suffixCounters.put(sExportName, i);
+        	putName(sName,sCandidate);
         }
     }
     
+    private void putName(String sName, String sExportName) {
+    	exportNames.put(sName,sExportName);
+    	usedExportNames.add(sExportName);
+    }
+    
     public String getExportName(String sName) {
         // add the name, if it does not exist
         if (!containsName(sName)) { addName(sName); }
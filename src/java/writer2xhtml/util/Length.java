@@ -0,0 +1,240 @@
+/************************************************************************
+ *
+ *  Length.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.util;
+
+/** This class represents a length as a floating point value and a unit (e.g. 21.7cm). The class is immutable.
+ *  The arithmetic is identical to the string based methods in <code>Calc</code>, which are implemented
+ *  using this class, but the value is only parsed once.
+ */
+public final class Length {
+	
+	/** The units supported by <code>Length</code>
+	 */
+	public enum Unit {
+		IN("in",1.0F), MM("mm",25.4F), CM("cm",2.54F), PC("pc",6F), PT("pt",72F);
+		
+		private final String sSymbol;
+		private final float fUpi; // units per inch
+		
+		Unit(String sSymbol, float fUpi) {
+			this.sSymbol = sSymbol;
+			this.fUpi = fUpi;
+		}
+		
+		/** Get the symbol for this unit as used in ODF and CSS
+		 * 
+		 * @return the symbol
+		 */
+		public String getSymbol() {
+			return sSymbol;
+		}
+		
+		// Get the unit from the two last characters of a length, or null if the unit is not supported
+		private static Unit fromLength(String sLength, int nIndex) {
+			char c1 = sLength.charAt(nIndex);
+			char c2 = sLength.charAt(nIndex+1);
+			switch (c1) {
+			case 'i': return c2=='n' ? IN : null;
+			case 'm': return c2=='m' ? MM : null;
+			case 'c': return c2=='m' ? CM : null;
+			case 'p': return c2=='c' ? PC : (c2=='t' ? PT : null);
+			default: return null;
+			}
+		}
+	}
+	
+	private final float fValue;
+	private final Unit unit;
+	
+	/** Create a new <code>Length</code>
+	 * 
+	 * @param fValue the value
+	 * @param unit the unit
+	 */
+	public Length(float fValue, Unit unit) {
+		this.fValue = fValue;
+		this.unit = unit;
+	}
+	
+	/** Parse a length (e.g. "21.7cm")
+	 * 
+	 * @param sLength the string to parse
+	 * @return the length, or null if the string is not a number followed by one of the supported units
+	 */
+	public static Length parse(String sLength) {
+		if (sLength!=null) {
+			int nLen = sLength.length();
+			if (nLen>2) {
+				Unit unit = Unit.fromLength(sLength, nLen-2);
+				if (unit!=null) {
+					try {
+						return new Length(Float.parseFloat(sLength.substring(0, nLen-2)), unit);
+					}
+					catch (NumberFormatException e) {
+						// Not a length
+					}
+				}
+			}
+		}
+		return null;
+	}
+	
+	/** Get the value of this length
+	 * 
+	 * @return the value
+	 */
+	public float getValue() {
+		return fValue;
+	}
+	
+	/** Get the unit of this length
+	 * 
+	 * @return the unit
+	 */
+	public Unit getUnit() {
+		return unit;
+	}
+	
+	/** Multiply this length by a percentage (e.g. 2.5mm multiplied with 150 returns 3.75mm)
+	 * 
+	 * @param fPercent the percentage
+	 * @return the product
+	 */
+	public Length multiply(float fPercent) {
+		return new Length(fPercent*fValue/100, unit);
+	}
+	
+	/** Add another length to this length (e.g. 2.5cm added to 1in returns 5.04cm)
+	 * 
+	 * @param other the length to add
+	 * @return the sum (with the same unit as this length)
+	 */
+	public Length add(Length other) {
+		return new Length(fValue+unit.fUpi/other.unit.fUpi*other.fValue, unit);
+	}
+	
+	/** Subtract another length from this length (e.g. 2.5cm subtracted by 1.08cm returns 1.42cm)
+	 * 
+	 * @param other the length to subtract
+	 * @return the difference (with the same unit as this length)
+	 */
+	public Length sub(Length other) {
+		return add(other.multiply(-100));
+	}
+	
+	/** Divide this length by another length and return the quotient as an integer percentage
+	 *  (e.g. 0.5cm divided by 2cm returns 25). 
+	 *  Exception: Never returns below 1, and never returns above 100 if the last parameter is true.
+	 * 
+	 * @param divisor the length to divide by
+	 * @param bMax100 true if a maximum of 100 should be returned
+	 * @return the quotient percentage
+	 */
+	public int divide(Length divisor, boolean bMax100) {
+	    int nPercent = Math.round(100*fValue*divisor.unit.fUpi/divisor.fValue/unit.fUpi);
+	    if (bMax100 && nPercent>100) { return 100; }
+	    return nPercent>0 ? nPercent : 1;
+	}
+	
+	/** Test whether this length is zero within a tolerance of 0.001
+	 * 
+	 * @return true if the value is close to zero
+	 */
+	public boolean isZero() {
+		return Math.abs(fValue)<0.001;
+	}
+	
+	/** Test whether this length is negative. Note that this includes negative zero
+	 * 
+	 * @return true if the sign of the value is negative
+	 */
+	public boolean isNegative() {
+		return Float.floatToIntBits(fValue)<0;
+	}
+	
+	/** Test whether this length is smaller than another length
+	 * 
+	 * @param other the length to compare to
+	 * @return true if this length is the smaller
+	 */
+	public boolean isLessThan(Length other) {
+		return sub(other).isNegative();
+	}
+	
+	/** Convert this length to px assuming 96ppi; cf. the CSS spec (e.g. 0.1in returns "9.6px").
+	 *  Exception: Never return less than 1px (except for zero)
+	 * 
+	 * @return the CSS length
+	 */
+	public String toPx() {
+	    float fPixels = 96.0F/unit.fUpi*fValue;
+	    if (Math.abs(fPixels)<0.01) {
+	        // Very small, treat as zero
+	        return "0";
+	    }
+	    else if (fPixels>0) {
+	        // Never return less that 1px
+	        return Float.toString(fPixels<1 ? 1 : fPixels)+"px";
+	    }
+	    else {
+	        // Or above -1px
+	        return Float.toString(fPixels>-1 ? -1 : fPixels)+"px";
+	    }
+	}
+	
+	/** Convert this length to rem assuming that 1em=16px
+	 * 
+	 * @return the CSS length
+	 */
+	public String toRem() {
+	    float fRems = 6.0F/unit.fUpi*fValue;
+	    if (Math.abs(fRems)<0.01) {
+	        // Very small, treat as zero
+	        return "0";
+	    }
+	    else {
+	        return Float.toString(fRems)+"rem";
+	    }
+	}
+	
+	@Override public String toString() {
+		return Float.toString(fValue)+unit.sSymbol;
+	}
+	
+	@Override public boolean equals(Object object) {
+		if (object instanceof Length) {
+			Length other = (Length) object;
+			return Float.floatToIntBits(fValue)==Float.floatToIntBits(other.fValue) && unit==other.unit;
+		}
+		return false;
+	}
+	
+	@Override public int hashCode() {
+		return 31*Float.floatToIntBits(fValue)+unit.hashCode();
+	}
+
+}
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2012 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.4 (2012-04-01) 
+ *  Version 1.7.2 (2026-10-18) 
  * 
  */
 
@@ -29,6 +29,8 @@ package writer2xhtml.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -46,7 +48,18 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 public class SimpleXMLParser extends DefaultHandler {
 	
-	/** Static method to parse an XML input stream into a DOM tree
+	// The maximum number of idle parsers to keep
+	private static final int POOL_SIZE = 16;
+	
+	// The factory is configured once, and the parsers are reused
+	private static final SAXParserFactory factory = SAXParserFactory.newInstance();
+	static {
+		factory.setValidating(false);
+	}
+	private static final Deque<SAXParser> parserPool = new ArrayDeque<SAXParser>();
+	
+	/** Static method to parse an XML input stream into a DOM tree.
+	 *  This method is thread safe, and reuses parser instances between invocations
 	 * 
 	 * @param is the input stream to parse
 	 * @return a DOM tree of the document
@@ -54,13 +67,11 @@ public class SimpleXMLParser extends DefaultHandler {
 	 * @throws SAXException if an error occurs parsing the stream
 	 */
 	public static Document parse(InputStream is) throws IOException, SAXException {
-		SAXParserFactory factory=SAXParserFactory.newInstance();
-		
-		factory.setValidating(false);
 		SimpleXMLParser handler = new SimpleXMLParser();
 		try {
-			SAXParser saxParser = factory.newSAXParser();
+			SAXParser saxParser = getParser();
 			saxParser.parse(is,handler);
+			releaseParser(saxParser);
 			return handler.getDOM();
 		}
 		catch (ParserConfigurationException e) {
@@ -69,6 +80,33 @@ public class SimpleXMLParser extends DefaultHandler {
 		}
 		return null;
 	}
+	
+	// Get a parser from the pool, or create a new one if the pool is empty
+	private static SAXParser getParser() throws ParserConfigurationException, SAXException {
+		synchronized (parserPool) {
+			SAXParser saxParser = parserPool.poll();
+			if (saxParser!=null) {
+				return saxParser;
+			}
+			// SAXParserFactory is not thread safe, so the parser is created while holding the lock
+			return factory.newSAXParser();
+		}
+	}
+	
+	// Return a parser to the pool after successful use
+	private static void releaseParser(SAXParser saxParser) {
+		try {
+			saxParser.reset();
+		}
+		catch (UnsupportedOperationException e) {
+			return; // The parser cannot be reused
+		}
+		synchronized (parserPool) {
+			if (parserPool.size()<POOL_SIZE) {
+				parserPool.push(saxParser);
+			}
+		}
+	}
 
 	private SimpleDOMBuilder builder = new SimpleDOMBuilder();
 	
@@ -16,69 +16,180 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2012 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
- * 
- *  Version 1.4 (2012-03-27)
+ *
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.util;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.OutputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
+/** This class provides random access to the entries of a ZIP file.
+ *  The entries are not read when the ZIP file is opened, but only when they are requested, hence
+ *  the memory consumption is bounded by the size of the entries actually used.
+ *  If the ZIP file is read from an <code>InputStream</code>, the stream is copied to a temporary
+ *  file, which is deleted when the reader is closed.
+ */
 public class SimpleZipReader {
 
-    private final static int BUFFERSIZE = 1024;
-
-    private Map<String,byte[]> entries = new HashMap<String,byte[]>();
+    private final static int BUFFERSIZE = 8192;
 
+    private ZipFile zipFile = null;
+    private File tempFile = null;
 
-    /** Read a zipped stream
+    /** Read a zipped stream. The stream is copied to a temporary file, which is deleted by <code>close()</code>.
      *
      *  @param  is  <code>InputStream</code> to read
      *
      *  @throws  IOException  if an I/O error occurs
      */
     public void read(InputStream is) throws IOException {
-        ZipInputStream zis = new ZipInputStream(is);
-        ZipEntry entry = null;
-        while ((entry=zis.getNextEntry())!=null) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            int nLen = 0;
-            byte buffer[] = new byte[BUFFERSIZE];
-            while ((nLen = zis.read(buffer)) > 0) {
-                baos.write(buffer, 0, nLen);
-            }
-            byte bytes[] = baos.toByteArray();
-            entries.put(entry.getName(), bytes);
-        }
-        zis.close();
+    	close();
+    	tempFile = File.createTempFile("w2x", ".zip");
+    	boolean bSuccess = false;
+    	try {
+    		OutputStream os = new FileOutputStream(tempFile);
+    		try {
+    			int nLen = 0;
+    			byte buffer[] = new byte[BUFFERSIZE];
+    			while ((nLen = is.read(buffer)) > 0) {
+    				os.write(buffer, 0, nLen);
+    			}
+    		}
+    		finally {
+    			os.close();
+    		}
+    		open(tempFile);
+    		bSuccess = true;
+    	}
+    	finally {
+    		is.close();
+    		if (!bSuccess) {
+    			// Delete the temporary file
+    			close();
+    		}
+    	}
     }
-    
-    /** Get an entry from the ZIP file. Getting should be taken quite literally here:
-     *  You can only get an entry once: The <code>SimpleZipReader</code> removes the entry from the
-     *  collection when this method is called (memory optimization).
+
+    /** Read a ZIP file. Only the central directory is read at this point.
+     *
+     *  @param file the <code>File</code> to read
+     *
+     *  @throws IOException if an I/O error occurs
+     */
+    public void read(File file) throws IOException {
+    	close();
+    	open(file);
+    }
+
+    private void open(File file) throws IOException {
+    	try {
+    		zipFile = new ZipFile(file);
+    	}
+    	finally {
+    		if (zipFile==null) {
+    			close();
+    		}
+    	}
+    }
+
+    /** Test whether an entry exists in the ZIP file
+     *
+     *  @param sName the name (path) of the ZIP entry
+     *
+     *  @return true if the entry exists
+     */
+    public boolean hasEntry(String sName) {
+    	return zipFile!=null && zipFile.getEntry(sName)!=null;
+    }
+
+    /** Get an <code>InputStream</code> to read an entry from the ZIP file.
+     *  The caller is responsible for closing the stream.
+     *
+     *  @param sName the name (path) of the ZIP entry
+     *
+     *  @return the stream, or null if the entry does not exist
+     *
+     *  @throws IOException if an I/O error occurs
+     */
+    public InputStream getInputStream(String sName) throws IOException {
+    	if (zipFile!=null) {
+    		ZipEntry entry = zipFile.getEntry(sName);
+    		if (entry!=null) {
+    			return zipFile.getInputStream(entry);
+    		}
+    	}
+    	return null;
+    }
+
+    /** Get an entry from the ZIP file. The entry is read from the file on each invocation.
      *
      * @param   sName    the name (path) of the ZIP entry
      *
      * @return  a byte array with the contents of the entry, or null if the entry does not exist
+     *  or cannot be read
      */
     public byte[] getEntry(String sName) {
-    	if (entries.containsKey(sName)) {
-    		byte[] bytes = entries.get(sName);
-    		entries.remove(sName);
-    		return bytes;
+    	if (zipFile!=null) {
+    		ZipEntry entry = zipFile.getEntry(sName);
+    		if (entry!=null) {
+    			try {
+    				InputStream is = zipFile.getInputStream(entry);
+    				try {
+    					long nSize = entry.getSize();
+    					if (nSize>=0 && nSize<=Integer.MAX_VALUE) {
+    						// The size is known, so we can read directly into a byte array of the right size
+    						byte[] bytes = new byte[(int) nSize];
+    						int nOff = 0;
+    						int nLen;
+    						while (nOff<bytes.length && (nLen = is.read(bytes, nOff, bytes.length-nOff))>0) {
+    							nOff+=nLen;
+    						}
+    						if (nOff==bytes.length) {
+    							return bytes;
+    						}
+    						return null;
+    					}
+    					return Misc.inputStreamToByteArray(is);
+    				}
+    				finally {
+    					is.close();
+    				}
+    			}
+    			catch (IOException e) {
+    				return null;
+    			}
+    		}
     	}
     	return null;
     }
-        
+
+    /** Close the ZIP file and delete the temporary file, if any. After this, no entries are available
+     */
+    public void close() {
+    	if (zipFile!=null) {
+    		try {
+    			zipFile.close();
+    		}
+    		catch (IOException e) {
+    			// Nothing to do about that
+    		}
+    		zipFile = null;
+    	}
+    	if (tempFile!=null) {
+    		tempFile.delete();
+    		tempFile = null;
+    	}
+    }
 
 }
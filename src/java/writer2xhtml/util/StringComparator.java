@@ -16,25 +16,33 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2015 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.6 (2015-05-19)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 package writer2xhtml.util;
 
+import java.text.CollationKey;
 import java.text.Collator;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
 
 /** This is a <code>Comparator</code> implementation specific for objects compared by one or more string values.
+ *  The strings are compared by collation keys, which are also used to sort lists efficiently: The keys are
+ *  computed only once for each object, rather than once for each comparison.
  *
  * @param <T> the class to compare
  */
 public abstract class StringComparator<T> implements Comparator<T> {
 	
+	// Lists of this size or larger are sorted in parallel
+	private static final int PARALLEL_SORT_THRESHOLD = 8192;
+	
 	private Collator collator;
 	
 	protected Collator getCollator() {
@@ -50,4 +58,81 @@ public abstract class StringComparator<T> implements Comparator<T> {
             collator = Collator.getInstance(new Locale(sLanguage,sCountry));
         }
 	}
+	
+	/** Get the strings to compare for an object, in order of significance
+	 * 
+	 * @param object the object
+	 * @return the strings. The array may end with null values, which are sorted before any string 
+	 */
+	protected abstract String[] getStrings(T object);
+	
+	/** Compare two arrays of collation keys. The default implementation compares the keys in order until
+	 *  a difference is found. A null value is less than any key, and two null values are equal
+	 *  (and ends the comparison). Subclasses may override this to sort some keys in descending order.
+	 * 
+	 * @param a the first array
+	 * @param b the second array of the same length
+	 * @return a negative value, zero or a positive value if a is less than, equal to or greater than b
+	 */
+	protected int compareKeys(CollationKey[] a, CollationKey[] b) {
+		for (int i=0; i<a.length; i++) {
+			if (a[i]==null || b[i]==null) {
+				return a[i]==b[i] ? 0 : (a[i]==null ? -1 : 1);
+			}
+			int nResult = a[i].compareTo(b[i]);
+			if (nResult!=0) { return nResult; }
+		}
+		return 0;
+	}
+	
+	public int compare(T a, T b) {
+		return compareKeys(getKeys(a), getKeys(b));
+	}
+	
+	/** Sort a list of objects. The sort is stable, and large lists are sorted in parallel.
+	 * 
+	 * @param list the list to sort
+	 */
+	public void sort(List<T> list) {
+		int nSize = list.size();
+		@SuppressWarnings({"unchecked","rawtypes"})
+		KeyedObject<T>[] objects = new KeyedObject[nSize];
+		for (int i=0; i<nSize; i++) {
+			objects[i] = new KeyedObject<T>(list.get(i), getKeys(list.get(i)));
+		}
+		Comparator<KeyedObject<T>> comparator = new Comparator<KeyedObject<T>>() {
+			public int compare(KeyedObject<T> a, KeyedObject<T> b) {
+				return compareKeys(a.keys, b.keys);
+			}
+		};
+		if (nSize>=PARALLEL_SORT_THRESHOLD) {
+			Arrays.parallelSort(objects, comparator);
+		}
+		else {
+			Arrays.sort(objects, comparator);
+		}
+		for (int i=0; i<nSize; i++) {
+			list.set(i, objects[i].object);
+		}
+	}
+	
+	private CollationKey[] getKeys(T object) {
+		String[] sStrings = getStrings(object);
+		CollationKey[] keys = new CollationKey[sStrings.length];
+		for (int i=0; i<sStrings.length; i++) {
+			keys[i] = sStrings[i]!=null ? collator.getCollationKey(sStrings[i]) : null;
+		}
+		return keys;
+	}
+	
+	// Helper class to hold an object along with its collation keys
+	private static class KeyedObject<T> {
+		private final T object;
+		private final CollationKey[] keys;
+		
+		private KeyedObject(T object, CollationKey[] keys) {
+			this.object = object;
+			this.keys = keys;
+		}
+	}
 }
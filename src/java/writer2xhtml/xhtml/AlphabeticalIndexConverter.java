@@ -16,18 +16,16 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-06-25)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 package writer2xhtml.xhtml;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -154,34 +152,15 @@ class AlphabeticalIndexConverter extends IndexConverterHelper {
     
     // Sort the list of words based on the language defined by the index source
     private void sortEntries(Element source) {
-		Comparator<AlphabeticalEntry> comparator = new StringComparator<AlphabeticalEntry>(
+		new StringComparator<AlphabeticalEntry>(
 				Misc.getAttribute(source,XMLString.FO_LANGUAGE),
         		Misc.getAttribute(source, XMLString.FO_COUNTRY)) {
 
-			public int compare(AlphabeticalEntry a, AlphabeticalEntry b) {
-				int nResult=0;
-				for (int i=0; i<3; i++) {
-					nResult = getCollator().compare(a.sWord[i], b.sWord[i]);
-					if (nResult!=0) { // We have a final result
-						return nResult;
-					}
-					else if (i<2) { // the final result depends on the next values
-						if (a.sWord[i+1]==null && b.sWord[i+1]!=null) { // null<string
-							return -1;
-						}
-						else if (a.sWord[i+1]!=null && b.sWord[i+1]==null) { // string>null
-							return 1;
-						}
-						else if (a.sWord[i+1]==null && b.sWord[i+1]==null) { // null==null
-							return nResult;
-						}
-						// if both are not null, we will try again with the next level
-					}
-				}
-				return nResult;
+			// Note that the words are filled from the start, hence only the last words may be null
+			protected String[] getStrings(AlphabeticalEntry entry) {
+				return entry.sWord;
 			}
-		};
-		Collections.sort(index,comparator);
+		}.sort(index);
     }
     
     // Get the style names to use for the individual words from the index source
@@ -0,0 +1,102 @@
+/************************************************************************
+ *
+ *  ConversionProfileImpl.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2002-2026 by Henrik Just
+ *
+ *  All Rights Reserved.
+ * 
+ *  Version 1.7.2 (2026-10-18)
+ *
+ */
+
+package writer2xhtml.xhtml;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import writer2xhtml.api.ConversionProfile;
+import writer2xhtml.api.ConverterResult;
+import writer2xhtml.api.GraphicConverter;
+import writer2xhtml.api.ImageCache;
+
+/** Implementation of <code>writer2xhtml.api.ConversionProfile</code> for the XHTML, HTML5 and EPUB converters.
+ *  The profile holds a private copy of the configuration, which is never modified, and the template,
+ *  style sheet and resources read by the converter (these are only read by the conversion).
+ */
+final class ConversionProfileImpl implements ConversionProfile {
+	
+	// A converter of the right type, only used to create new instances
+	private final Converter prototype;
+	
+	private final XhtmlConfig config;
+	private final XhtmlDocument template;
+	private final CssDocument styleSheet;
+	private final Set<ResourceDocument> resources;
+	private final GraphicConverter graphicConverter;
+	private final ImageCache imageCache;
+	private final Executor imageExecutor;
+	private final boolean bCollectStatistics;
+	private final boolean bReuseDocumentIndex;
+	
+	ConversionProfileImpl(Converter converter, XhtmlConfig config, XhtmlDocument template,
+			CssDocument styleSheet, Set<ResourceDocument> resources, GraphicConverter graphicConverter,
+			ImageCache imageCache, Executor imageExecutor, boolean bCollectStatistics, boolean bReuseDocumentIndex) {
+		this.prototype = converter.createInstance();
+		this.config = new XhtmlConfig(config);
+		this.template = template;
+		this.styleSheet = styleSheet;
+		this.resources = Collections.unmodifiableSet(new HashSet<ResourceDocument>(resources));
+		this.graphicConverter = graphicConverter;
+		this.imageCache = imageCache;
+		this.imageExecutor = imageExecutor;
+		this.bCollectStatistics = bCollectStatistics;
+		this.bReuseDocumentIndex = bReuseDocumentIndex;
+	}
+	
+	// Create the converter for a single conversion
+	private Converter createConverter() {
+		Converter converter = prototype.createInstance();
+		converter.setProfile(config, template, styleSheet, resources);
+		converter.setGraphicConverter(graphicConverter);
+		converter.setImageCache(imageCache);
+		converter.setImageExecutor(imageExecutor);
+		converter.setCollectStatistics(bCollectStatistics);
+		converter.setReuseDocumentIndex(bReuseDocumentIndex);
+		return converter;
+	}
+
+	public ConverterResult convert(InputStream is, String sTargetFileName) throws IOException {
+		return createConverter().convert(is, sTargetFileName);
+	}
+
+	public ConverterResult convert(File source, String sTargetFileName) throws FileNotFoundException, IOException {
+		return createConverter().convert(source, sTargetFileName);
+	}
+
+	public ConverterResult convert(org.w3c.dom.Document dom, String sTargetFileName, boolean bDestructive)
+			throws IOException {
+		return createConverter().convert(dom, sTargetFileName, bDestructive);
+	}
+
+}
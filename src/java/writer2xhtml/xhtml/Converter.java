@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-07-30)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -29,6 +29,7 @@ package writer2xhtml.xhtml;
 import java.io.File;
 import java.io.FileInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -46,6 +47,8 @@ import org.w3c.dom.Text;
 
 import writer2xhtml.api.Config;
 import writer2xhtml.api.ContentEntry;
+import writer2xhtml.api.ConversionProfile;
+import writer2xhtml.api.ConversionStatistics;
 import writer2xhtml.api.ConverterFactory;
 import writer2xhtml.api.OutputFile;
 import writer2xhtml.base.ContentEntryImpl;
@@ -99,6 +102,7 @@ public class Converter extends ConverterBase {
     private XhtmlDocument htmlDoc; // current outfile
     private Document htmlDOM; // current DOM, usually within htmlDoc
     private boolean bNeedHeaderFooter = false;
+    private XhtmlDocument navigationDoc = null; // shared navigation for all outfiles, if any
     private Set<String> usedFileTitles = new HashSet<>();
     private ExportNameCollection fileNames = new ExportNameCollection("",true,"-");
 
@@ -120,6 +124,28 @@ public class Converter extends ConverterBase {
         config = new XhtmlConfig();
         this.nType = nType;
     }
+    
+    /** Create a new converter of the same type as this converter.
+     *  Subclasses must override this to create an instance of the subclass
+     *  
+     *  @return the new converter
+     */
+    protected Converter createInstance() {
+    	return new Converter(nType);
+    }
+    
+    @Override public ConversionProfile createProfile() {
+    	return new ConversionProfileImpl(this,config,template,styleSheet,resources,graphicConverter,imageCache,imageExecutor,
+    			bCollectStatistics,bReuseDocumentIndex);
+    }
+    
+    // Use the (shared) configuration, template, style sheet and resources from a conversion profile
+    void setProfile(XhtmlConfig config, XhtmlDocument template, CssDocument styleSheet, Set<ResourceDocument> resources) {
+    	this.config = config;
+    	this.template = template;
+    	this.styleSheet = styleSheet;
+    	this.resources = resources;
+    }
 
     // override methods to read templates, style sheets and resources
     @Override public void readTemplate(InputStream is) throws IOException {
@@ -132,10 +158,10 @@ public class Converter extends ConverterBase {
     }
 
     @Override public void readStyleSheet(InputStream is) throws IOException {
-    	if (styleSheet==null) {
-    		styleSheet = new CssDocument(EPUB_CUSTOM_STYLESHEET);
-    	}
-    	styleSheet.read(is);
+    	// Always create a new document, the current one may be in use by a conversion profile
+    	CssDocument newStyleSheet = new CssDocument(EPUB_CUSTOM_STYLESHEET);
+    	newStyleSheet.read(is);
+    	styleSheet = newStyleSheet;
     }
 	
     @Override public void readStyleSheet(File file) throws IOException {
@@ -304,6 +330,7 @@ public class Converter extends ConverterBase {
         }
 		
         // Post processing
+        enterPhase(ConversionStatistics.Phase.POSTPROCESS);
         addTitleAndTextPageEntries();
         resolveLinks();
         loadMathJax();
@@ -438,6 +465,11 @@ public class Converter extends ConverterBase {
     private void generateHeaderOrFooterCalc(int nFileIndex, Document dom, Element hnode) {
         if (hnode!=null) {
         	addUplink(dom, hnode);
+        	if (config.xhtmlCalcSplit() && getNavigationDocument()!=null) {
+        		// The links to the sheets are found in the shared navigation document
+        		addNavigationDocumentLink(dom, hnode);
+        		return;
+        	}
             int nSheets = tableCv.sheetNames.size();
             for (int nSheetIndex=0; nSheetIndex<nSheets; nSheetIndex++) {
                 if (config.xhtmlCalcSplit()) {
@@ -480,46 +512,132 @@ public class Converter extends ConverterBase {
     }
     
     private void generatePanels() {
-        for (int nSourceIndex=0; nSourceIndex<=nOutFileIndex; nSourceIndex++) {
+        int nFiles = nOutFileIndex+1;
+        // Index the outline levels (shifted by one, as the level of a file without a heading is -1)
+        int[] levels = new int[nFiles];
+        int nMaxLevel = 0;
+        for (int i=0; i<nFiles; i++) {
+        	levels[i] = Math.max(outFiles.get(i).getOutlineLevel()+1,0);
+        	nMaxLevel = Math.max(nMaxLevel,levels[i]);
+        }
+        // For each level and each file, the index of the first file from this file with at most this level
+        int[][] nextIndex = null;
+        // For each level, the index of the last file up to the source file with at most this level
+        int[] lastIndex = new int[nMaxLevel+1];
+        Arrays.fill(lastIndex,-1);
+        for (int nSourceIndex=0; nSourceIndex<nFiles; nSourceIndex++) {
+        	for (int nLevel=levels[nSourceIndex]; nLevel<=nMaxLevel; nLevel++) {
+        		lastIndex[nLevel] = nSourceIndex;
+        	}
             XhtmlDocument doc = outFiles.get(nSourceIndex);
             Element panel = doc.getPanelNode();
             if (panel!=null) {
                 Document dom = doc.getContentDOM();
-                int nCurrentLevel = 1;
-            	for (int nTargetIndex=0; nTargetIndex<=nOutFileIndex; nTargetIndex++) {
-            		int nThisLevel = outFiles.get(nTargetIndex).getOutlineLevel();
+            	XhtmlDocument navDoc = getNavigationDocument();
+            	if (navDoc!=null) {
+            		// Refer to the shared navigation document rather than creating a copy in each file
+            		if (isHTML5()) {
+            			Element iframe = dom.createElement("iframe");
+            			iframe.setAttribute("src", Misc.makeHref(navDoc.getFileName()));
+            			iframe.setAttribute("title", l10n.get(L10n.CONTENTS));
+            			panel.appendChild(iframe);
+            		}
+            		else {
+            			addNavigationDocumentLink(dom, panel);
+            		}
+            		continue;
+            	}
+            	if (nextIndex==null) {
+            		nextIndex = new int[nMaxLevel+1][nFiles+1];
+            		for (int nLevel=0; nLevel<=nMaxLevel; nLevel++) {
+            			nextIndex[nLevel][nFiles] = nFiles;
+            			for (int i=nFiles-1; i>=0; i--) {
+            				nextIndex[nLevel][i] = levels[i]<=nLevel ? i : nextIndex[nLevel][i+1];
+            			}
+            		}
+            	}
+                int nCurrentLevel = 2; // outline level 1
+                int nTargetIndex = 0;
+            	while (nTargetIndex<nFiles) {
+            		int nThisLevel = levels[nTargetIndex];
             		if (nThisLevel<nCurrentLevel) {
             			// We are leaving a lower level
             			nCurrentLevel = nThisLevel;
             		}
             		else if (nThisLevel>nCurrentLevel) {
-            			if (nTargetIndex==nSourceIndex+1) {
-            				// We are descending into a lower level which should be expanded because it immediately follows the source file
+            			// We descend into this level if it immediately follows the source file or contains the source file
+            			// (no file from this file up to the source file belongs to the current level)
+            			if (nTargetIndex==nSourceIndex+1 ||
+            				(nTargetIndex<=nSourceIndex && lastIndex[nCurrentLevel]<nTargetIndex)) {
             				nCurrentLevel = nThisLevel;
             			}
             			else {
-            				// We descend into this level only if it contains the source file
-            				int n = nTargetIndex;
-            				while (n<=nOutFileIndex && outFiles.get(n).getOutlineLevel()>nCurrentLevel) {
-            					if (n++==nSourceIndex) {
-            						// Found the source, so we will descend
-            						nCurrentLevel = nThisLevel;
-            					}
-            				}
+            				// Skip the files below the current level
+            				nTargetIndex = nextIndex[nCurrentLevel][nTargetIndex];
+            				continue;
             			}
             		}
-            		if (nThisLevel==nCurrentLevel) {
-	            		Element p = dom.createElement("p");
-	            		p.setAttribute("class", "level"+nThisLevel);
-	                    panel.appendChild(p);
-	                    addNavigationLink(dom, p, outFiles.get(nTargetIndex).getFileLabel( )+outFiles.get(nTargetIndex).getFileTitle( ),
-	                    		nSourceIndex, nTargetIndex);
-            		}
+            		Element p = dom.createElement("p");
+            		p.setAttribute("class", "level"+(nThisLevel-1));
+                    panel.appendChild(p);
+                    addNavigationLink(dom, p, outFiles.get(nTargetIndex).getFileLabel( )+outFiles.get(nTargetIndex).getFileTitle( ),
+                    		nSourceIndex, nTargetIndex);
+                    nTargetIndex++;
             	}
             }
         }      
     }
     
+    // Get the shared navigation document, creating it if required.
+    // Returns null if the navigation should be included in each output file.
+    private XhtmlDocument getNavigationDocument() {
+    	if (!config.sharedNavigation() || isOPS() || nOutFileIndex==0) {
+    		return null;
+    	}
+    	if (navigationDoc==null) {
+    		navigationDoc = new XhtmlDocument(sTargetFileName+"-nav", nType, null, null, -1);
+    		navigationDoc.setConfig(config);
+    		Document dom = navigationDoc.getContentDOM();
+    		styleCv.applyDefaultLanguage(dom.getDocumentElement());
+    		navigationDoc.getTitleNode().appendChild(dom.createTextNode(l10n.get(L10n.CONTENTS)));
+    		if (isHTML5()) {
+    			// The document may be displayed in an iframe, but the links should replace the parent
+    			Element base = dom.createElement("base");
+    			base.setAttribute("target", "_parent");
+    			navigationDoc.getHeadNode().appendChild(base);
+    		}
+    		Element body = navigationDoc.getContentNode();
+    		if (ofr.isSpreadsheet()) {
+    			int nSheets = tableCv.sheetNames.size();
+    			for (int nSheetIndex=0; nSheetIndex<nSheets; nSheetIndex++) {
+    				Element p = dom.createElement("p");
+    				body.appendChild(p);
+    				addNavigationLink(dom, p, tableCv.sheetNames.get(nSheetIndex), -1, nSheetIndex);
+    			}
+    		}
+    		else {
+    			for (int nTargetIndex=0; nTargetIndex<=nOutFileIndex; nTargetIndex++) {
+    				XhtmlDocument target = outFiles.get(nTargetIndex);
+    				Element p = dom.createElement("p");
+    				p.setAttribute("class", "level"+target.getOutlineLevel());
+    				body.appendChild(p);
+    				addNavigationLink(dom, p, target.getFileLabel()+target.getFileTitle(), -1, nTargetIndex);
+    			}
+    		}
+    		converterResult.addDocument(navigationDoc);
+    	}
+    	return navigationDoc;
+    }
+    
+    // Add a link to the shared navigation document
+    private void addNavigationDocumentLink(Document dom, Node node) {
+    	Element a = dom.createElement("a");
+    	a.setAttribute("href", Misc.makeHref(navigationDoc.getFileName()));
+    	a.appendChild(dom.createTextNode(l10n.get(L10n.CONTENTS)));
+    	node.appendChild(a);
+    	node.appendChild(dom.createTextNode(" "));
+    }
+    
     // Add a navigation link to another output file and return the link element
     private void addNavigationLink(Document dom, Node node, String sTitle, int nSourceIndex, int nTargetIndex) {
         if (nTargetIndex>=0 && nTargetIndex<=nOutFileIndex && nSourceIndex!=nTargetIndex) {
@@ -561,7 +679,8 @@ public class Converter extends ConverterBase {
         	for (int i=0; i<=nOutFileIndex; i++) {
         		Element head = outFiles.get(i).getHeadNode();
         		if (head!=null) {
-        			Node styles = styleCv.exportStyles(outFiles.get(i).getContentDOM());
+        			Node styles = styleCv.exportStyles(outFiles.get(i).getContentDOM(),
+        					config.usedStylesOnly() ? outFiles.get(i).getClassNames() : null);
         			if (styles!=null) {
         				head.appendChild(styles);
         			}
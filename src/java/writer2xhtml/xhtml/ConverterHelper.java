@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7 (2023-06-10)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -30,6 +30,7 @@ import org.w3c.dom.Element;
 
 import writer2xhtml.office.OfficeReader;
 import writer2xhtml.util.Calc;
+import writer2xhtml.util.Length;
 
 /** A <code>ConverterHelper</code> is responsible for conversion of some specific content into XHTML. 
  */
@@ -40,9 +41,11 @@ class ConverterHelper {
     XhtmlConfig config;
     Converter converter;
     
-    // Scaling and unit transformation to use
+    // Scaling (as percentages) and unit transformation to use
     private String sScale;
     private String sColScale;
+    private float fScale;
+    private float fColScale;
     private int nUnits;
 	
     /** Construct a new converter helper based on a 
@@ -58,6 +61,8 @@ class ConverterHelper {
 
         sScale = config.getXhtmlScaling();
         sColScale = config.getXhtmlColumnScaling();
+        fScale = Calc.getPercent(sScale);
+        fColScale = Calc.getPercent(sColScale);
         nUnits = config.units();
     }
     
@@ -99,10 +104,19 @@ class ConverterHelper {
      * @param hnode the XHTML node
      */
     void applyStyle(StyleInfo info, Element hnode) {
-        if (info.sClass!=null) {
-            hnode.setAttribute("class",info.sClass);
-        }
+        String sClass = info.sClass;
+        String sHardClass = null;
         if (!info.props.isEmpty()) {
+            // The hard formatting may be replaced by a class
+            sHardClass = converter.getStyleCv().getHardFormattingClass(hnode.getTagName(),info.props);
+            if (sHardClass!=null) {
+                sClass = sClass!=null ? sClass+" "+sHardClass : sHardClass;
+            }
+        }
+        if (sClass!=null) {
+            hnode.setAttribute("class",sClass);
+        }
+        if (!info.props.isEmpty() && sHardClass==null) {
             hnode.setAttribute("style",info.props.toString());
         }
         if (info.sLang!=null) {
@@ -117,6 +131,9 @@ class ConverterHelper {
     }
     
     protected String scale(String s) {
+    	Length length = Length.parse(s);
+    	if (length!=null) { return scale(length); }
+    	// Lengths that are zero or use other units are handled by Calc
     	switch (nUnits) {
 		case XhtmlConfig.PX:
 	        return Calc.length2px(Calc.multiply(sScale,s));
@@ -128,7 +145,22 @@ class ConverterHelper {
 	    }
 	}
     		
+    protected String scale(Length length) {
+    	Length scaled = length.multiply(fScale);
+    	switch (nUnits) {
+		case XhtmlConfig.PX:
+	        return scaled.toPx();
+		case XhtmlConfig.REM:
+	        return scaled.toRem();
+		case XhtmlConfig.ORIGINAL:
+		default:
+	        return scaled.toString();
+	    }
+	}
+    		
 	protected String colScale(String s) {
+    	Length length = Length.parse(s);
+    	if (length!=null) { return scale(length.multiply(fColScale)); }
 	    return scale(Calc.multiply(sColScale,s));
 	}
 
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2012 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.4 (2012-03-28)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -31,5 +31,9 @@ public class Html5Converter extends Converter {
     public Html5Converter() {
         super(XhtmlDocument.HTML5);
     }
+    
+    @Override protected Html5Converter createInstance() {
+    	return new Html5Converter();
+    }
 	
 }
\ No newline at end of file
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-08-08)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -47,7 +47,6 @@ import writer2xhtml.office.XMLString;
 import writer2xhtml.util.CSVList;
 import writer2xhtml.util.Calc;
 import writer2xhtml.util.Misc;
-import writer2xhtml.util.StringComparator;
 
 /**
  * This class converts OpenDocument list styles to CSS styles.
@@ -476,7 +475,7 @@ public class ListStyleConverter extends StyleConverterHelper {
     		}
     		
     		// Sort the tab stops
-    		Comparator<String> comparator = new StringComparator<String>("en","US") {
+    		Comparator<String> comparator = new Comparator<String>() {
     			public int compare(String a, String b) {
     				if (Calc.isZero(Calc.sub(a, b))) { return 0; }
     				else if (Calc.isLessThan(a, b)) { return -1; }
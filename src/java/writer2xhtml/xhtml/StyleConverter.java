@@ -16,16 +16,22 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-06-29)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.xhtml;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -59,6 +65,15 @@ class StyleConverter extends ConverterHelper {
     // Helper for page styles
     private PageStyleConverter pageSc;
     
+    // Classes replacing hard formatting, indexed by element name and CSS declarations (or null if not used)
+    private Map<String,String> hardFormattingClasses = null;
+    
+    // The exported styles are the same for all files, hence they are only created once
+    private String sExportedStyles = null;
+    
+    // Pattern to identify class names in CSS selectors
+    private static final Pattern classPattern = Pattern.compile("\\.([^\\s.,#:>+~\\[\\]()]+)");
+    
     /** Create a new <code>StyleConverter</code>
      * 
      * @param ofr the office reader used to access the source document
@@ -79,6 +94,11 @@ class StyleConverter extends ConverterHelper {
         cellSc = new CellStyleConverter(ofr,config,converter,nType);
         frameSc = new FrameStyleConverter(ofr,config,converter,nType);
         pageSc = new PageStyleConverter(ofr,config,converter,nType);
+        // Hard formatting can only be moved to the style sheet if the style sheet is exported
+        if (config.hardFormattingClasses() && (config.xhtmlFormatting()>XhtmlConfig.IGNORE_STYLES
+        		|| !(converter.isOPS() || config.separateStylesheet()))) {
+        	hardFormattingClasses = new LinkedHashMap<>();
+        }
     }
 	
     // Accessor methods for helpers: We need to override the style helper accessors
@@ -116,6 +136,27 @@ class StyleConverter extends ConverterHelper {
         }
     }
     
+    /** Get a class name to use for hard formatting instead of a style attribute. All elements with the
+     *  same name and the same hard formatting share the same class. The declarations are marked !important,
+     *  since a style attribute takes precedence over any style rule, including rules with a higher specificity
+     *  than the generated rule (e.g. list paragraphs and paragraphs in frames).
+     * 
+     * @param sElementName the name of the XHTML element
+     * @param props the CSS declarations for the hard formatting
+     * @return the class name, or null if hard formatting should be applied with a style attribute
+     */
+    String getHardFormattingClass(String sElementName, CSVList props) {
+    	if (hardFormattingClasses==null) { return null; }
+    	String sKey = sElementName+"{"+props.toString(" !important");
+    	String sClass = hardFormattingClasses.get(sKey);
+    	if (sClass==null) {
+    		// The hyphen ensures that the name differs from the names generated from style names
+    		sClass = "hf-"+(hardFormattingClasses.size()+1);
+    		hardFormattingClasses.put(sKey, sClass);
+    	}
+    	return sClass;
+    }
+    
     /** Export style information as a string of plain CSS code
      * 
      * @param bIndent true if the CSS code should be indented
@@ -142,16 +183,30 @@ class StyleConverter extends ConverterHelper {
         buf.append(getRowSc().getStyleDeclarations(sIndent));
         buf.append(getFrameSc().getStyleDeclarations(sIndent));
         buf.append(getPageSc().getStyleDeclarations(sIndent));
+        // Hard formatting comes last (the declarations are !important, see getHardFormattingClass)
+        if (hardFormattingClasses!=null) {
+        	for (Map.Entry<String,String> entry : hardFormattingClasses.entrySet()) {
+        		String sKey = entry.getKey();
+        		int nBrace = sKey.indexOf('{');
+        		buf.append(sIndent).append(sKey, 0, nBrace).append(".").append(entry.getValue())
+        		   .append(" {").append(sKey, nBrace+1, sKey.length()).append("}").append(config.prettyPrint() ? "\n" : " ");
+        	}
+        }
         return buf.toString();
     }
     
     /** Export style information as an XHTML style element
      * 
      * @param htmlDOM the XHTML DOM to which the generated element belongs
+     * @param classNames the class names used in the document, in which case only style rules using
+     * these classes are exported, or null to export all style rules
      * @return the style element
      */
-    Node exportStyles(Document htmlDOM) {
-        String sStyles = exportStyles(config.prettyPrint());
+    Node exportStyles(Document htmlDOM, Set<String> classNames) {
+        if (sExportedStyles==null) {
+        	sExportedStyles = exportStyles(config.prettyPrint());
+        }
+        String sStyles = classNames!=null ? filterStyles(sExportedStyles,classNames) : sExportedStyles;
 		
         // Create node
         if (sStyles.length()>0) {
@@ -170,6 +225,54 @@ class StyleConverter extends ConverterHelper {
     
     // Private helper methods
     
+    // Remove style rules which are not used in a document. A rule is used if one of the selectors
+    // only contains classes from the document. At-rules (such as @page) are always kept.
+    private static String filterStyles(String sStyles, Set<String> classNames) {
+    	StringBuilder buf = new StringBuilder();
+    	int nLen = sStyles.length();
+    	int nStart = 0;
+    	while (nStart<nLen) {
+    		// Find the end of the rule (including white space), taking care of nested blocks and strings
+    		int nBrace = -1;
+    		int nDepth = 0;
+    		char cQuote = 0;
+    		int nEnd = nStart;
+    		while (nEnd<nLen) {
+    			char c = sStyles.charAt(nEnd++);
+    			if (cQuote!=0) {
+    				if (c=='\\') { nEnd++; }
+    				else if (c==cQuote) { cQuote = 0; }
+    			}
+    			else if (c=='"' || c=='\'') { cQuote = c; }
+    			else if (c=='{') {
+    				if (nDepth++==0) { nBrace = nEnd-1; }
+    			}
+    			else if (c=='}' && --nDepth==0) {
+    				break;
+    			}
+    		}
+    		while (nEnd<nLen && Character.isWhitespace(sStyles.charAt(nEnd))) { nEnd++; }
+    		if (nBrace<0 || isUsed(sStyles.substring(nStart, nBrace), classNames)) {
+    			buf.append(sStyles, nStart, Math.min(nEnd, nLen));
+    		}
+    		nStart = nEnd;
+    	}
+    	return buf.toString();
+    }
+    
+    private static boolean isUsed(String sSelectors, Set<String> classNames) {
+    	if (sSelectors.trim().startsWith("@")) { return true; }
+    	for (String sSelector : sSelectors.split(",")) {
+    		boolean bUsed = true;
+    		Matcher matcher = classPattern.matcher(sSelector);
+    		while (bUsed && matcher.find()) {
+    			bUsed = classNames.contains(matcher.group(1));
+    		}
+    		if (bUsed) { return true; }
+    	}
+    	return false;
+    }
+    
     private void exportDefaultStyle(StringBuilder buf, String sIndent) {
         // Export default style
         if (config.xhtmlCustomStylesheet().length()==0 &&
@@ -16,18 +16,19 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2018 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.6.1 (2018-08-23)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
 package writer2xhtml.xhtml;
 
 import java.util.Enumeration;
-//import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.Map;
 
 import writer2xhtml.office.OfficeReader;
 import writer2xhtml.office.StyleWithProperties;
@@ -39,6 +40,10 @@ import writer2xhtml.util.CSVList;
  */
 public abstract class StyleWithPropertiesConverterHelper
     extends StyleConverterHelper {
+	
+    // Compiled style information for the styles applied so far. The result of applying a style depends
+    // only on the style, so each style is converted only once during the conversion
+    private Map<String,StyleInfo> compiledStyles = new HashMap<>();
 
     /** Create a new <code>StyleWithPropertiesConverterHelper</code>
      *  @param ofr an <code>OfficeReader</code> to read style information from
@@ -57,6 +62,23 @@ public abstract class StyleWithPropertiesConverterHelper
      *  @param info the <code>StyleInfo</code> object to add information to
      */
     public void applyStyle(String sStyleName, StyleInfo info) {
+        StyleInfo compiled = compiledStyles.get(sStyleName);
+        if (compiled==null) {
+            compiled = new StyleInfo();
+            compileStyle(sStyleName,compiled);
+            // Render the style attribute now, this is shared by all elements using the style
+            compiled.props.toString();
+            compiledStyles.put(sStyleName,compiled);
+        }
+        info.sTagName = compiled.sTagName;
+        if (compiled.sClass!=null) { info.sClass = compiled.sClass; }
+        info.props.addValues(compiled.props);
+        if (compiled.sLang!=null) { info.sLang = compiled.sLang; }
+        if (compiled.sDir!=null) { info.sDir = compiled.sDir; }
+    }
+	
+    // Convert a style to an empty StyleInfo
+    private void compileStyle(String sStyleName, StyleInfo info) {
         StyleWithProperties style = (StyleWithProperties) getStyles().getStyle(sStyleName);
         info.sTagName = getDefaultTagName(style);
         if (style!=null) {
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-08-06)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -71,6 +71,7 @@ public class TextConverter extends ConverterHelper {
     private Stack<Node> sections = new Stack<>(); // stack of nested sections
     Element[] currentHeading = new Element[7]; // Last headings (repeated when splitting)
     private int nCharacterCount = 0; // The number of text characters in the current document
+    private Node releasableNode = null; // Block content that may be removed from the source DOM once converted
     
     // Data used to handle page numbers
     private int nPageCount = 1; // Current physical page number
@@ -156,8 +157,11 @@ public class TextConverter extends ConverterHelper {
         // Add cover image
         hnode = getDrawCv().insertCoverImage(hnode);
 
-        // Convert content
+        // Convert content. If the reader is destructive, the top level blocks are removed from the source DOM as
+        // soon as they have been converted, so that the source DOM shrinks while the XHTML DOM grows
+        if (ofr.isDestructive()) { releasableNode = onode; }
         hnode = (Element)traverseBlockText(onode,hnode);
+        releasableNode = null;
         
         // Add footnotes and endnotes
         footCv.insertFootnotes(hnode,true);
@@ -386,7 +390,21 @@ public class TextConverter extends ConverterHelper {
         NodeList nList = onode.getChildNodes();
         int nLen = nList.getLength();
         int i = 0;
+        int nRetained = 0; // The number of drawing objects kept at the start of a releasable node
         while (i < nLen) {
+        	if (onode==releasableNode) {
+        		// Release the blocks converted so far, except drawing objects which may be converted later
+        		while (nRetained<i) {
+        			Node prev = nList.item(nRetained);
+        			if (OfficeReader.isDrawElement(prev)) {
+        				nRetained++;
+        			}
+        			else {
+        				onode.removeChild(prev);
+        				i--; nLen--;
+        			}
+        		}
+        	}
             Node child = nList.item(i);
             
             if (child.getNodeType() == Node.ELEMENT_NODE) {
@@ -402,7 +420,7 @@ public class TextConverter extends ConverterHelper {
                 	StyleWithProperties style = ofr.getParStyle(Misc.getAttribute(child,XMLString.TEXT_STYLE_NAME));
                 	hnode = maybeSplit(hnode, style);
                 	bPageBreakAfter = maybePageBreak(hnode, style);
-                	nCharacterCount+=OfficeReader.getCharacterCount(child);
+                	nCharacterCount+=ofr.getParagraphCharacterCount(child);
                     // is there a block element, we should use?
                     XhtmlStyleMap xpar = config.getXParStyleMap();
                     String sDisplayName = style!=null ? style.getDisplayName() : null;
@@ -448,7 +466,7 @@ public class TextConverter extends ConverterHelper {
                 else if(nodeName.equals(XMLString.TEXT_H)) {
                 	StyleWithProperties style = ofr.getParStyle(Misc.getAttribute(child,XMLString.TEXT_STYLE_NAME));
                 	bPageBreakAfter = maybePageBreak(hnode, style);
-                	nCharacterCount+=OfficeReader.getCharacterCount(child);
+                	nCharacterCount+=ofr.getParagraphCharacterCount(child);
                 	// splitting is handled by handleHeading because we need to add the label
                 	hnode = handleHeading((Element)child, (Element)hnode);
                 }
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2008 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.0 (2008-09-09)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -31,5 +31,9 @@ public class Xhtml10Converter extends Converter {
     public Xhtml10Converter() {
         super(XhtmlDocument.XHTML10);
     }
+    
+    @Override protected Xhtml10Converter createInstance() {
+    	return new Xhtml10Converter();
+    }
 	
 }
\ No newline at end of file
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2009 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.2 (2009-05-29)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -31,5 +31,9 @@ public class Xhtml11Converter extends Converter {
     public Xhtml11Converter() {
         super(XhtmlDocument.XHTML11);
     }
+    
+    @Override protected Xhtml11Converter createInstance() {
+    	return new Xhtml11Converter();
+    }
 	
 }
\ No newline at end of file
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-08-03)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -41,7 +41,7 @@ import writer2xhtml.util.Misc;
 
 public class XhtmlConfig extends writer2xhtml.base.ConfigBase {
     // Implement configuration methods
-    protected int getOptionCount() { return 62; }
+    protected int getOptionCount() { return 67; }
     protected String getDefaultConfigPath() { return "/writer2xhtml/xhtml/config/"; }
 	
     // Override setOption: To be backwards compatible, we must accept options
@@ -175,6 +175,11 @@ public class XhtmlConfig extends writer2xhtml.base.ConfigBase {
     private static final int ORIGINAL_PAGE_NUMBERS = 59;
     private static final int AVOID_HTML5 = 60;
     private static final int FILENAMES = 61;
+    private static final int EPUB_DEFLATE_LEVEL = 62;
+    private static final int EPUB_PARALLEL_COMPRESSION = 63;
+    private static final int USED_STYLES_ONLY = 64;
+    private static final int HARD_FORMATTING_CLASSES = 65;
+    private static final int SHARED_NAVIGATION = 66;
 
     protected ComplexOption xheading = addComplexOption("heading-map");
     protected ComplexOption xpar = addComplexOption("paragraph-map");
@@ -343,6 +348,31 @@ public class XhtmlConfig extends writer2xhtml.base.ConfigBase {
         		}
         	}
         };
+        options[EPUB_DEFLATE_LEVEL] = new IntegerOption("epub_deflate_level","default") {
+        	@Override public void setString(String sValue) {
+        		super.setString(sValue);
+        		// 0 (no compression) to 9 (best compression), or the default compression level (-1)
+        		if (sValue.length()==1 && Character.isDigit(sValue.charAt(0))) {
+        			nValue = sValue.charAt(0)-'0';
+        		}
+        		else {
+        			nValue = -1;
+        		}
+        	}
+        };
+        options[EPUB_PARALLEL_COMPRESSION] = new BooleanOption("epub_parallel_compression","false");
+        options[USED_STYLES_ONLY] = new BooleanOption("used_styles_only","false");
+        options[HARD_FORMATTING_CLASSES] = new BooleanOption("hard_formatting_classes","false");
+        options[SHARED_NAVIGATION] = new BooleanOption("shared_navigation","false");
+    }
+    
+    /** Create a copy of another configuration
+     * 
+     *  @param config the configuration to copy
+     */
+    public XhtmlConfig(XhtmlConfig config) {
+    	this();
+    	copy(config);
     }
     
 	protected void readInner(Element elm) {
@@ -488,6 +518,11 @@ public class XhtmlConfig extends writer2xhtml.base.ConfigBase {
     public boolean originalPageNumbers() { return ((BooleanOption) options[ORIGINAL_PAGE_NUMBERS]).getValue(); }
     public boolean avoidHtml5() { return ((BooleanOption) options[AVOID_HTML5]).getValue(); }
     public int getFilenames() { return ((IntegerOption) options[FILENAMES]).getValue(); }
+    public int epubDeflateLevel() { return ((IntegerOption) options[EPUB_DEFLATE_LEVEL]).getValue(); }
+    public boolean epubParallelCompression() { return ((BooleanOption) options[EPUB_PARALLEL_COMPRESSION]).getValue(); }
+    public boolean usedStylesOnly() { return ((BooleanOption) options[USED_STYLES_ONLY]).getValue(); }
+    public boolean hardFormattingClasses() { return ((BooleanOption) options[HARD_FORMATTING_CLASSES]).getValue(); }
+    public boolean sharedNavigation() { return ((BooleanOption) options[SHARED_NAVIGATION]).getValue(); }
 	
     public XhtmlStyleMap getXParStyleMap() { return getStyleMap(xpar); }
     public XhtmlStyleMap getXHeadingStyleMap() { return getStyleMap(xheading); }
@@ -16,11 +16,11 @@
  *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *  MA  02111-1307  USA
  *
- *  Copyright: 2002-2023 by Henrik Just
+ *  Copyright: 2002-2026 by Henrik Just
  *
  *  All Rights Reserved.
  * 
- *  Version 1.7.1 (2023-07-30)
+ *  Version 1.7.2 (2026-10-18)
  *
  */
 
@@ -44,10 +44,12 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
 
+import java.io.BufferedWriter;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -73,6 +75,8 @@ public class XhtmlDocument extends DOMDocument {
     public static final int XHTML5 = 4;
     
     // Some static data
+    private static final int BUFFERSIZE = 65536;
+    private static final String SPACES = "                                        ";
     private static final String[] sExtension = { ".html", ".xhtml", ".xhtml", ".html", ".xhtml" };
 
     private static Set<String> blockPrettyPrint;
@@ -336,6 +340,32 @@ public class XhtmlDocument extends DOMDocument {
     	bContainsMath = true;
     }
     
+    /** Get the names of all CSS classes used in this document
+     * 
+     * @return the set of class names
+     */
+    public Set<String> getClassNames() {
+    	Set<String> classNames = new HashSet<String>();
+    	if (getContentDOM()!=null) {
+    		collectClassNames(getContentDOM().getDocumentElement(), classNames);
+    	}
+    	return classNames;
+    }
+    
+    private static void collectClassNames(Node node, Set<String> classNames) {
+    	if (node.getNodeType()==Node.ELEMENT_NODE) {
+    		String sClass = ((Element) node).getAttribute("class");
+    		if (sClass.length()>0) {
+    			for (String sName : sClass.split("\\s+")) {
+    				if (sName.length()>0) { classNames.add(sName); }
+    			}
+    		}
+    		for (Node child = node.getFirstChild(); child!=null; child = child.getNextSibling()) {
+    			collectClassNames(child, classNames);
+    		}
+    	}
+    }
+    
     public Element getHeadNode() { return headNode; }
 	
     public Element getBodyNode() { return bodyNode; }
@@ -402,25 +432,29 @@ public class XhtmlDocument extends DOMDocument {
     		DOMImplementation domImpl = builder.getDOMImplementation();
             String[] sDocType = getDoctypeStrings();
             DocumentType doctype = domImpl.createDocumentType("html", sDocType[0], sDocType[1]);
-    		newDOM = domImpl.createDocument("http://www.w3.org/1999/xhtml",
-    				templateDOM.getDocumentElement().getTagName(),doctype);
-    		setContentDOM(newDOM);
-    		
-    		// Import attributes on root element 
-    		Element templateRoot = templateDOM.getDocumentElement();
-    		Element newRoot = newDOM.getDocumentElement();
-    		NamedNodeMap attributes = templateRoot.getAttributes();
-    		int nCount = attributes.getLength();
-    		for (int i=0; i<nCount; i++) {
-    			Node attrNode = attributes.item(i);
-    			newRoot.setAttribute(attrNode.getNodeName(), attrNode.getNodeValue());
-    		}
-    		
-    		// Import all child nodes from template
-    		NodeList children = templateRoot.getChildNodes();
-    		int nLen = children.getLength();
-    		for (int i=0; i<nLen; i++) {
-    			newRoot.appendChild(getContentDOM().importNode(children.item(i),true));
+    		// The template may be shared by concurrent conversions (using a conversion profile),
+    		// and the DOM is not guaranteed to be thread safe, not even for reading
+    		synchronized (templateDOM) {
+    			newDOM = domImpl.createDocument("http://www.w3.org/1999/xhtml",
+    					templateDOM.getDocumentElement().getTagName(),doctype);
+    			setContentDOM(newDOM);
+
+    			// Import attributes on root element 
+    			Element templateRoot = templateDOM.getDocumentElement();
+    			Element newRoot = newDOM.getDocumentElement();
+    			NamedNodeMap attributes = templateRoot.getAttributes();
+    			int nCount = attributes.getLength();
+    			for (int i=0; i<nCount; i++) {
+    				Node attrNode = attributes.item(i);
+    				newRoot.setAttribute(attrNode.getNodeName(), attrNode.getNodeValue());
+    			}
+
+    			// Import all child nodes from template
+    			NodeList children = templateRoot.getChildNodes();
+    			int nLen = children.getLength();
+    			for (int i=0; i<nLen; i++) {
+    				newRoot.appendChild(getContentDOM().importNode(children.item(i),true));
+    			}
     		}
 
     		// get the entry point nodes
@@ -574,7 +608,8 @@ public class XhtmlDocument extends DOMDocument {
      *  @throws  IOException  If any I/O error occurs.
      */
     public void write(OutputStream os) throws IOException {
-        OutputStreamWriter osw = new OutputStreamWriter(os,sEncoding);
+        // The serializer writes many small strings, hence we use a large buffer in front of the encoder
+        Writer osw = new BufferedWriter(new OutputStreamWriter(os,sEncoding),BUFFERSIZE);
         // Add a BOM if the user desires so
         if (bAddBOM) { osw.write("\uFEFF"); }
 
@@ -638,34 +673,36 @@ public class XhtmlDocument extends DOMDocument {
     }
 	
     // Write nodes; we only need element, text and comment nodes
-    private void write(Node node, int nLevel, OutputStreamWriter osw) throws IOException {
+    private void write(Node node, int nLevel, Writer osw) throws IOException {
         short nType = node.getNodeType();
         switch (nType) {
             case Node.ELEMENT_NODE:
-                if (isEmpty(node.getNodeName())) {
+            	String sNodeName = node.getNodeName();
+                if (isEmpty(sNodeName)) {
                     // This node must be empty, we ignore child nodes
-                	String sNodeName = node.getNodeName();
                     if (nLevel>=0) { writeSpaces(nLevel,osw); }
-                    osw.write("<"+sNodeName);
+                    osw.write('<');
+                    osw.write(sNodeName);
                     writeAttributes(node,osw);
                     osw.write(" />");
-                    if (nLevel>=0) { osw.write("\n"); }
+                    if (nLevel>=0) { osw.write('\n'); }
                 }
                 else if (node.hasChildNodes()) {
                     int nNextLevel = (nLevel<0 || blockThis((Element)node)) ? -1 : nLevel+1;
                     // Print start tag
                     boolean bRedundantElement = !node.hasAttributes() &&
-                    	(node.getNodeName().equals("a") || node.getNodeName().equals("span")); 
+                    	(sNodeName.equals("a") || sNodeName.equals("span")); 
                     if (!bRedundantElement) {
                     	// Writer2xhtml may produce <a> and <span> without attributes, these are removed here
                     	if (nLevel>=0) { writeSpaces(nLevel,osw); }
-                    	osw.write("<"+node.getNodeName());
+                    	osw.write('<');
+                    	osw.write(sNodeName);
                     	writeAttributes(node,osw);
-                    	osw.write(">");
-                    	if (nNextLevel>=0) { osw.write("\n"); }
+                    	osw.write('>');
+                    	if (nNextLevel>=0) { osw.write('\n'); }
                     }
                     // Print children
-                    bWritingStyle = node.getNodeName().equals("style");
+                    bWritingStyle = sNodeName.equals("style");
                     Node child = node.getFirstChild();
                     while (child!=null) {
                         write(child,nNextLevel,osw);
@@ -675,22 +712,27 @@ public class XhtmlDocument extends DOMDocument {
                     // Print end tag
                     if (!bRedundantElement) {
                     	if (nNextLevel>=0) { writeSpaces(nLevel,osw); }
-                    	osw.write("</"+node.getNodeName()+">");
-                    	if (nLevel>=0) { osw.write("\n"); }
+                    	osw.write("</");
+                    	osw.write(sNodeName);
+                    	osw.write('>');
+                    	if (nLevel>=0) { osw.write('\n'); }
                     }
                 }
                 else { // empty element
                     if (nLevel>=0) { writeSpaces(nLevel,osw); }
-                    osw.write("<"+node.getNodeName());
+                    osw.write('<');
+                    osw.write(sNodeName);
                     writeAttributes(node,osw);
                     // HTML compatibility: use end-tag even if empty
                     if (nType<=XHTML11 || nType==HTML5 || nType==XHTML5) {
-                        osw.write("></"+node.getNodeName()+">");
+                        osw.write("></");
+                        osw.write(sNodeName);
+                        osw.write('>');
                     }
                     else {
                         osw.write(" />");
                     }
-                    if (nLevel>=0) { osw.write("\n"); }
+                    if (nLevel>=0) { osw.write('\n'); }
                 }
                 break;
             case Node.TEXT_NODE:
@@ -701,90 +743,107 @@ public class XhtmlDocument extends DOMDocument {
                 osw.write("<!-- ");
                 write(node.getNodeValue(),osw);
                 osw.write(" -->");
-                if (nLevel>=0) { osw.write("\n"); }
+                if (nLevel>=0) { osw.write('\n'); }
         }
     }
 	
-    private void writeAttributes(Node node, OutputStreamWriter osw) throws IOException {
+    private void writeAttributes(Node node, Writer osw) throws IOException {
         NamedNodeMap attr = node.getAttributes();
         int nLen = attr.getLength();
         for (int i=0; i<nLen; i++) {
             Node item = attr.item(i);
-            osw.write(" ");
+            osw.write(' ');
             write(item.getNodeName(),osw);
             osw.write("=\"");
             writeAttribute(item.getNodeValue(),osw);
-            osw.write("\"");
+            osw.write('"');
         }
     }
 
-    private void writeSpaces(int nCount, OutputStreamWriter osw) throws IOException {
-    	for (int i=0; i<nCount; i++) { osw.write("  "); }
+    private void writeSpaces(int nCount, Writer osw) throws IOException {
+    	int nChars = 2*nCount;
+    	while (nChars>SPACES.length()) {
+    		osw.write(SPACES);
+    		nChars-=SPACES.length();
+    	}
+    	osw.write(SPACES,0,nChars);
     }
 	
-    private void write(String s, OutputStreamWriter osw) throws IOException {
+    // Write text content. Runs of characters that need no escaping are written in bulk
+    private void write(String s, Writer osw) throws IOException {
         // Allow null strings, though this means there is a bug somewhere...
         if (s==null) { osw.write("null"); return; }
         int nLen = s.length();
-        char c;
+        int nStart = 0;
         for (int i=0; i<nLen; i++) {
-            c = s.charAt(i);
-            if (!bWritingStyle) {
-	            switch (c) {
-	                case ('<'): osw.write("&lt;"); break;
-	                case ('>'): osw.write("&gt;"); break;
-	                case ('&'): osw.write("&amp;"); break;
-	                default: 
-	                    write(c,osw);
-	            }
-            } else { // No need to escape inside <style> element, and would cause problems for immediate child selector (>)
-                write(c,osw);            	
+            char c = s.charAt(i);
+            String sReplacement;
+            // No need to escape inside <style> element, and would cause problems for immediate child selector (>)
+            if (!bWritingStyle && c=='<') { sReplacement = "&lt;"; }
+            else if (!bWritingStyle && c=='>') { sReplacement = "&gt;"; }
+            else if (!bWritingStyle && c=='&') { sReplacement = "&amp;"; }
+            else { sReplacement = getEntity(c); }
+            if (sReplacement!=null) {
+            	osw.write(s,nStart,i-nStart);
+            	osw.write(sReplacement);
+            	nStart = i+1;
             }
         }
+        osw.write(s,nStart,nLen-nStart);
     }
 
-    private void writeAttribute(String s, OutputStreamWriter osw) throws IOException {
+    // Write an attribute value. Runs of characters that need no escaping are written in bulk
+    private void writeAttribute(String s, Writer osw) throws IOException {
         int nLen = s.length();
-        char c;
+        int nStart = 0;
         for (int i=0; i<nLen; i++) {
-            c = s.charAt(i);
+            char c = s.charAt(i);
+            String sReplacement;
             switch (c) {
-                case ('<'): osw.write("&lt;"); break;
-                case ('>'): osw.write("&gt;"); break;
-                case ('&'): osw.write("&amp;"); break;
-                case ('"'): osw.write("&quot;"); break;
-                case ('\''): osw.write( nType == XHTML10 ? "&#39;" : "&apos;"); break;
-                default:
-                    write(c,osw);
+                case ('<'): sReplacement = "&lt;"; break;
+                case ('>'): sReplacement = "&gt;"; break;
+                case ('&'): sReplacement = "&amp;"; break;
+                case ('"'): sReplacement = "&quot;"; break;
+                case ('\''): sReplacement = nType == XHTML10 ? "&#39;" : "&apos;"; break;
+                default: sReplacement = getEntity(c);
+            }
+            if (sReplacement!=null) {
+            	osw.write(s,nStart,i-nStart);
+            	osw.write(sReplacement);
+            	nStart = i+1;
             }
         }
+        osw.write(s,nStart,nLen-nStart);
     }
     
-    private void write(char c, OutputStreamWriter osw) throws IOException {
+    // Get the entity to use for a character, or null if the character can be written as is
+    private String getEntity(char c) {
+    	if (!bUseNamedEntities && c<=cLimit) {
+    		// The common case
+    		return null;
+    	}
     	if (bUseNamedEntities) {
     		if (c<256 && entities[c]!=null) {
     			// XHTML has a named entity here
-    			osw.write(entities[c]);
-    			return;
+    			return entities[c];
     		}
-    		String s=getMathMLEntity(c);
-    		if (s!=null && (nType==XHTML_MATHML)) {
-    			// There's a MathML entity to use
-    			osw.write(s);
-    			return;
+    		if (nType==XHTML_MATHML) {
+    			String s=getMathMLEntity(c);
+    			if (s!=null) {
+    				// There's a MathML entity to use
+    				return s;
+    			}
     		}
     	}
         if (c>cLimit) {
         	if (bHexadecimalEntities) {
-                osw.write("&#x"+Integer.toHexString(c).toUpperCase()+";");        		
+                return "&#x"+Integer.toHexString(c).toUpperCase()+";";        		
         	}
         	else {
-        		osw.write("&#"+Integer.toString(c).toUpperCase()+";");
+        		return "&#"+Integer.toString(c).toUpperCase()+";";
         	}
         }
-        else {
-            osw.write(c);
-        }
+        return null;
     }
     
     